@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * <h1>BenchmarkRunner</h1>
+ * <p>
+ * Runs the benchmarks once for every requested number of benchmark threads, with
+ * {@link GCProfiler} reporting GC activity and allocation rate per operation.
+ * <p>
+ * Arguments, all optional and possibly empty:
+ * <ol>
+ * <li>directory for the JSON results, one {@code jmh-threads-N.json} file per thread count
+ *     ({@code build/reports/jmh})
+ * <li>comma separated thread counts ({@code 1} and the number of processors)
+ * <li>regular expression selecting benchmarks (all of them)
+ * </ol>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    public static void main(String [] args) throws RunnerException {
+        File resultDir = new File(argument(args, 0, "build/reports/jmh"));
+        String threads = argument(args, 1, "1," + Runtime.getRuntime().availableProcessors());
+        String include = argument(args, 2, BenchmarkRunner.class.getPackage().getName() + ".*");
+
+        if(!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create result directory " + resultDir);
+        }
+        for(int n : Arrays.stream(threads.split(",")).map(String::trim).mapToInt(Integer::parseInt).distinct().toArray()) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(n)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "jmh-threads-" + n + ".json").getPath());
+
+            new Runner(options.build()).run();
+        }
+    }
+
+    private static String argument(String [] args, int index, String defaultValue) {
+        return index < args.length && !args[index].trim().isEmpty() ? args[index] : defaultValue;
+    }
+}
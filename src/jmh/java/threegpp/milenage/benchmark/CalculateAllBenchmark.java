@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import threegpp.milenage.AsyncExecutors;
+import threegpp.milenage.ExecutionPolicy;
+import threegpp.milenage.MilenageResult;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>CalculateAllBenchmark</h1>
+ * <p>
+ * Throughput of calculation of all Milenage functions at once, inline and with different executors.
+ * <p>
+ * The default {@link ExecutionPolicy} calculates single requests of factories with scratch buffers
+ * on the calling thread, so executors are benchmarked with the policy forced to fan out as well.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculateAllBenchmark {
+
+    private static final int POOL_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Executor used by {@link threegpp.milenage.Milenage#calculateAll(byte[], byte[], byte[], ExecutorService)}
+     * and {@link ExecutionPolicy.Mode} deciding whether it is used at all.
+     */
+    @State(Scope.Benchmark)
+    public static class ExecutorState {
+
+        @Param({"inline", "fixed", "cached", "fork-join", "default"})
+        public String executor;
+
+        @Param({"fan-out", "adaptive"})
+        public String mode;
+
+        public ExecutorService service;
+
+        @Setup
+        public void setUp(MilenageState state) {
+            switch(mode) {
+                case "fan-out":
+                    state.milenage.setExecutionPolicy(new ExecutionPolicy(ExecutionPolicy.Mode.FAN_OUT,
+                            ExecutionPolicy.DEFAULT_MIN_PARALLEL_BATCH));
+                    break;
+                case "adaptive":
+                    state.milenage.setExecutionPolicy(ExecutionPolicy.getDefault());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown execution mode: " + mode);
+            }
+            switch(executor) {
+                case "inline":
+                    break;
+                case "fixed":
+                    service = Executors.newFixedThreadPool(POOL_THREADS);
+                    break;
+                case "cached":
+                    service = Executors.newCachedThreadPool();
+                    break;
+                case "fork-join":
+                    service = new ForkJoinPool(POOL_THREADS);
+                    break;
+                case "default":
+                    service = AsyncExecutors.getDefault();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown executor: " + executor);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            if(service != null && service != AsyncExecutors.getDefault()) {
+                service.shutdownNow();
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<MilenageResult, byte []> calculateAll(MilenageState state, ExecutorState executor)
+            throws InterruptedException, ExecutionException {
+        return executor.service == null ? state.milenage.calculateAll(state.rand, state.sqn, state.amf)
+                                        : state.milenage.calculateAll(state.rand, state.sqn, state.amf, executor.service);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import threegpp.milenage.MilenageResult;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>MilenageBenchmark</h1>
+ * <p>
+ * Throughput of OPc calculation and of each Milenage function.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MilenageBenchmark {
+
+    @Benchmark
+    public byte [] calculateOPc(MilenageState state) {
+        return state.calculateOPc();
+    }
+
+    @Benchmark
+    public Map<MilenageResult, byte []> f1All(MilenageState state) {
+        return state.milenage.f1All(state.rand, state.sqn, state.amf);
+    }
+
+    @Benchmark
+    public Map<MilenageResult, byte []> f2f5(MilenageState state) {
+        return state.milenage.f2f5(state.rand);
+    }
+
+    @Benchmark
+    public byte [] f3(MilenageState state) {
+        return state.milenage.f3(state.rand);
+    }
+
+    @Benchmark
+    public byte [] f4(MilenageState state) {
+        return state.milenage.f4(state.rand);
+    }
+
+    @Benchmark
+    public byte [] f5Star(MilenageState state) {
+        return state.milenage.f5Star(state.rand);
+    }
+}
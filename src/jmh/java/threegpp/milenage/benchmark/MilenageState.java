@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import threegpp.milenage.CConstants;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageBuffer;
+import threegpp.milenage.MilenageBufferFactory;
+import threegpp.milenage.RConstants;
+import threegpp.milenage.biginteger.BigIntegerBufferFactory;
+import threegpp.milenage.cipher.BlockEngine;
+import threegpp.milenage.cipher.CipherProvider;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.security.SecureRandom;
+
+/**
+ * <h1>MilenageState</h1>
+ * <p>
+ * {@link Milenage} object shared by all benchmark threads, built for every combination of
+ * {@link MilenageBufferFactory} and cipher implementation.
+ * <p>
+ * Cipher implementations:
+ * <ul>
+ * <li>{@code shared} - a single {@link javax.crypto.Cipher} under a lock
+ * <li>{@code thread-local} - per-thread ciphers
+ * <li>{@code pooled} - a bounded pool of ciphers
+ * <li>{@code block-engine} - {@link BlockEngine} adapting per-thread ciphers
+ * <li>{@code aes} - pure Java {@link threegpp.milenage.cipher.AesEngine}
+ * </ul>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+@State(Scope.Benchmark)
+public class MilenageState {
+
+    private static final int POOL_SIZE = 64;
+
+    @Param({"biginteger", "primitive"})
+    public String factory;
+
+    @Param({"shared", "thread-local", "pooled", "block-engine", "aes"})
+    public String cipher;
+
+    public byte [] op;
+    public byte [] rand;
+    public byte [] sqn;
+    public byte [] amf;
+    public Milenage<?> milenage;
+
+    private MilenageBufferFactory<?> bufferFactory;
+    private CipherProvider provider;
+    private BlockEngine engine;
+
+    @Setup
+    public void setUp() {
+        SecureRandom random = new SecureRandom();
+        byte [] key = new byte [Milenage.BLOCK_LEN_BYTES];
+
+        op = new byte [Milenage.BLOCK_LEN_BYTES];
+        rand = new byte [Milenage.BLOCK_LEN_BYTES];
+        sqn = new byte [Milenage.SQN_LEN_BYTES];
+        amf = new byte [Milenage.AMF_LEN_BYTES];
+        random.nextBytes(key);
+        random.nextBytes(op);
+        random.nextBytes(rand);
+        random.nextBytes(sqn);
+        random.nextBytes(amf);
+
+        switch(factory) {
+            case "biginteger":
+                bufferFactory = BigIntegerBufferFactory.getInstance();
+                break;
+            case "primitive":
+                bufferFactory = PrimitiveBufferFactory.getInstance();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown buffer factory: " + factory);
+        }
+        switch(cipher) {
+            case "shared":
+                provider = Ciphers.createSharedCipherProvider(Ciphers.createRijndaelCipher(key));
+                break;
+            case "thread-local":
+                provider = Ciphers.createRijndaelCipherProvider(key);
+                break;
+            case "pooled":
+                provider = Ciphers.createRijndaelCipherPool(key, POOL_SIZE);
+                break;
+            case "block-engine":
+                engine = Ciphers.createBlockEngine(Ciphers.createRijndaelCipherProvider(key));
+                break;
+            case "aes":
+                engine = Ciphers.createRijndaelEngine(key);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cipher implementation: " + cipher);
+        }
+        milenage = create(bufferFactory);
+    }
+
+    /**
+     * @return  OPc calculated with the configured buffer factory and cipher.
+     */
+    public byte [] calculateOPc() {
+        return engine != null ? Milenage.calculateOPc(op, engine, bufferFactory)
+                              : Milenage.calculateOPc(op, provider, bufferFactory);
+    }
+
+    private <B extends MilenageBuffer> Milenage<B> create(MilenageBufferFactory<B> factory) {
+        byte [] opc = calculateOPc();
+        CConstants<B> c = new CConstants<>(factory);
+        RConstants r = new RConstants();
+
+        return engine != null ? new Milenage<>(opc, engine, c, r, factory)
+                              : new Milenage<>(opc, provider, c, r, factory);
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>AsyncExecutors</h1>
+ * <p>
+ * Executors used by the asynchronous {@link Milenage} API.
+ * <p>
+ * Scratch buffers of the fused calculation, of {@link threegpp.milenage.aka} generators and
+ * ciphers of {@link threegpp.milenage.cipher.ThreadLocalCipherProvider} are kept per thread.
+ * The default executor is therefore a bounded pool of platform threads, so they are created
+ * once per thread and then reused by every task. A virtual-thread-per-task executor can still be
+ * passed to {@link Milenage#calculateAsync(byte[], byte[], byte[], java.util.concurrent.Executor)},
+ * but each task then runs on a fresh thread and builds all of them again.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class AsyncExecutors {
+
+    private static final ExecutorService DEFAULT = createDefault();
+
+    private static final ScheduledExecutorService TIMER = createTimer();
+
+    private AsyncExecutors() {
+    }
+
+    /**
+     * Returns the default executor of asynchronous calculations.
+     * <p>
+     * It is a fixed pool of daemon platform threads, one per available processor but at least two.
+     * Calculations never block, so a deadline-bound request waits in the queue of the pool
+     * rather than parking a thread.
+     *
+     * @return  Shared {@link ExecutorService} object, it must not be shut down.
+     */
+    public static ExecutorService getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Completes the future with {@link TimeoutException} unless it is completed before the deadline.
+     *
+     * @param future  Future to watch.
+     * @param timeout  Time to wait.
+     * @param unit  Unit of {@code timeout}.
+     * @param <T>  Type of the result.
+     * @return  The {@code future} itself.
+     */
+    public static <T> CompletableFuture<T> withDeadline(final CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        if(future.isDone()) {
+            return future;
+        }
+        final ScheduledFuture<?> timer = TIMER.schedule(
+                () -> future.completeExceptionally(new TimeoutException("Milenage calculation deadline exceeded")),
+                timeout, unit);
+
+        future.whenComplete((result, error) -> timer.cancel(false));
+        return future;
+    }
+
+    private static ExecutorService createDefault() {
+        final AtomicInteger counter = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "milenage-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ScheduledExecutorService createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "milenage-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+
+        return timer;
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h1>ExecutionPolicy</h1>
+ * <p>
+ * Decides whether {@link Milenage} calls taking an {@link ExecutorService} run on the calling
+ * thread or are spread over the executor.
+ * <p>
+ * A single vector takes a few microseconds to calculate, which is comparable to the cost of
+ * handing tasks over to an executor and waiting for their futures. Therefore in
+ * {@link Mode#ADAPTIVE} mode (the default) a single request is calculated on the calling thread,
+ * fused where the buffer factory allows it, and is fanned out only when OUT blocks are expensive
+ * to calculate (non-mutable buffers), the executor has idle threads and no other request is in
+ * progress. Batches are split across the executor (one task per slice of vectors, not per OUT
+ * block) when they are large enough and the executor has idle threads.
+ * <p>
+ * One policy object can be shared by many {@link Milenage} instances, so that load is tracked
+ * for all of them. Decisions are counted and can be read to verify what was chosen.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class ExecutionPolicy {
+
+    /**
+     * Execution mode.
+     */
+    public enum Mode {
+        /**
+         * Always calculate on the calling thread.
+         */
+        INLINE,
+        /**
+         * Always use the executor: one task per OUT block for a single request, one task per
+         * slice for a batch.
+         */
+        FAN_OUT,
+        /**
+         * Decide on every call based on the executor load and the amount of work.
+         */
+        ADAPTIVE
+    }
+
+    public static final int DEFAULT_MIN_PARALLEL_BATCH = 64;
+
+    private static final ExecutionPolicy DEFAULT = new ExecutionPolicy(Mode.ADAPTIVE, DEFAULT_MIN_PARALLEL_BATCH);
+
+    private final Mode mode;
+    private final int minParallelBatch;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong inline = new AtomicLong();
+    private final AtomicLong fannedOut = new AtomicLong();
+    private final AtomicLong batchesInline = new AtomicLong();
+    private final AtomicLong batchesParallel = new AtomicLong();
+
+    /**
+     * @param mode  Execution mode.
+     * @param minParallelBatch  Minimal number of vectors in a batch worth splitting across the executor.
+     */
+    public ExecutionPolicy(Mode mode, int minParallelBatch) {
+        if(minParallelBatch <= 0) {
+            throw new IllegalArgumentException("Invalid minimal parallel batch: " + minParallelBatch);
+        }
+        this.mode = mode;
+        this.minParallelBatch = minParallelBatch;
+    }
+
+    /**
+     * @return  Shared adaptive policy used by {@link Milenage} unless another one is set.
+     */
+    public static ExecutionPolicy getDefault() {
+        return DEFAULT;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getMinParallelBatch() {
+        return minParallelBatch;
+    }
+
+    /**
+     * @return  Number of single requests calculated on the calling thread.
+     */
+    public long getInlineCount() {
+        return inline.get();
+    }
+
+    /**
+     * @return  Number of single requests fanned out to the executor.
+     */
+    public long getFanOutCount() {
+        return fannedOut.get();
+    }
+
+    /**
+     * @return  Number of batches calculated on the calling thread.
+     */
+    public long getInlineBatchCount() {
+        return batchesInline.get();
+    }
+
+    /**
+     * @return  Number of batches split across the executor.
+     */
+    public long getParallelBatchCount() {
+        return batchesParallel.get();
+    }
+
+    /**
+     * @return  Number of requests being calculated at the moment.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Marks the beginning of a request, must be paired with {@link #leave()}.
+     */
+    void enter() {
+        inFlight.incrementAndGet();
+    }
+
+    void leave() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Decides how to calculate a single request, must be called between {@link #enter()} and
+     * {@link #leave()}.
+     *
+     * @param executor  Executor passed by the caller.
+     * @param fused  Whether the request can be calculated with fused scratch buffers.
+     * @return  {@code true} if OUT blocks are to be calculated by executor tasks.
+     */
+    boolean fanOut(ExecutorService executor, boolean fused) {
+        boolean decision;
+
+        switch(mode) {
+            case INLINE:
+                decision = false;
+                break;
+            case FAN_OUT:
+                decision = true;
+                break;
+            default:
+                decision = !fused && inFlight.get() <= 1 && idleThreads(executor) >= Constants.CONST_NUM;
+        }
+        (decision ? fannedOut : inline).incrementAndGet();
+
+        return decision;
+    }
+
+    /**
+     * Decides how many slices a batch is split into.
+     *
+     * @param executor  Executor passed by the caller.
+     * @param vectors  Number of vectors in the batch.
+     * @return  Number of executor tasks, 1 means the batch is calculated on the calling thread.
+     */
+    int slices(ExecutorService executor, int vectors) {
+        int slices;
+
+        switch(mode) {
+            case INLINE:
+                slices = 1;
+                break;
+            case FAN_OUT:
+                slices = Math.min(vectors, Runtime.getRuntime().availableProcessors());
+                break;
+            default:
+                slices = vectors < minParallelBatch
+                        ? 1
+                        : Math.min(vectors / minParallelBatch + 1, idleThreads(executor));
+        }
+        slices = Math.max(1, slices);
+        (slices > 1 ? batchesParallel : batchesInline).incrementAndGet();
+
+        return slices;
+    }
+
+    /**
+     * Estimates number of idle executor threads.
+     * <p>
+     * Exact numbers are known for {@link ThreadPoolExecutor} and {@link ForkJoinPool}, other
+     * executors are assumed to have a thread per available processor.
+     */
+    private static int idleThreads(ExecutorService executor) {
+        if(executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+
+            if(!pool.getQueue().isEmpty()) {
+                return 0;
+            }
+            return pool.getMaximumPoolSize() - pool.getActiveCount();
+        }
+        if(executor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executor;
+
+            if(pool.hasQueuedSubmissions()) {
+                return 0;
+            }
+            return pool.getParallelism() - pool.getActiveThreadCount();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
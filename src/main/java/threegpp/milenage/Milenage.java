@@ -18,15 +18,28 @@
  */
 package threegpp.milenage;
 
+import threegpp.milenage.cipher.BlockEngine;
+import threegpp.milenage.cipher.CipherProvider;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.metrics.Metric;
+import threegpp.milenage.metrics.MilenageMetrics;
+
 import javax.crypto.Cipher;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <h1>Milenage</h1>
@@ -49,11 +62,19 @@ public class Milenage<B extends MilenageBuffer> {
     public static final short AK_LEN_BYTES = SQN_LEN_BYTES;
     public static final short AMF_LEN_BYTES = 2;
 
+    private static final int OUT_OFFSET = MilenageCore.OUT_OFFSET;
+
+    private static final MilenageResult [] RESULTS = MilenageResult.values();
+    private static final int ALL_RESULTS = (1 << RESULTS.length) - 1;
+
     private final B opc;
-    private final Cipher key;
+    private final BlockEngine key;
     private final CConstants<B> c;
     private final RConstants r;
     private final MilenageBufferFactory<B> factory;
+    private final MutableMilenageBufferFactory<?> scratchFactory;
+    private volatile ExecutionPolicy executionPolicy = ExecutionPolicy.getDefault();
+    private volatile MilenageMetrics metrics = MilenageMetrics.disabled();
 
     /**
      * Creates OPc from OP and K
@@ -73,8 +94,49 @@ public class Milenage<B extends MilenageBuffer> {
         return opBuffer.encrypt(k).xor(opBuffer).toBytes();
     }
 
+    /**
+     * Creates OPc from OP and K
+     * <p>
+     * OPC = OP ⊕ E[OP]K
+     * <p>
+     * @param op  Operator Variant Algorithm Configuration Field (128 bit)
+     * @param k  {@link CipherProvider} object representing the Subscriber Key
+     * @param <B>  The type used by {@link MilenageBufferFactory} implementation
+     * @return  Array of bytes representing calculated OPc value
+     */
+    public static <B extends MilenageBuffer> byte [] calculateOPc(
+            final byte [] op, final CipherProvider k, MilenageBufferFactory<B> factory) {
+        Cipher cipher = k.acquire();
+        try {
+            return calculateOPc(op, cipher, factory);
+
+        } finally {
+            k.release(cipher);
+        }
+    }
+
+    /**
+     * Creates OPc from OP and K
+     * <p>
+     * OPC = OP ⊕ E[OP]K
+     * <p>
+     * @param op  Operator Variant Algorithm Configuration Field (128 bit)
+     * @param k  {@link BlockEngine} object representing the Subscriber Key
+     * @param <B>  The type used by {@link MilenageBufferFactory} implementation
+     * @return  Array of bytes representing calculated OPc value
+     */
+    public static <B extends MilenageBuffer> byte [] calculateOPc(
+            final byte [] op, final BlockEngine k, MilenageBufferFactory<B> factory) {
+        B opBuffer = factory.create(op);
+        return opBuffer.encrypt(k).xor(opBuffer).toBytes();
+    }
+
     /**
      * Constructor
+     * <p>
+     * The {@link Cipher} object is shared between threads under a lock, use
+     * {@link #Milenage(byte[], CipherProvider, CConstants, RConstants, MilenageBufferFactory)}
+     * with a per-thread or pooled {@link CipherProvider} for concurrent calculations.
      *
      * @param OPc  Byte array containing previously calculated OPc value (OPc = OP⊕E[OP]K)
      * @param k  {@link javax.crypto.Cipher} representing the encryption key (K)
@@ -86,13 +148,62 @@ public class Milenage<B extends MilenageBuffer> {
                     CConstants<B> cConstants,
                     RConstants rConstants,
                     MilenageBufferFactory<B> bufferFactory) {
-        validateCipherOrThrowException(k);
+        this(OPc, share(k), cConstants, rConstants, bufferFactory);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param OPc  Byte array containing previously calculated OPc value (OPc = OP⊕E[OP]K)
+     * @param k  {@link CipherProvider} representing the encryption key (K)
+     * @param cConstants  Block of C constants (C1...C5)
+     * @param rConstants  Block of R constants (R1...R5)
+     * @param bufferFactory  {@link MilenageBufferFactory} object for creating {@link MilenageBuffer} instances.
+     */
+    public Milenage(byte [] OPc, CipherProvider k,
+                    CConstants<B> cConstants,
+                    RConstants rConstants,
+                    MilenageBufferFactory<B> bufferFactory) {
+        this(OPc, adapt(k), cConstants, rConstants, bufferFactory);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param OPc  Byte array containing previously calculated OPc value (OPc = OP⊕E[OP]K)
+     * @param k  {@link BlockEngine} representing the encryption key (K)
+     * @param cConstants  Block of C constants (C1...C5)
+     * @param rConstants  Block of R constants (R1...R5)
+     * @param bufferFactory  {@link MilenageBufferFactory} object for creating {@link MilenageBuffer} instances.
+     */
+    public Milenage(byte [] OPc, BlockEngine k,
+                    CConstants<B> cConstants,
+                    RConstants rConstants,
+                    MilenageBufferFactory<B> bufferFactory) {
+        this(bufferFactory.create(OPc), k, cConstants, rConstants, bufferFactory);
+    }
 
-        opc = bufferFactory.create(OPc);
+    /**
+     * Constructor taking OPc as a ready buffer, e.g. read from a memory-mapped credential store
+     * without an intermediate byte array.
+     *
+     * @param OPc  Buffer containing previously calculated OPc value (OPc = OP⊕E[OP]K)
+     * @param k  {@link BlockEngine} representing the encryption key (K)
+     * @param cConstants  Block of C constants (C1...C5)
+     * @param rConstants  Block of R constants (R1...R5)
+     * @param bufferFactory  {@link MilenageBufferFactory} object for creating {@link MilenageBuffer} instances.
+     */
+    public Milenage(B OPc, BlockEngine k,
+                    CConstants<B> cConstants,
+                    RConstants rConstants,
+                    MilenageBufferFactory<B> bufferFactory) {
+        opc = OPc;
         key = k;
         c = cConstants;
         r = rConstants;
         factory = bufferFactory;
+        scratchFactory = bufferFactory instanceof MutableMilenageBufferFactory
+                ? (MutableMilenageBufferFactory<?>) bufferFactory : null;
     }
 
     /**
@@ -126,6 +237,68 @@ public class Milenage<B extends MilenageBuffer> {
         this(OPc, k, new CConstants<>(bufferFactory), new RConstants(), bufferFactory);
     }
 
+    /**
+     * Constructor
+     *
+     * @param OPc  Byte array containing previously calculated OPc value (OPc = OP⊕E[OP]K)
+     * @param k  {@link CipherProvider} representing the encryption key (K)
+     * @param c1  C1 constant represented as an array of bytes
+     * @param c2  C2 constant represented as an array of bytes
+     * @param c3  C3 constant represented as an array of bytes
+     * @param c4  C4 constant represented as an array of bytes
+     * @param c5  C5 constant represented as an array of bytes
+     * @param rConstants  Block of R constants (R1...R5)
+     * @param bufferFactory  {@link MilenageBufferFactory} object for creating {@link MilenageBuffer} instances.
+     */
+    public Milenage(byte [] OPc, CipherProvider k,
+                    byte [] c1, byte [] c2, byte [] c3, byte [] c4, byte [] c5,
+                    RConstants rConstants,
+                    MilenageBufferFactory<B> bufferFactory) {
+        this(OPc, k, new CConstants<>(c1, c2, c3, c4, c5, bufferFactory), rConstants, bufferFactory);
+    }
+
+    /**
+     * Constructor creating Milenage with sample constants given in 3GPP TS 35.206
+     *
+     * @param OPc  Byte array containing previously calculated OPc value (OPc = OP⊕E[OP]K)
+     * @param k  {@link CipherProvider} representing the encryption key (K)
+     * @param bufferFactory  {@link MilenageBufferFactory} object for creating {@link MilenageBuffer} instances.
+     */
+    public Milenage(byte [] OPc, CipherProvider k, MilenageBufferFactory<B> bufferFactory) {
+        this(OPc, k, new CConstants<>(bufferFactory), new RConstants(), bufferFactory);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param OPc  Byte array containing previously calculated OPc value (OPc = OP⊕E[OP]K)
+     * @param k  {@link BlockEngine} representing the encryption key (K)
+     * @param c1  C1 constant represented as an array of bytes
+     * @param c2  C2 constant represented as an array of bytes
+     * @param c3  C3 constant represented as an array of bytes
+     * @param c4  C4 constant represented as an array of bytes
+     * @param c5  C5 constant represented as an array of bytes
+     * @param rConstants  Block of R constants (R1...R5)
+     * @param bufferFactory  {@link MilenageBufferFactory} object for creating {@link MilenageBuffer} instances.
+     */
+    public Milenage(byte [] OPc, BlockEngine k,
+                    byte [] c1, byte [] c2, byte [] c3, byte [] c4, byte [] c5,
+                    RConstants rConstants,
+                    MilenageBufferFactory<B> bufferFactory) {
+        this(OPc, k, new CConstants<>(c1, c2, c3, c4, c5, bufferFactory), rConstants, bufferFactory);
+    }
+
+    /**
+     * Constructor creating Milenage with sample constants given in 3GPP TS 35.206
+     *
+     * @param OPc  Byte array containing previously calculated OPc value (OPc = OP⊕E[OP]K)
+     * @param k  {@link BlockEngine} representing the encryption key (K)
+     * @param bufferFactory  {@link MilenageBufferFactory} object for creating {@link MilenageBuffer} instances.
+     */
+    public Milenage(byte [] OPc, BlockEngine k, MilenageBufferFactory<B> bufferFactory) {
+        this(OPc, k, new CConstants<>(bufferFactory), new RConstants(), bufferFactory);
+    }
+
     /**
      * Calculates result of Milenage functions f1 and f1*
      * <p>
@@ -140,10 +313,17 @@ public class Milenage<B extends MilenageBuffer> {
      *          {@link MilenageResult#MAC_S} accordingly.
      */
     public Map<MilenageResult, byte []> f1All(byte [] rand, byte [] sqn, byte [] amf) {
+        MilenageMetrics m = metrics;
+        long allocation = m.startAllocation();
+        long start = m.start();
+
         B randBuffer = factory.create(rand);
         B in1Buffer = factory.create(sqn, amf);
+        Map<MilenageResult, byte []> result = makeF1Result(out1(temp(randBuffer), in1Buffer));
 
-        return makeF1Result(out1(temp(randBuffer), in1Buffer));
+        m.stop(Metric.F1_ALL, start);
+        m.stopAllocation(Metric.F1_ALL, allocation);
+        return result;
     }
 
     /**
@@ -158,9 +338,16 @@ public class Milenage<B extends MilenageBuffer> {
      *          {@link MilenageResult#AK} accordingly.
      */
     public Map<MilenageResult, byte []> f2f5(byte [] rand) {
+        MilenageMetrics m = metrics;
+        long allocation = m.startAllocation();
+        long start = m.start();
+
         B randBuffer = factory.create(rand);
+        Map<MilenageResult, byte []> result = makeF2F5Result(outX(temp(randBuffer), 1));
 
-        return makeF2F5Result(outX(temp(randBuffer), 1));
+        m.stop(Metric.F2_F5, start);
+        m.stopAllocation(Metric.F2_F5, allocation);
+        return result;
     }
 
     /**
@@ -172,7 +359,15 @@ public class Milenage<B extends MilenageBuffer> {
      * @return  Buffer containing CK value
      */
     public byte[] f3(byte [] rand) {
-        return outX(temp(factory.create(rand)), 2).toBytes();
+        MilenageMetrics m = metrics;
+        long allocation = m.startAllocation();
+        long start = m.start();
+
+        byte [] result = outX(temp(factory.create(rand)), 2).toBytes();
+
+        m.stop(Metric.F3, start);
+        m.stopAllocation(Metric.F3, allocation);
+        return result;
     }
 
     /**
@@ -184,7 +379,15 @@ public class Milenage<B extends MilenageBuffer> {
      * @return  Buffer containing IK value
      */
     public byte [] f4(byte [] rand) {
-        return outX(temp(factory.create(rand)), 3).toBytes();
+        MilenageMetrics m = metrics;
+        long allocation = m.startAllocation();
+        long start = m.start();
+
+        byte [] result = outX(temp(factory.create(rand)), 3).toBytes();
+
+        m.stop(Metric.F4, start);
+        m.stopAllocation(Metric.F4, allocation);
+        return result;
     }
 
     /**
@@ -196,13 +399,36 @@ public class Milenage<B extends MilenageBuffer> {
      * @return  Buffer containing resynch AK value
      */
     public byte [] f5Star(byte [] rand) {
-        return makeF5StarResult(outX(temp(factory.create(rand)), 4));
+        MilenageMetrics m = metrics;
+        long allocation = m.startAllocation();
+        long start = m.start();
+
+        byte [] result = makeF5StarResult(outX(temp(factory.create(rand)), 4));
+
+        m.stop(Metric.F5_STAR, start);
+        m.stopAllocation(Metric.F5_STAR, allocation);
+        return result;
+    }
+
+    /**
+     * Creates a context bound to the RAND value.
+     * <p>
+     * TEMP is calculated once when the context is created, functions called on the context then
+     * cost a single block encryption each instead of two.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @return  {@link RandContext} object
+     */
+    public RandContext forRand(byte [] rand) {
+        return new RandContext(temp(factory.create(rand)));
     }
 
     /**
      * Calculates all the Milenage function values.
      * <p>
-     * Calculation can be performed synchronously or asynchronously.
+     * Calculation can be performed synchronously or asynchronously, the choice is made by the
+     * {@link ExecutionPolicy}. By default the values are calculated on the calling thread unless
+     * the buffer factory makes OUT blocks expensive and the executor is idle.
      *
      * @param rand  Random value generated by the network (RAND)
      * @param sqn  A 48-bit SQN value
@@ -215,6 +441,26 @@ public class Milenage<B extends MilenageBuffer> {
      */
     public Map<MilenageResult, byte []> calculateAll(byte [] rand, byte [] sqn, byte [] amf, ExecutorService executor)
                                 throws InterruptedException, ExecutionException {
+        ExecutionPolicy policy = executionPolicy;
+
+        policy.enter();
+        try {
+            if(policy.fanOut(executor, null != scratchFactory)) {
+                return fanOut(rand, sqn, amf, executor);
+            }
+            return calculateAll(rand, sqn, amf);
+
+        } finally {
+            policy.leave();
+        }
+    }
+
+    private Map<MilenageResult, byte []> fanOut(byte [] rand, byte [] sqn, byte [] amf, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        MilenageMetrics m = metrics;
+        long allocation = m.startAllocation();
+        long start = m.start();
+
         B tmp = temp(factory.create(rand));
 
         List<Callable<B>> routines = new ArrayList<>();
@@ -224,18 +470,517 @@ public class Milenage<B extends MilenageBuffer> {
         for(int i: indexes) {
             routines.add(getOUTXCallable(tmp, i));
         }
+        long wait = m.start();
         List<Future<B>> futures =  executor.invokeAll(routines);
-        Map<MilenageResult, byte []> result = new HashMap<>(Constants.CONST_NUM);
+        m.stop(Metric.EXECUTOR_WAIT, wait);
+
+        Map<MilenageResult, byte []> result = makeAllResult(futures.get(0).get(), futures.get(1).get(),
+                futures.get(2).get(), futures.get(3).get(), futures.get(4).get());
+
+        m.stop(Metric.CALCULATE_ALL, start);
+        m.stopAllocation(Metric.CALCULATE_ALL, allocation);
+        return result;
+    }
+
+    /**
+     * Calculates all the Milenage function values asynchronously on the
+     * {@link AsyncExecutors#getDefault() default executor}.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @return  Future of the {@link MilenageOutput}, cancelling it before the calculation starts
+     *          prevents the calculation.
+     */
+    public CompletableFuture<MilenageOutput> calculateAsync(byte [] rand, byte [] sqn, byte [] amf) {
+        return calculateAsync(rand, sqn, amf, AsyncExecutors.getDefault());
+    }
+
+    /**
+     * Calculates all the Milenage function values asynchronously.
+     * <p>
+     * The calling thread never blocks: the whole vector is calculated by a single task of
+     * {@code executor}, no checked exceptions are thrown, failures complete the future exceptionally.
+     * Per-thread scratch buffers are only reused if the executor reuses its threads, see
+     * {@link AsyncExecutors}.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @param executor  {@link Executor} running the calculation.
+     * @return  Future of the {@link MilenageOutput}, cancelling it before the calculation starts
+     *          prevents the calculation.
+     */
+    public CompletableFuture<MilenageOutput> calculateAsync(final byte [] rand, final byte [] sqn, final byte [] amf,
+                                                            Executor executor) {
+        final CompletableFuture<MilenageOutput> future = new CompletableFuture<>();
 
-        result.putAll(makeF1Result(futures.get(0).get()));
-        result.putAll(makeF2F5Result(futures.get(1).get()));
-        result.put(MilenageResult.CK, futures.get(2).get().toBytes());
-        result.put(MilenageResult.IK, futures.get(3).get().toBytes());
-        result.put(MilenageResult.AK_R, makeF5StarResult(futures.get(4).get()));
+        try {
+            executor.execute(() -> {
+                if(future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(calculateOutput(rand, sqn, amf));
 
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Calculates all the Milenage function values asynchronously within a deadline.
+     * <p>
+     * If the vector is not ready in time the future completes exceptionally with
+     * {@link java.util.concurrent.TimeoutException} and a calculation which has not started yet is skipped.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @param executor  {@link Executor} running the calculation.
+     * @param timeout  Time the caller is ready to wait.
+     * @param unit  Unit of {@code timeout}.
+     * @return  Future of the {@link MilenageOutput}.
+     */
+    public CompletableFuture<MilenageOutput> calculateAsync(byte [] rand, byte [] sqn, byte [] amf,
+                                                            Executor executor, long timeout, TimeUnit unit) {
+        return AsyncExecutors.withDeadline(calculateAsync(rand, sqn, amf, executor), timeout, unit);
+    }
+
+    /**
+     * Calculates all the Milenage function values synchronously on the calling thread.
+     * <p>
+     * If the buffer factory is a {@link MutableMilenageBufferFactory} all intermediate values are
+     * kept in per-thread scratch buffers, so nothing but the result is allocated, and OUT1 ... OUT5
+     * are encrypted with a single multi-block call of the {@link BlockEngine}.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @return  Map containing results of f1, f1*, f2, f3, f4, f5, f5* marked with appropriate
+     *          key from {@link MilenageResult} enum.
+     */
+    public Map<MilenageResult, byte []> calculateAll(byte [] rand, byte [] sqn, byte [] amf) {
+        return calculateOutput(rand, sqn, amf).toMap();
+    }
+
+    /**
+     * Calculates all the Milenage function values synchronously on the calling thread.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @return  {@link MilenageOutput} containing results of f1, f1*, f2, f3, f4, f5, f5*.
+     * @see #calculateAll(byte[], byte[], byte[])
+     */
+    public MilenageOutput calculateOutput(byte [] rand, byte [] sqn, byte [] amf) {
+        MilenageOutput result = new MilenageOutput();
+
+        calculateAll(rand, sqn, amf, result.getData(), 0);
         return result;
     }
 
+    /**
+     * Calculates all the Milenage function values synchronously on the calling thread
+     * storing them into a {@link MilenageOutput} object.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @param out  {@link MilenageOutput} receiving results of f1, f1*, f2, f3, f4, f5, f5*.
+     */
+    public void calculateAll(byte [] rand, byte [] sqn, byte [] amf, MilenageOutput out) {
+        calculateAll(rand, sqn, amf, out.getData(), out.getOffset());
+    }
+
+    /**
+     * Calculates all the Milenage function values synchronously on the calling thread
+     * storing them into an array in the layout of {@link MilenageOutput}.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @param dst  Destination array.
+     * @param offset  Position inside {@code dst}, {@link MilenageOutput#LENGTH} bytes are written.
+     */
+    public void calculateAll(byte [] rand, byte [] sqn, byte [] amf, byte [] dst, int offset) {
+        MilenageMetrics m = metrics;
+        long allocation = m.startAllocation();
+        long start = m.start();
+
+        calculate(ALL_RESULTS, rand, sqn, amf, dst, offset);
+
+        m.stop(Metric.CALCULATE_ALL, start);
+        m.stopAllocation(Metric.CALCULATE_ALL, allocation);
+    }
+
+    /**
+     * Calculates only the requested Milenage function values.
+     * <p>
+     * TEMP is calculated once and only the OUT blocks the requested values depend on are encrypted,
+     * e.g. {@link MilenageResult#AK_R} and {@link MilenageResult#MAC_S} cost three block encryptions
+     * (TEMP, OUT1, OUT5) instead of six.
+     *
+     * @param results  Set of values to calculate.
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value, may be {@code null} if neither MAC-A nor MAC-S is requested.
+     * @param amf  A 16-bit AMF value, may be {@code null} if neither MAC-A nor MAC-S is requested.
+     * @return  {@link MilenageOutput} containing requested values, others are zero.
+     */
+    public MilenageOutput calculate(EnumSet<MilenageResult> results, byte [] rand, byte [] sqn, byte [] amf) {
+        MilenageOutput out = new MilenageOutput();
+
+        calculate(results, rand, sqn, amf, out.getData(), 0);
+        return out;
+    }
+
+    /**
+     * Calculates only the requested Milenage function values storing them into an array
+     * in the layout of {@link MilenageOutput}.
+     *
+     * @param results  Set of values to calculate.
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value, may be {@code null} if neither MAC-A nor MAC-S is requested.
+     * @param amf  A 16-bit AMF value, may be {@code null} if neither MAC-A nor MAC-S is requested.
+     * @param dst  Destination array, positions of values not requested are left intact.
+     * @param offset  Position of the {@link MilenageOutput} layout inside {@code dst}.
+     * @see #calculate(EnumSet, byte[], byte[], byte[])
+     */
+    public void calculate(EnumSet<MilenageResult> results, byte [] rand, byte [] sqn, byte [] amf,
+                          byte [] dst, int offset) {
+        calculate(toMask(results), rand, sqn, amf, dst, offset);
+    }
+
+    /**
+     * @param results  Bit mask of requested values, bit number is {@link MilenageResult#ordinal()}.
+     */
+    private void calculate(int results, byte [] rand, byte [] sqn, byte [] amf, byte [] dst, int offset) {
+        if(offset < 0 || offset + MilenageOutput.LENGTH > dst.length) {
+            throw new IndexOutOfBoundsException("Destination is too small for MilenageOutput");
+        }
+        copyResults(results, calculateOutBlocks(rand, sqn, amf, outBlocks(results)), dst, offset);
+    }
+
+    /**
+     * Copies requested values from OUT blocks into an array in the layout of {@link MilenageOutput}.
+     *
+     * @param results  Bit mask of requested values, bit number is {@link MilenageResult#ordinal()}.
+     * @param out  Array returned by {@link #calculateOutBlocks(byte[], byte[], byte[], int)}.
+     * @param dst  Destination array.
+     * @param offset  Position of the layout inside {@code dst}.
+     */
+    private static void copyResults(int results, byte [] out, byte [] dst, int offset) {
+        for(MilenageResult result: RESULTS) {
+            if((results & (1 << result.ordinal())) != 0) {
+                System.arraycopy(out, outPosition(result), dst, offset + result.getOffset(), result.getLength());
+            }
+        }
+    }
+
+    /**
+     * Calculates all the Milenage function values synchronously on the calling thread
+     * storing them into a buffer in the layout of {@link MilenageOutput}.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @param dst  Destination buffer, {@link MilenageOutput#LENGTH} bytes are written at its
+     *             position which is advanced accordingly.
+     */
+    public void calculateAll(byte [] rand, byte [] sqn, byte [] amf, ByteBuffer dst) {
+        if(dst.remaining() < MilenageOutput.LENGTH) {
+            throw new BufferOverflowException();
+        }
+        if(dst.hasArray()) {
+            calculateAll(rand, sqn, amf, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + MilenageOutput.LENGTH);
+            return;
+        }
+        byte [] out = calculateOutBlocks(rand, sqn, amf, outBlocks(ALL_RESULTS));
+
+        for(MilenageResult result: RESULTS) {
+            dst.put(out, outPosition(result), result.getLength());
+        }
+    }
+
+    /**
+     * Calculates a batch of authentication vectors for the subscriber.
+     * <p>
+     * Vector i is calculated with {@code rands[i]} and the SQN obtained by applying {@code policy}
+     * i times to {@code sqn}. All the vectors are calculated on the calling thread reusing the
+     * same scratch buffers and are stored into the preallocated {@code batch}.
+     *
+     * @param rands  Random values generated by the network (RAND), one per vector.
+     * @param sqn  A 48-bit SQN value of the first vector.
+     * @param policy  Rule producing SQN of the next vector.
+     * @param amf  A 16-bit AMF value used for all the vectors.
+     * @param batch  Destination storage, its capacity must not be less than {@code rands.length}.
+     * @return  A 48-bit SQN value to be used for the vector following the batch.
+     */
+    public long calculateBatch(byte [][] rands, long sqn, SqnPolicy policy, byte [] amf, MilenageBatch batch) {
+        if(rands.length > batch.getCapacity()) {
+            throw new IllegalArgumentException("Batch capacity is less than the number of RAND values");
+        }
+        sqn = assignSqn(rands.length, sqn, policy, batch);
+        calculateBatchRange(rands, amf, batch, 0, rands.length);
+
+        return sqn;
+    }
+
+    /**
+     * Calculates a batch of authentication vectors for the subscriber using the executor.
+     * <p>
+     * The {@link ExecutionPolicy} decides whether the batch is split into slices calculated by
+     * executor tasks or is calculated on the calling thread.
+     *
+     * @param rands  Random values generated by the network (RAND), one per vector.
+     * @param sqn  A 48-bit SQN value of the first vector.
+     * @param policy  Rule producing SQN of the next vector.
+     * @param amf  A 16-bit AMF value used for all the vectors.
+     * @param batch  Destination storage, its capacity must not be less than {@code rands.length}.
+     * @param executor  {@link ExecutorService} object to be used for calculations.
+     * @return  A 48-bit SQN value to be used for the vector following the batch.
+     * @throws InterruptedException  can be thrown by the {@link ExecutorService}
+     * @throws ExecutionException  can be thrown by the {@link ExecutorService}
+     * @see #calculateBatch(byte[][], long, SqnPolicy, byte[], MilenageBatch)
+     */
+    public long calculateBatch(final byte [][] rands, long sqn, SqnPolicy policy, final byte [] amf,
+                               final MilenageBatch batch, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        if(rands.length > batch.getCapacity()) {
+            throw new IllegalArgumentException("Batch capacity is less than the number of RAND values");
+        }
+        sqn = assignSqn(rands.length, sqn, policy, batch);
+
+        ExecutionPolicy execution = executionPolicy;
+        execution.enter();
+        try {
+            int slices = execution.slices(executor, rands.length);
+
+            if(slices == 1) {
+                calculateBatchRange(rands, amf, batch, 0, rands.length);
+                return sqn;
+            }
+            List<Callable<Void>> tasks = new ArrayList<>(slices);
+            for(int i = 0; i < slices; i++) {
+                final int from = (int) ((long) rands.length * i / slices);
+                final int to = (int) ((long) rands.length * (i + 1) / slices);
+
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        calculateBatchRange(rands, amf, batch, from, to);
+                        return null;
+                    }
+                });
+            }
+            for(Future<Void> future: executor.invokeAll(tasks)) {
+                future.get();
+            }
+            return sqn;
+
+        } finally {
+            execution.leave();
+        }
+    }
+
+    /**
+     * Stores SQN values of the vectors into the batch.
+     *
+     * @return  A 48-bit SQN value to be used for the vector following the batch.
+     */
+    private static long assignSqn(int vectors, long sqn, SqnPolicy policy, MilenageBatch batch) {
+        for(int i = 0; i < vectors; i++) {
+            batch.set(i, sqn);
+            sqn = policy.next(sqn);
+        }
+        batch.setSize(vectors);
+
+        return sqn;
+    }
+
+    private void calculateBatchRange(byte [][] rands, byte [] amf, MilenageBatch batch, int from, int to) {
+        byte [] data = batch.getData();
+        byte [] sqnBytes = new byte [SQN_LEN_BYTES];
+        int outBlocks = outBlocks(ALL_RESULTS);
+
+        for(int i = from; i < to; i++) {
+            MilenageBatch.writeSqn(batch.getSqn(i), sqnBytes);
+            copyResults(ALL_RESULTS, calculateOutBlocks(rands[i], sqnBytes, amf, outBlocks),
+                    data, i * MilenageOutput.LENGTH);
+        }
+    }
+
+    /**
+     * @return  {@link ExecutionPolicy} used by calls taking an {@link ExecutorService}.
+     */
+    public ExecutionPolicy getExecutionPolicy() {
+        return executionPolicy;
+    }
+
+    /**
+     * Sets the policy deciding whether calls taking an {@link ExecutorService} use it.
+     *
+     * @param policy  {@link ExecutionPolicy} object, can be shared by many Milenage instances.
+     */
+    public void setExecutionPolicy(ExecutionPolicy policy) {
+        if(null == policy) {
+            throw new NullPointerException("Execution policy is null");
+        }
+        executionPolicy = policy;
+    }
+
+    /**
+     * @return  {@link MilenageMetrics} receiving measurements of this object.
+     */
+    public MilenageMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the receiver of measurements, e.g. a {@link threegpp.milenage.metrics.MetricsRecorder}.
+     * By default {@link MilenageMetrics#disabled()} is used and nothing is measured.
+     *
+     * @param metrics  {@link MilenageMetrics} object, can be shared by many Milenage instances.
+     */
+    public void setMetrics(MilenageMetrics metrics) {
+        if(null == metrics) {
+            throw new NullPointerException("Metrics is null");
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * Calculates OUT1 ... OUT5.
+     *
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @return  Array containing OUT1 ... OUT5 starting at {@link #OUT_OFFSET}, it is a per-thread
+     *          scratch array when the buffer factory supports it.
+     */
+    private byte [] calculateOutBlocks(byte [] rand, byte [] sqn, byte [] amf, int outBlocks) {
+        if(null != scratchFactory) {
+            return calculateFused(scratchFactory.getScratch(), rand, sqn, amf, outBlocks);
+        }
+        return calculateOutBlocks(temp(factory.create(rand)), sqn, amf, outBlocks);
+    }
+
+    /**
+     * Calculates requested OUT blocks from an already known TEMP.
+     *
+     * @param tmp  Intermediate parameter {@link Milenage#temp(MilenageBuffer) TEMP}
+     * @param sqn  A 48-bit SQN value, not used unless OUT1 is requested.
+     * @param amf  A 16-bit AMF value, not used unless OUT1 is requested.
+     * @param outBlocks  Bit mask of requested OUT blocks, bit 0 stands for OUT1.
+     * @return  Array containing OUTn at {@link #OUT_OFFSET} + (n - 1) * {@link #BLOCK_LEN_BYTES}
+     */
+    private byte [] calculateOutBlocks(B tmp, byte [] sqn, byte [] amf, int outBlocks) {
+        if(null != scratchFactory) {
+            return calculateFused(scratchFactory.getScratch(), tmp, sqn, amf, outBlocks);
+        }
+        byte [] out = new byte [OUT_OFFSET * 2];
+
+        if((outBlocks & 1) != 0) {
+            System.arraycopy(out1(tmp, factory.create(sqn, amf)).toBytes(), 0, out, OUT_OFFSET, BLOCK_LEN_BYTES);
+        }
+        for(int i = 1; i < Constants.CONST_NUM; i++) {
+            if((outBlocks & (1 << i)) != 0) {
+                System.arraycopy(outX(tmp, i).toBytes(), 0, out, OUT_OFFSET + i * BLOCK_LEN_BYTES, BLOCK_LEN_BYTES);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param results  Set of values.
+     * @return  Bit mask of values, bit number is {@link MilenageResult#ordinal()}.
+     */
+    private static int toMask(EnumSet<MilenageResult> results) {
+        int mask = 0;
+
+        for(MilenageResult result: RESULTS) {
+            if(results.contains(result)) {
+                mask |= 1 << result.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param results  Bit mask of values, bit number is {@link MilenageResult#ordinal()}.
+     * @return  Bit mask of OUT blocks the values are taken from, bit number is
+     *          {@link MilenageResult#getOutIndex()}.
+     */
+    private static int outBlocks(int results) {
+        int mask = 0;
+
+        for(MilenageResult result: RESULTS) {
+            if((results & (1 << result.ordinal())) != 0) {
+                mask |= 1 << result.getOutIndex();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param result  Type of the value.
+     * @return  Position of the value inside the array returned by
+     *          {@link #calculateOutBlocks(byte[], byte[], byte[], int)}.
+     */
+    private static int outPosition(MilenageResult result) {
+        return OUT_OFFSET + result.getOutIndex() * BLOCK_LEN_BYTES + result.getOutOffset();
+    }
+
+    /**
+     * Calculates TEMP and then requested OUT blocks on scratch buffers.
+     *
+     * @param s  Scratch buffers of the calling thread.
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value, not used unless OUT1 is requested.
+     * @param amf  A 16-bit AMF value, not used unless OUT1 is requested.
+     * @param outBlocks  Bit mask of requested OUT blocks, bit 0 stands for OUT1.
+     * @return  Array containing OUTn at {@link #OUT_OFFSET} + (n - 1) * {@link #BLOCK_LEN_BYTES}
+     */
+    private <T> byte [] calculateFused(MilenageCore.Scratch<T> s, byte [] rand, byte [] sqn, byte [] amf, int outBlocks) {
+        MilenageMetrics m = metrics;
+        long start = m.start();
+        MutableMilenageBuffer<T> tmp = MilenageCore.temp((MilenageBuffer<T>) opc, key, s, rand, 0);
+
+        m.stop(Metric.TEMP, start);
+        return calculateFused(s, tmp, sqn, amf, outBlocks);
+    }
+
+    /**
+     * Calculates requested OUT blocks with a single multi-block encryption.
+     * <p>
+     * OPc and C constants of this object are created by the same factory as the scratch
+     * buffers, so they share the type of buffer data.
+     *
+     * @param s  Scratch buffers of the calling thread.
+     * @param tmp  Intermediate parameter TEMP.
+     * @param sqn  A 48-bit SQN value, not used unless OUT1 is requested.
+     * @param amf  A 16-bit AMF value, not used unless OUT1 is requested.
+     * @param outBlocks  Bit mask of requested OUT blocks, bit 0 stands for OUT1.
+     * @return  Array containing OUTn at {@link #OUT_OFFSET} + (n - 1) * {@link #BLOCK_LEN_BYTES}
+     * @see MilenageCore#outBlocks(MilenageBuffer, BlockEngine, CConstants, RConstants, MilenageCore.Scratch, MilenageBuffer, byte[], byte[], int)
+     */
+    private <T> byte [] calculateFused(MilenageCore.Scratch<T> s, MilenageBuffer<T> tmp,
+                                       byte [] sqn, byte [] amf, int outBlocks) {
+        MilenageMetrics m = metrics;
+        long start = m.start();
+        byte [] blocks = MilenageCore.outBlocks((MilenageBuffer<T>) opc, key,
+                (CConstants<? extends MilenageBuffer<T>>) c, r, s, tmp, sqn, amf, outBlocks);
+
+        m.stop(Metric.OUT_BLOCKS, start);
+        return blocks;
+    }
+
     /**
      * Calculates intermediate parameter TEMP
      * <p>
@@ -245,7 +990,12 @@ public class Milenage<B extends MilenageBuffer> {
      * @return  A buffer containing TEMP value
      */
     private B temp(B rand) {
-        return (B)rand.xor(opc).encrypt(key);
+        MilenageMetrics m = metrics;
+        long start = m.start();
+        B tmp = (B)rand.xor(opc).encrypt(key);
+
+        m.stop(Metric.TEMP, start);
+        return tmp;
     }
 
     /**
@@ -262,13 +1012,18 @@ public class Milenage<B extends MilenageBuffer> {
      * @return  Buffer containing calculated OUT1 value
      */
     private B out1(B tmp, B in1) {
-        return (B)in1
+        MilenageMetrics m = metrics;
+        long start = m.start();
+        B out = (B)in1
                 .xor(opc)
                 .leftCircularBitRotation(r.get(0))
                 .xor(tmp)
                 .xor(c.get(0))
                 .encrypt(key)
                 .xor(opc);
+
+        m.stop(Metric.OUT1, start);
+        return out;
     }
 
     /**
@@ -279,12 +1034,17 @@ public class Milenage<B extends MilenageBuffer> {
      * @return  A buffer containing appropriate OUT value
      */
     private B outX(B tmp, int constIndex) {
-        return (B)tmp
+        MilenageMetrics m = metrics;
+        long start = m.start();
+        B out = (B)tmp
                 .xor(opc)
                 .leftCircularBitRotation(r.get(constIndex))
                 .xor(c.get(constIndex))
                 .encrypt(key)
                 .xor(opc);
+
+        m.stop(Metric.out(constIndex), start);
+        return out;
     }
 
     private Callable<B> getOUT1Callable(final B tmp, final B in1Val) {
@@ -334,6 +1094,18 @@ public class Milenage<B extends MilenageBuffer> {
         return buf.takeBytes(0, AK_LEN_BYTES)[0];
     }
 
+    private Map<MilenageResult, byte []> makeAllResult(B out1, B out2, B out3, B out4, B out5) {
+        Map<MilenageResult, byte []> result = new HashMap<>(Constants.CONST_NUM);
+
+        result.putAll(makeF1Result(out1));
+        result.putAll(makeF2F5Result(out2));
+        result.put(MilenageResult.CK, out3.toBytes());
+        result.put(MilenageResult.IK, out4.toBytes());
+        result.put(MilenageResult.AK_R, makeF5StarResult(out5));
+
+        return result;
+    }
+
     /**
      * Validates {@link Cipher} object.
      * If checked object is not suitable for Milenage algorithm calculations throws exception.
@@ -344,4 +1116,125 @@ public class Milenage<B extends MilenageBuffer> {
         if(k.getOutputSize(BLOCK_LEN_BYTES) != BLOCK_LEN_BYTES)
             throw new IllegalArgumentException("Cipher supplied is not suitable for Milenage");
     }
+
+    private static CipherProvider share(final Cipher k) {
+        validateCipherOrThrowException(k);
+        return Ciphers.createSharedCipherProvider(k);
+    }
+
+    private static BlockEngine adapt(final CipherProvider k) {
+        Cipher cipher = k.acquire();
+        try {
+            validateCipherOrThrowException(cipher);
+
+        } finally {
+            k.release(cipher);
+        }
+        return Ciphers.createBlockEngine(k);
+    }
+
+    /**
+     * <h1>RandContext</h1>
+     * <p>
+     * Milenage functions bound to a single RAND value with TEMP calculated once.
+     * <p>
+     * The object is immutable and can be shared by threads.
+     */
+    public final class RandContext {
+
+        private final B temp;
+
+        private RandContext(B temp) {
+            this.temp = temp;
+        }
+
+        /**
+         * Calculates result of Milenage functions f1 and f1*
+         *
+         * @param sqn  A 48-bit SQN value
+         * @param amf  A 16-bit AMF value
+         * @return  Map containing results of f1 and f1* with keys {@link MilenageResult#MAC_A} and
+         *          {@link MilenageResult#MAC_S} accordingly.
+         * @see Milenage#f1All(byte[], byte[], byte[])
+         */
+        public Map<MilenageResult, byte []> f1All(byte [] sqn, byte [] amf) {
+            return makeF1Result(out1(temp, factory.create(sqn, amf)));
+        }
+
+        /**
+         * Calculates result of Milenage functions f2 and f5
+         *
+         * @return  Map containing results of f2 and f5 with keys {@link MilenageResult#RES} and
+         *          {@link MilenageResult#AK} accordingly.
+         * @see Milenage#f2f5(byte[])
+         */
+        public Map<MilenageResult, byte []> f2f5() {
+            return makeF2F5Result(outX(temp, 1));
+        }
+
+        /**
+         * Calculates result of Milenage function f3
+         *
+         * @return  Buffer containing CK value
+         * @see Milenage#f3(byte[])
+         */
+        public byte [] f3() {
+            return outX(temp, 2).toBytes();
+        }
+
+        /**
+         * Calculates result of Milenage function f4
+         *
+         * @return  Buffer containing IK value
+         * @see Milenage#f4(byte[])
+         */
+        public byte [] f4() {
+            return outX(temp, 3).toBytes();
+        }
+
+        /**
+         * Calculates result of Milenage function f5*
+         *
+         * @return  Buffer containing resynch AK value
+         * @see Milenage#f5Star(byte[])
+         */
+        public byte [] f5Star() {
+            return makeF5StarResult(outX(temp, 4));
+        }
+
+        /**
+         * Calculates only the requested Milenage function values with a single multi-block encryption.
+         *
+         * @param results  Set of values to calculate.
+         * @param sqn  A 48-bit SQN value, may be {@code null} if neither MAC-A nor MAC-S is requested.
+         * @param amf  A 16-bit AMF value, may be {@code null} if neither MAC-A nor MAC-S is requested.
+         * @return  {@link MilenageOutput} containing requested values, others are zero.
+         * @see Milenage#calculate(EnumSet, byte[], byte[], byte[])
+         */
+        public MilenageOutput calculate(EnumSet<MilenageResult> results, byte [] sqn, byte [] amf) {
+            MilenageOutput out = new MilenageOutput();
+
+            calculate(results, sqn, amf, out.getData(), 0);
+            return out;
+        }
+
+        /**
+         * Calculates only the requested Milenage function values storing them into an array
+         * in the layout of {@link MilenageOutput}.
+         *
+         * @param results  Set of values to calculate.
+         * @param sqn  A 48-bit SQN value, may be {@code null} if neither MAC-A nor MAC-S is requested.
+         * @param amf  A 16-bit AMF value, may be {@code null} if neither MAC-A nor MAC-S is requested.
+         * @param dst  Destination array, positions of values not requested are left intact.
+         * @param offset  Position of the {@link MilenageOutput} layout inside {@code dst}.
+         */
+        public void calculate(EnumSet<MilenageResult> results, byte [] sqn, byte [] amf, byte [] dst, int offset) {
+            if(offset < 0 || offset + MilenageOutput.LENGTH > dst.length) {
+                throw new IndexOutOfBoundsException("Destination is too small for MilenageOutput");
+            }
+            int mask = toMask(results);
+
+            copyResults(mask, calculateOutBlocks(temp, sqn, amf, outBlocks(mask)), dst, offset);
+        }
+    }
 }
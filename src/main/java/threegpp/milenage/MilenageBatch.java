@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage;
+
+/**
+ * <h1>MilenageBatch</h1>
+ * <p>
+ * Preallocated storage for a batch of authentication vectors of one subscriber.
+ * <p>
+ * Vectors are kept in a single array in the layout of {@link MilenageOutput}, one after another,
+ * together with the SQN values they were calculated with. The object is meant to be reused:
+ * every {@link Milenage#calculateBatch(byte[][], long, SqnPolicy, byte[], MilenageBatch)} call
+ * overwrites its contents. It is not thread safe.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class MilenageBatch {
+
+    private final byte [] data;
+    private final long [] sqn;
+    private int size;
+
+    /**
+     * @param capacity  Maximum number of vectors in the batch.
+     */
+    public MilenageBatch(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Invalid batch capacity: " + capacity);
+        }
+        data = new byte [capacity * MilenageOutput.LENGTH];
+        sqn = new long [capacity];
+    }
+
+    /**
+     * @return  Maximum number of vectors in the batch.
+     */
+    public int getCapacity() {
+        return sqn.length;
+    }
+
+    /**
+     * @return  Number of vectors calculated by the last call.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index  Zero based index of the vector.
+     * @return  View on the vector, it is valid until the batch is recalculated.
+     */
+    public MilenageOutput get(int index) {
+        checkIndex(index);
+        return new MilenageOutput(data, index * MilenageOutput.LENGTH);
+    }
+
+    /**
+     * @param index  Zero based index of the vector.
+     * @return  A 48-bit SQN value the vector was calculated with.
+     */
+    public long getSqn(int index) {
+        checkIndex(index);
+        return sqn[index];
+    }
+
+    /**
+     * @param index  Zero based index of the vector.
+     * @return  A 6 byte SQN value the vector was calculated with.
+     */
+    public byte [] getSqnBytes(int index) {
+        byte [] bytes = new byte [Milenage.SQN_LEN_BYTES];
+
+        writeSqn(getSqn(index), bytes);
+        return bytes;
+    }
+
+    /**
+     * @return  Array holding all the vectors, vector i starts at i * {@link MilenageOutput#LENGTH}.
+     */
+    public byte [] getData() {
+        return data;
+    }
+
+    void set(int index, long sqnValue) {
+        sqn[index] = sqnValue;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    static void writeSqn(long sqnValue, byte [] dst) {
+        for(int i = Milenage.SQN_LEN_BYTES - 1; i >= 0; i--) {
+            dst[i] = (byte) sqnValue;
+            sqnValue >>>= 8;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Vector index out of range: " + index);
+        }
+    }
+}
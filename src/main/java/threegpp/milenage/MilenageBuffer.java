@@ -18,6 +18,8 @@
  */
 package threegpp.milenage;
 
+import threegpp.milenage.cipher.BlockEngine;
+
 import javax.crypto.Cipher;
 
 /**
@@ -54,6 +56,14 @@ public interface MilenageBuffer<T> {
      */
     MilenageBuffer<T> encrypt(Cipher cipher);
 
+    /**
+     * Encrypts this buffer with given {@link threegpp.milenage.cipher.BlockEngine} object
+     *
+     * @param engine {@link threegpp.milenage.cipher.BlockEngine} object
+     * @return New result {@link threegpp.milenage.MilenageBuffer} object
+     */
+    MilenageBuffer<T> encrypt(BlockEngine engine);
+
     /**
      * Returns contents of underlying buffer as an array of bytes
      * @return The byte array representation of this
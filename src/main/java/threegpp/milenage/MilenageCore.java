@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage;
+
+import threegpp.milenage.cipher.BlockEngine;
+
+/**
+ * <h1>MilenageCore</h1>
+ * <p>
+ * Fused calculation of TEMP and OUT1 ... OUT5 on scratch buffers.
+ * <p>
+ * Shared by {@link Milenage} and {@link threegpp.milenage.bulk.BulkVectorCalculator}, the latter
+ * has no {@link Milenage} object per record and passes OPc and the key of each record explicitly.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class MilenageCore {
+
+    /**
+     * Position of OUT1 inside {@link Scratch#blocks}, pre-encryption blocks precede it.
+     */
+    public static final int OUT_OFFSET = Milenage.BLOCK_LEN_BYTES * Constants.CONST_NUM;
+
+    private MilenageCore() {}
+
+    /**
+     * Calculates intermediate parameter TEMP into {@link Scratch#temp}.
+     * <p>
+     * TEMP = E[RAND ⊕ OPC]K
+     *
+     * @param opc  OPc value.
+     * @param key  Subscriber key.
+     * @param s  Scratch buffers of the calling thread.
+     * @param rand  Array holding RAND.
+     * @param randOffset  Position of RAND inside {@code rand}.
+     * @param <T>  Type of the buffer data.
+     * @return  Scratch buffer holding TEMP.
+     */
+    public static <T> MutableMilenageBuffer<T> temp(MilenageBuffer<T> opc, BlockEngine key, Scratch<T> s,
+                                                    byte [] rand, int randOffset) {
+        return s.temp.load(rand, randOffset).xorInPlace(opc).encryptInto(key, s.temp);
+    }
+
+    /**
+     * Calculates requested OUT blocks with a single multi-block encryption.
+     * <p>
+     * Pre-encryption blocks (TEMP ⊕ rot(IN1 ⊕ OPC, r1) ⊕ c1 and rot(TEMP ⊕ OPC, rx) ⊕ cx) of the
+     * requested OUT blocks are packed one after another and passed to
+     * {@link BlockEngine#encryptBlocks(byte[], int, byte[], int, int)} at once, which lets a JCA
+     * provider run its (intrinsified) ECB loop over all of them. Cipher texts are then moved to
+     * their places and XOR-ed with OPc.
+     *
+     * @param opc  OPc value.
+     * @param key  Subscriber key.
+     * @param c  Block of C constants (C1...C5)
+     * @param r  Block of R constants (R1...R5)
+     * @param s  Scratch buffers of the calling thread.
+     * @param tmp  Intermediate parameter TEMP.
+     * @param sqn  A 48-bit SQN value, not used unless OUT1 is requested.
+     * @param amf  A 16-bit AMF value, not used unless OUT1 is requested.
+     * @param outBlocks  Bit mask of requested OUT blocks, bit 0 stands for OUT1.
+     * @param <T>  Type of the buffer data.
+     * @return  {@link Scratch#blocks} containing OUTn at {@link #OUT_OFFSET} + (n - 1) * {@link Milenage#BLOCK_LEN_BYTES}
+     */
+    public static <T> byte [] outBlocks(MilenageBuffer<T> opc, BlockEngine key,
+                                        CConstants<? extends MilenageBuffer<T>> c, RConstants r, Scratch<T> s,
+                                        MilenageBuffer<T> tmp, byte [] sqn, byte [] amf, int outBlocks) {
+        final int block = Milenage.BLOCK_LEN_BYTES;
+        byte [] blocks = s.blocks;
+        MutableMilenageBuffer<T> work = s.work;
+        int count = 0;
+
+        for(int i = 0; i < Constants.CONST_NUM; i++) {
+            if((outBlocks & (1 << i)) == 0) {
+                continue;
+            }
+            if(i == 0) {
+                work.loadIN1(sqn, amf)
+                        .xorInPlace(opc)
+                        .rotateInto(r.get(0), work)
+                        .xorInPlace(tmp);
+            } else {
+                work.set(tmp)
+                        .xorInPlace(opc)
+                        .rotateInto(r.get(i), work);
+            }
+            work.xorInPlace(c.get(i))
+                    .copyBytes(0, block, blocks, count++ * block);
+        }
+        key.encryptBlocks(blocks, 0, blocks, OUT_OFFSET, count);
+
+        // packed block k goes to slot i >= k, walking backwards never overwrites unread blocks
+        for(int i = Constants.CONST_NUM - 1; i >= 0; i--) {
+            if((outBlocks & (1 << i)) == 0) {
+                continue;
+            }
+            work.load(blocks, OUT_OFFSET + --count * block)
+                    .xorInPlace(opc)
+                    .copyBytes(0, block, blocks, OUT_OFFSET + i * block);
+        }
+        return blocks;
+    }
+
+    /**
+     * Set of scratch buffers, confined to a single thread.
+     *
+     * @param <T>  Type of the buffer data.
+     */
+    public static final class Scratch<T> {
+        final MutableMilenageBuffer<T> temp;
+        final MutableMilenageBuffer<T> work;
+        final byte [] blocks = new byte [OUT_OFFSET * 2];
+
+        /**
+         * @param temp  Buffer receiving TEMP, compatible with OPc and C constants.
+         * @param work  Buffer for intermediate values, compatible with OPc and C constants.
+         */
+        public Scratch(MutableMilenageBuffer<T> temp, MutableMilenageBuffer<T> work) {
+            this.temp = temp;
+            this.work = work;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * <h1>MilenageOutput</h1>
+ * <p>
+ * Results of all Milenage functions stored in a single array with a fixed layout.
+ * <p>
+ * Values follow one another in the order of {@link MilenageResult} constants, position and
+ * length of each one are given by {@link MilenageResult#getOffset()} and
+ * {@link MilenageResult#getLength()}. The object can own its array or be a view on a region of
+ * a larger caller-supplied array, e.g. one holding many vectors.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class MilenageOutput {
+
+    /**
+     * Length of the layout in bytes.
+     */
+    public static final int LENGTH;
+
+    static {
+        MilenageResult last = MilenageResult.AK_R;
+        LENGTH = last.getOffset() + last.getLength();
+    }
+
+    private final byte [] data;
+    private final int offset;
+
+    /**
+     * Creates an object with its own zeroed array.
+     */
+    public MilenageOutput() {
+        this(new byte [LENGTH], 0);
+    }
+
+    /**
+     * Creates a view on a region of an array.
+     *
+     * @param data  Array holding the values.
+     * @param offset  Position of the region inside {@code data}.
+     * @throws IndexOutOfBoundsException  If the region does not fit into {@code data}.
+     */
+    public MilenageOutput(byte [] data, int offset) {
+        if(offset < 0 || offset + LENGTH > data.length) {
+            throw new IndexOutOfBoundsException("MilenageOutput region does not fit into the array");
+        }
+        this.data = data;
+        this.offset = offset;
+    }
+
+    /**
+     * @param result  Type of the value.
+     * @return  Copy of the value.
+     */
+    public byte [] get(MilenageResult result) {
+        int from = offset + result.getOffset();
+        return Arrays.copyOfRange(data, from, from + result.getLength());
+    }
+
+    /**
+     * Copies a value to an array.
+     *
+     * @param result  Type of the value.
+     * @param dst  Destination array.
+     * @param dstOffset  Position inside {@code dst}.
+     */
+    public void copy(MilenageResult result, byte [] dst, int dstOffset) {
+        System.arraycopy(data, offset + result.getOffset(), dst, dstOffset, result.getLength());
+    }
+
+    /**
+     * @return  f1 output (MAC-A).
+     */
+    public byte [] getMacA() {
+        return get(MilenageResult.MAC_A);
+    }
+
+    /**
+     * @return  f1* output (MAC-S).
+     */
+    public byte [] getMacS() {
+        return get(MilenageResult.MAC_S);
+    }
+
+    /**
+     * @return  f2 output (RES).
+     */
+    public byte [] getRes() {
+        return get(MilenageResult.RES);
+    }
+
+    /**
+     * @return  f3 output (CK).
+     */
+    public byte [] getCk() {
+        return get(MilenageResult.CK);
+    }
+
+    /**
+     * @return  f4 output (IK).
+     */
+    public byte [] getIk() {
+        return get(MilenageResult.IK);
+    }
+
+    /**
+     * @return  f5 output (AK).
+     */
+    public byte [] getAk() {
+        return get(MilenageResult.AK);
+    }
+
+    /**
+     * @return  f5* output (resynch AK).
+     */
+    public byte [] getAkR() {
+        return get(MilenageResult.AK_R);
+    }
+
+    /**
+     * @return  Underlying array (not a copy).
+     */
+    public byte [] getData() {
+        return data;
+    }
+
+    /**
+     * @return  Position of the values inside {@link #getData()}.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return  Map of copies of all values, as returned by
+     *          {@link Milenage#calculateAll(byte[], byte[], byte[])}.
+     */
+    public Map<MilenageResult, byte []> toMap() {
+        Map<MilenageResult, byte []> result = new EnumMap<>(MilenageResult.class);
+
+        for(MilenageResult r: MilenageResult.values()) {
+            result.put(r, get(r));
+        }
+        return result;
+    }
+}
@@ -40,35 +40,82 @@ public enum MilenageResult {
     /**
      * Network authentication code
      */
-    MAC_A,
+    MAC_A(0, 0, Milenage.HALF_BUFFER_BYTES),
 
     /**
      * Resynch authentication code
      */
-    MAC_S,
+    MAC_S(0, Milenage.HALF_BUFFER_BYTES, Milenage.HALF_BUFFER_BYTES),
 
     /**
      * Response
      */
-    RES,
+    RES(1, Milenage.HALF_BUFFER_BYTES, Milenage.HALF_BUFFER_BYTES),
 
     /**
      * Confidentiality key
      */
-    CK,
+    CK(2, 0, Milenage.BLOCK_LEN_BYTES),
 
     /**
      * Integrity key
      */
-    IK,
+    IK(3, 0, Milenage.BLOCK_LEN_BYTES),
 
     /**
      * Anonymity key (f5)
      */
-    AK,
+    AK(1, 0, Milenage.AK_LEN_BYTES),
 
     /**
      * Resynch anonymity key (f5*)
      */
-    AK_R
+    AK_R(4, 0, Milenage.AK_LEN_BYTES);
+
+    private final int outIndex;
+    private final int outOffset;
+    private final int length;
+    private int offset;
+
+    static {
+        int offset = 0;
+        for(MilenageResult result: values()) {
+            result.offset = offset;
+            offset += result.length;
+        }
+    }
+
+    MilenageResult(int outIndex, int outOffset, int length) {
+        this.outIndex = outIndex;
+        this.outOffset = outOffset;
+        this.length = length;
+    }
+
+    /**
+     * @return  Zero based number of the OUT block (OUT1 ... OUT5) the value is taken from.
+     */
+    public int getOutIndex() {
+        return outIndex;
+    }
+
+    /**
+     * @return  Position of the value inside its OUT block, in bytes.
+     */
+    public int getOutOffset() {
+        return outOffset;
+    }
+
+    /**
+     * @return  Length of the value in bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return  Position of the value inside the fixed layout of {@link MilenageOutput}.
+     */
+    public int getOffset() {
+        return offset;
+    }
 }
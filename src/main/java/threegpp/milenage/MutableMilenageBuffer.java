@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage;
+
+import threegpp.milenage.cipher.BlockEngine;
+
+import javax.crypto.Cipher;
+
+/**
+ * <h1>MutableMilenageBuffer</h1>
+ * <p>
+ * Mutable counterpart of {@link threegpp.milenage.MilenageBuffer}. Operations of this interface
+ * change the buffer they are called on (or the {@code target} buffer passed in) instead of
+ * creating new objects, so a small set of scratch buffers owned by the caller is enough to
+ * calculate all Milenage outputs.
+ * <p>
+ * Implementations are not thread-safe, every thread is expected to use its own scratch buffers.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public interface MutableMilenageBuffer<T> extends MilenageBuffer<T> {
+
+    /**
+     * Replaces contents of this buffer with {@link Milenage#BLOCK_LEN_BYTES} bytes of an array.
+     *
+     * @param src  Source array.
+     * @param offset  Position of the first byte inside {@code src}.
+     * @return  This buffer.
+     */
+    MutableMilenageBuffer<T> load(byte [] src, int offset);
+
+    /**
+     * Replaces contents of this buffer with value IN1 built from SQN and AMF.
+     *
+     * @param sqn  Array of bytes with length equal to {@link Milenage#SQN_LEN_BYTES}.
+     * @param amf  Array of bytes with length equal to {@link Milenage#AMF_LEN_BYTES}.
+     * @return  This buffer.
+     */
+    MutableMilenageBuffer<T> loadIN1(byte [] sqn, byte [] amf);
+
+    /**
+     * Replaces contents of this buffer with contents of another one.
+     *
+     * @param that  Buffer to copy from.
+     * @return  This buffer.
+     */
+    MutableMilenageBuffer<T> set(MilenageBuffer<T> that);
+
+    /**
+     * Performs bit exclusive OR (XOR) operation storing the result in this buffer.
+     *
+     * @param that  Another {@link threegpp.milenage.MilenageBuffer} object to XOR with this
+     * @return  This buffer.
+     */
+    MutableMilenageBuffer<T> xorInPlace(MilenageBuffer<T> that);
+
+    /**
+     * Performs a circular bit shift to the left storing the result in {@code target}.
+     *
+     * @param numBits  Number of bits to be shifted to the left.
+     * @param target  Buffer receiving the result, may be this buffer.
+     * @return  {@code target}
+     */
+    MutableMilenageBuffer<T> rotateInto(byte numBits, MutableMilenageBuffer<T> target);
+
+    /**
+     * Encrypts this buffer with given {@link javax.crypto.Cipher} object storing the
+     * result in {@code target}.
+     *
+     * @param cipher {@link javax.crypto.Cipher} object
+     * @param target  Buffer receiving the result, may be this buffer.
+     * @return  {@code target}
+     */
+    MutableMilenageBuffer<T> encryptInto(Cipher cipher, MutableMilenageBuffer<T> target);
+
+    /**
+     * Encrypts this buffer with given {@link threegpp.milenage.cipher.BlockEngine} object
+     * storing the result in {@code target}.
+     *
+     * @param engine {@link threegpp.milenage.cipher.BlockEngine} object
+     * @param target  Buffer receiving the result, may be this buffer.
+     * @return  {@code target}
+     */
+    MutableMilenageBuffer<T> encryptInto(BlockEngine engine, MutableMilenageBuffer<T> target);
+
+    /**
+     * Copies a fragment of this buffer to an array.
+     *
+     * @param begin  Start position inside this buffer (inclusive).
+     * @param end  End position inside this buffer (exclusive).
+     * @param dst  Destination array.
+     * @param dstOffset  Position inside {@code dst} to copy to.
+     * @throws  IndexOutOfBoundsException if positions point outside of either buffer.
+     */
+    void copyBytes(int begin, int end, byte [] dst, int dstOffset)
+            throws IndexOutOfBoundsException;
+}
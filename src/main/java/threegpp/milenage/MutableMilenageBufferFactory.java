@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage;
+
+/**
+ * <h1>MutableMilenageBufferFactory</h1>
+ * <p>
+ * A {@link threegpp.milenage.MilenageBufferFactory} able to create scratch
+ * {@link threegpp.milenage.MutableMilenageBuffer} objects compatible with buffers it creates.
+ * <p>
+ * {@link Milenage} detects such factories and uses per-thread scratch buffers
+ * in {@link Milenage#calculateAll(byte[], byte[], byte[])}.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public interface MutableMilenageBufferFactory<B extends MilenageBuffer> extends MilenageBufferFactory<B> {
+
+    /**
+     * Create a zeroed {@link threegpp.milenage.MutableMilenageBuffer} object
+     * which can be combined with buffers of type {@code B}.
+     *
+     * @return  New scratch buffer.
+     */
+    MutableMilenageBuffer<?> createScratch();
+
+    /**
+     * Provides the scratch buffers of the calling thread.
+     * <p>
+     * The set is held by the factory and shared by all {@link Milenage} instances using it,
+     * a calculation never interleaves with another one on the same thread. This keeps
+     * short-lived per-subscriber instances from allocating their own per-thread buffers.
+     *
+     * @return  Scratch buffers confined to the calling thread.
+     */
+    MilenageCore.Scratch<?> getScratch();
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage;
+
+/**
+ * <h1>SqnPolicies</h1>
+ * <p>
+ * Factory of commonly used {@link SqnPolicy} implementations.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class SqnPolicies {
+
+    /**
+     * Mask of a 48-bit SQN value.
+     */
+    public static final long SQN_MASK = (1L << (Milenage.SQN_LEN_BYTES * 8)) - 1;
+
+    private static final SqnPolicy SEQUENTIAL = new SqnPolicy() {
+        @Override
+        public long next(long sqn) {
+            return (sqn + 1) & SQN_MASK;
+        }
+    };
+
+    private SqnPolicies() {
+    }
+
+    /**
+     * @return  Policy incrementing the whole SQN by one (wrapping at 2^48).
+     */
+    public static SqnPolicy sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * Creates a policy for SQN = SEQ || IND as described in 3GPP TS 33.102 Annex C.
+     * <p>
+     * Every next vector gets SEQ incremented by one and IND advanced cyclically, so that vectors
+     * of a batch occupy different array positions of the USIM.
+     *
+     * @param indBits  Number of IND bits in the least significant part of SQN, 0 .. 47.
+     * @return  {@link SqnPolicy} object
+     */
+    public static SqnPolicy seqInd(final int indBits) {
+        if(indBits < 0 || indBits >= Milenage.SQN_LEN_BYTES * 8) {
+            throw new IllegalArgumentException("Invalid IND length: " + indBits);
+        }
+        final long indMask = (1L << indBits) - 1;
+
+        return new SqnPolicy() {
+            @Override
+            public long next(long sqn) {
+                long seq = ((sqn >>> indBits) + 1) << indBits;
+                long ind = (sqn + 1) & indMask;
+
+                return (seq | ind) & SQN_MASK;
+            }
+        };
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.MilenageResult;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>AutsVerifier</h1>
+ * <p>
+ * Verification of re-synchronisation tokens AUTS = SQN<sub>MS</sub> ⊕ AK || MAC-S
+ * (3GPP TS 33.102 6.3.5).
+ * <p>
+ * TEMP is calculated once per AUTS, then only OUT5 (AK of f5*, to recover SQN<sub>MS</sub>) and
+ * OUT1 (MAC-S of f1* over SQN<sub>MS</sub> and the dummy AMF 0x0000) are calculated. MAC-S is
+ * compared in constant time with {@link MessageDigest#isEqual(byte[], byte[])}.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class AutsVerifier {
+
+    /**
+     * Length of AUTS = SQN<sub>MS</sub> ⊕ AK || MAC-S.
+     */
+    public static final int AUTS_LENGTH = Milenage.SQN_LEN_BYTES + Milenage.HALF_BUFFER_BYTES;
+
+    /**
+     * Value returned for an AUTS whose MAC-S does not match.
+     */
+    public static final long INVALID = -1L;
+
+    private static final byte [] RESYNC_AMF = new byte [Milenage.AMF_LEN_BYTES];
+
+    private static final EnumSet<MilenageResult> AK_R = EnumSet.of(MilenageResult.AK_R);
+    private static final EnumSet<MilenageResult> MAC_S = EnumSet.of(MilenageResult.MAC_S);
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private AutsVerifier() {
+    }
+
+    /**
+     * Verifies AUTS and recovers SQN<sub>MS</sub>.
+     *
+     * @param milenage  {@link Milenage} object of the subscriber.
+     * @param rand  RAND value of the failed authentication.
+     * @param auts  AUTS value received from the UE, {@link #AUTS_LENGTH} bytes.
+     * @return  A 48-bit SQN<sub>MS</sub> value or {@link #INVALID} if MAC-S does not match.
+     */
+    public static long verify(Milenage<?> milenage, byte [] rand, byte [] auts) {
+        if(auts.length != AUTS_LENGTH) {
+            throw new IllegalArgumentException("Invalid AUTS length: " + auts.length);
+        }
+        Scratch s = SCRATCH.get();
+        Milenage<?>.RandContext context = milenage.forRand(rand);
+
+        context.calculate(AK_R, null, null, s.out, 0);
+
+        int ak = MilenageResult.AK_R.getOffset();
+        long sqn = 0;
+        for(int i = 0; i < Milenage.SQN_LEN_BYTES; i++) {
+            s.sqn[i] = (byte) (auts[i] ^ s.out[ak + i]);
+            sqn = (sqn << 8) | (s.sqn[i] & 0xFF);
+        }
+        context.calculate(MAC_S, s.sqn, RESYNC_AMF, s.out, 0);
+
+        System.arraycopy(s.out, MilenageResult.MAC_S.getOffset(), s.expected, 0, Milenage.HALF_BUFFER_BYTES);
+        System.arraycopy(auts, Milenage.SQN_LEN_BYTES, s.received, 0, Milenage.HALF_BUFFER_BYTES);
+
+        return MessageDigest.isEqual(s.expected, s.received) ? sqn : INVALID;
+    }
+
+    /**
+     * Verifies a batch of AUTS values, possibly of different subscribers, across executor threads.
+     *
+     * @param milenages  {@link Milenage} objects of the subscribers, one per AUTS.
+     * @param rands  RAND values of the failed authentications, one per AUTS.
+     * @param auts  AUTS values received from the UEs.
+     * @param sqnMs  Destination of the recovered SQN<sub>MS</sub> values, {@link #INVALID} for
+     *               the values failed verification.
+     * @param executor  {@link ExecutorService} object to be used for calculations.
+     * @param parallelism  Number of tasks the batch is split into.
+     * @throws InterruptedException  can be thrown by the {@link ExecutorService}
+     * @throws ExecutionException  can be thrown by the {@link ExecutorService}
+     */
+    public static void verifyAll(final Milenage<?> [] milenages, final byte [][] rands, final byte [][] auts,
+                                 final long [] sqnMs, ExecutorService executor, int parallelism)
+            throws InterruptedException, ExecutionException {
+        final int count = auts.length;
+
+        if(milenages.length != count || rands.length != count || sqnMs.length < count) {
+            throw new IllegalArgumentException("Array lengths do not match");
+        }
+        int slices = Math.max(1, Math.min(parallelism, count));
+        List<Callable<Void>> tasks = new ArrayList<>(slices);
+
+        for(int i = 0; i < slices; i++) {
+            final int from = (int) ((long) count * i / slices);
+            final int to = (int) ((long) count * (i + 1) / slices);
+
+            tasks.add(() -> {
+                for(int n = from; n < to; n++) {
+                    sqnMs[n] = verify(milenages[n], rands[n], auts[n]);
+                }
+                return null;
+            });
+        }
+        for(Future<Void> future: executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+
+    /**
+     * Per-thread scratch arrays.
+     */
+    private static final class Scratch {
+        final byte [] out = new byte [MilenageOutput.LENGTH];
+        final byte [] sqn = new byte [Milenage.SQN_LEN_BYTES];
+        final byte [] expected = new byte [Milenage.HALF_BUFFER_BYTES];
+        final byte [] received = new byte [Milenage.HALF_BUFFER_BYTES];
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import threegpp.milenage.Milenage;
+
+import java.util.Arrays;
+
+/**
+ * <h1>Quintet</h1>
+ * <p>
+ * UMTS authentication vector (RAND, XRES, CK, IK, AUTN) stored in a single array with a fixed layout.
+ * <p>
+ * The object can own its array or be a view on a region of a larger caller-supplied array,
+ * e.g. one holding many vectors.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class Quintet {
+
+    public static final int RAND_OFFSET = 0;
+    public static final int XRES_OFFSET = RAND_OFFSET + Milenage.BLOCK_LEN_BYTES;
+    public static final int CK_OFFSET = XRES_OFFSET + Milenage.HALF_BUFFER_BYTES;
+    public static final int IK_OFFSET = CK_OFFSET + Milenage.BLOCK_LEN_BYTES;
+    public static final int AUTN_OFFSET = IK_OFFSET + Milenage.BLOCK_LEN_BYTES;
+
+    /**
+     * Length of AUTN = SQN ⊕ AK || AMF || MAC-A.
+     */
+    public static final int AUTN_LENGTH = Milenage.SQN_LEN_BYTES + Milenage.AMF_LEN_BYTES + Milenage.HALF_BUFFER_BYTES;
+
+    /**
+     * Length of the layout in bytes.
+     */
+    public static final int LENGTH = AUTN_OFFSET + AUTN_LENGTH;
+
+    private final byte [] data;
+    private final int offset;
+
+    /**
+     * Creates an object with its own zeroed array.
+     */
+    public Quintet() {
+        this(new byte [LENGTH], 0);
+    }
+
+    /**
+     * Creates a view on a region of an array.
+     *
+     * @param data  Array holding the values.
+     * @param offset  Position of the region inside {@code data}.
+     * @throws IndexOutOfBoundsException  If the region does not fit into {@code data}.
+     */
+    public Quintet(byte [] data, int offset) {
+        if(offset < 0 || offset + LENGTH > data.length) {
+            throw new IndexOutOfBoundsException("Quintet region does not fit into the array");
+        }
+        this.data = data;
+        this.offset = offset;
+    }
+
+    public byte [] getRand() {
+        return copy(RAND_OFFSET, Milenage.BLOCK_LEN_BYTES);
+    }
+
+    public byte [] getXres() {
+        return copy(XRES_OFFSET, Milenage.HALF_BUFFER_BYTES);
+    }
+
+    public byte [] getCk() {
+        return copy(CK_OFFSET, Milenage.BLOCK_LEN_BYTES);
+    }
+
+    public byte [] getIk() {
+        return copy(IK_OFFSET, Milenage.BLOCK_LEN_BYTES);
+    }
+
+    public byte [] getAutn() {
+        return copy(AUTN_OFFSET, AUTN_LENGTH);
+    }
+
+    /**
+     * @return  Array holding the values.
+     */
+    public byte [] getData() {
+        return data;
+    }
+
+    /**
+     * @return  Position of the layout inside {@link #getData()}.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    private byte [] copy(int from, int length) {
+        return Arrays.copyOfRange(data, offset + from, offset + from + length);
+    }
+}
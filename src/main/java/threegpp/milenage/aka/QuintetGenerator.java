@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.SqnPolicy;
+
+import java.util.EnumSet;
+
+/**
+ * <h1>QuintetGenerator</h1>
+ * <p>
+ * Builds complete UMTS authentication vectors of a subscriber.
+ * <p>
+ * A quintet needs MAC-A, XRES, CK, IK and AK, i.e. OUT1 ... OUT4, so it is produced with five
+ * block encryptions (TEMP and OUT1 ... OUT4, the latter in one multi-block call); OUT5 (AK for
+ * re-synchronisation) is never calculated. The values are calculated into a per-thread scratch
+ * array and copied straight to their places in the quintet layout, SQN is concealed with AK in
+ * place inside AUTN. Generating into a caller-supplied array allocates nothing but what the
+ * {@link RandSource} does.
+ * <p>
+ * The object is thread safe as long as the {@link RandSource} is.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class QuintetGenerator {
+
+    private static final EnumSet<MilenageResult> QUINTET_RESULTS = EnumSet.of(
+            MilenageResult.MAC_A, MilenageResult.RES, MilenageResult.CK, MilenageResult.IK, MilenageResult.AK);
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Milenage<?> milenage;
+    private final RandSource randSource;
+
+    /**
+     * Constructor
+     *
+     * @param milenage  {@link Milenage} object of the subscriber.
+     * @param randSource  Source of RAND values.
+     */
+    public QuintetGenerator(Milenage<?> milenage, RandSource randSource) {
+        this.milenage = milenage;
+        this.randSource = randSource;
+    }
+
+    /**
+     * Generates a quintet.
+     *
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @return  {@link Quintet} object.
+     */
+    public Quintet generate(byte [] sqn, byte [] amf) {
+        Quintet quintet = new Quintet();
+
+        generate(sqn, amf, quintet.getData(), 0);
+        return quintet;
+    }
+
+    /**
+     * Generates a quintet into an array in the layout of {@link Quintet}.
+     *
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @param dst  Destination array.
+     * @param offset  Position inside {@code dst}, {@link Quintet#LENGTH} bytes are written.
+     */
+    public void generate(byte [] sqn, byte [] amf, byte [] dst, int offset) {
+        if(offset < 0 || offset + Quintet.LENGTH > dst.length) {
+            throw new IndexOutOfBoundsException("Destination is too small for Quintet");
+        }
+        Scratch s = SCRATCH.get();
+        byte [] out = s.out;
+
+        randSource.nextRand(s.rand, 0);
+        milenage.calculate(QUINTET_RESULTS, s.rand, sqn, amf, out, 0);
+
+        System.arraycopy(s.rand, 0, dst, offset + Quintet.RAND_OFFSET, Milenage.BLOCK_LEN_BYTES);
+        copy(out, MilenageResult.RES, dst, offset + Quintet.XRES_OFFSET);
+        copy(out, MilenageResult.CK, dst, offset + Quintet.CK_OFFSET);
+        copy(out, MilenageResult.IK, dst, offset + Quintet.IK_OFFSET);
+
+        int autn = offset + Quintet.AUTN_OFFSET;
+        int ak = MilenageResult.AK.getOffset();
+
+        for(int i = 0; i < Milenage.SQN_LEN_BYTES; i++) {
+            dst[autn + i] = (byte) (sqn[i] ^ out[ak + i]);
+        }
+        System.arraycopy(amf, 0, dst, autn + Milenage.SQN_LEN_BYTES, Milenage.AMF_LEN_BYTES);
+        copy(out, MilenageResult.MAC_A, dst, autn + Milenage.SQN_LEN_BYTES + Milenage.AMF_LEN_BYTES);
+    }
+
+    /**
+     * Generates a series of quintets with SQN values produced by the policy.
+     *
+     * @param count  Number of quintets.
+     * @param sqn  A 48-bit SQN value of the first quintet.
+     * @param policy  Rule producing SQN of the next quintet.
+     * @param amf  A 16-bit AMF value
+     * @param dst  Destination array, quintet i is written at {@code offset + i * Quintet.LENGTH}.
+     * @param offset  Position of the first quintet inside {@code dst}.
+     * @return  A 48-bit SQN value to be used for the quintet following the series.
+     */
+    public long generate(int count, long sqn, SqnPolicy policy, byte [] amf, byte [] dst, int offset) {
+        byte [] sqnBytes = new byte [Milenage.SQN_LEN_BYTES];
+
+        for(int i = 0; i < count; i++) {
+            for(int n = Milenage.SQN_LEN_BYTES - 1, shift = 0; n >= 0; n--, shift += 8) {
+                sqnBytes[n] = (byte) (sqn >>> shift);
+            }
+            generate(sqnBytes, amf, dst, offset + i * Quintet.LENGTH);
+            sqn = policy.next(sqn);
+        }
+        return sqn;
+    }
+
+    private static void copy(byte [] out, MilenageResult result, byte [] dst, int dstOffset) {
+        System.arraycopy(out, result.getOffset(), dst, dstOffset, result.getLength());
+    }
+
+    /**
+     * Per-thread scratch arrays.
+     */
+    private static final class Scratch {
+        final byte [] rand = new byte [Milenage.BLOCK_LEN_BYTES];
+        final byte [] out = new byte [MilenageOutput.LENGTH];
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import java.io.IOException;
+
+/**
+ * <h1>QuintetSupplier</h1>
+ * <p>
+ * Generates quintets of a subscriber for {@link VectorPool}.
+ *
+ * @param <K>  Type of the subscriber identifier.
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ * @see VectorPool#supplier(java.util.function.Function, SqnReserver, threegpp.milenage.SqnPolicy, byte[])
+ */
+public interface QuintetSupplier<K> {
+
+    /**
+     * Generates quintets into an array in the layout of {@link Quintet}.
+     *
+     * @param subscriber  Subscriber identifier.
+     * @param count  Number of quintets.
+     * @param dst  Destination array, quintet i is written at {@code offset + i * Quintet.LENGTH}.
+     * @param offset  Position of the first quintet inside {@code dst}.
+     * @throws IOException  If SQN values cannot be allocated.
+     * @throws InterruptedException  If interrupted while allocating SQN values.
+     */
+    void generate(K subscriber, int count, byte [] dst, int offset) throws IOException, InterruptedException;
+
+    /**
+     * Allocates SQN values of a subscriber, e.g. {@code threegpp.milenage.sqn.SqnManager::reserve}.
+     *
+     * @param <K>  Type of the subscriber identifier.
+     */
+    interface SqnReserver<K> {
+
+        /**
+         * @param subscriber  Subscriber identifier.
+         * @param count  Number of values.
+         * @return  The first SQN value of the range.
+         * @throws IOException  If the values cannot be allocated.
+         * @throws InterruptedException  If interrupted while allocating.
+         */
+        long reserve(K subscriber, int count) throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import threegpp.milenage.Milenage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * <h1>RandSources</h1>
+ * <p>
+ * Factory of commonly used {@link RandSource} implementations.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class RandSources {
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long [].class, ByteOrder.BIG_ENDIAN);
+
+    private RandSources() {
+    }
+
+    /**
+     * Creates a source backed by a new {@link SecureRandom} instance.
+     * <p>
+     * Every RAND is one {@link SecureRandom#nextBytes(byte[])} call into a per-thread buffer of
+     * the source, {@link SecureRandom#nextLong()} would allocate inside the engine instead.
+     *
+     * @return  {@link RandSource} object.
+     */
+    public static RandSource secureRandom() {
+        final SecureRandom random = new SecureRandom();
+        final ThreadLocal<byte []> buffers = ThreadLocal.withInitial(() -> new byte [Milenage.BLOCK_LEN_BYTES]);
+
+        return new RandSource() {
+            @Override
+            public void nextRand(byte [] dst, int offset) {
+                byte [] rand = buffers.get();
+
+                random.nextBytes(rand);
+                System.arraycopy(rand, 0, dst, offset, rand.length);
+            }
+        };
+    }
+
+    /**
+     * Creates a source backed by a {@link Random} object, e.g. a seeded one for tests.
+     * <p>
+     * A RAND is two {@link Random#nextLong()} values written big-endian straight into the
+     * destination. The source is as thread safe as the {@code random} object is.
+     *
+     * @param random  {@link Random} object.
+     * @return  {@link RandSource} object.
+     */
+    public static RandSource fromRandom(final Random random) {
+        return new RandSource() {
+            @Override
+            public void nextRand(byte [] dst, int offset) {
+                if(offset < 0 || offset > dst.length - Milenage.BLOCK_LEN_BYTES) {
+                    throw new ArrayIndexOutOfBoundsException("No room for RAND at offset " + offset);
+                }
+                LONG.set(dst, offset, random.nextLong());
+                LONG.set(dst, offset + 8, random.nextLong());
+            }
+        };
+    }
+}
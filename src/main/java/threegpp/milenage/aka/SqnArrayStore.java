@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import threegpp.milenage.Milenage;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <h1>SqnArrayStore</h1>
+ * <p>
+ * USIM-side sequence number state of many SIMs as described in 3GPP TS 33.102 Annex C.2.2.
+ * <p>
+ * SQN = SEQ || IND, where IND is {@code indBits} least significant bits. For every SIM the
+ * store keeps the array SEQ<sub>MS</sub>(IND) of the highest SEQ accepted for each IND value
+ * and the highest SQN accepted so far. A SQN is fresh if its SEQ is greater than
+ * SEQ<sub>MS</sub>(IND) and, when a limit Δ is set, SEQ does not exceed the highest accepted
+ * SEQ by more than Δ.
+ * <p>
+ * State is kept in two primitive arrays ({@code sims * 2^indBits + sims} longs in total, no
+ * object per SIM), updates are lock free, so many SIMs can be simulated by many threads.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class SqnArrayStore {
+
+    public static final int DEFAULT_IND_BITS = 5;
+
+    private final int sims;
+    private final int indBits;
+    private final long delta;
+    private final AtomicLongArray seqMs;
+    private final AtomicLongArray highest;
+
+    /**
+     * Creates a store without the Δ limit.
+     *
+     * @param sims  Number of SIMs, SIMs are addressed by indexes 0 ... sims - 1.
+     * @param indBits  Number of IND bits.
+     */
+    public SqnArrayStore(int sims, int indBits) {
+        this(sims, indBits, 0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param sims  Number of SIMs, SIMs are addressed by indexes 0 ... sims - 1.
+     * @param indBits  Number of IND bits, 0 ... 16.
+     * @param delta  Maximal difference Δ between a fresh SEQ and the highest accepted one, 0 for no limit.
+     */
+    public SqnArrayStore(int sims, int indBits, long delta) {
+        if(indBits < 0 || indBits > 16) {
+            throw new IllegalArgumentException("Invalid IND length: " + indBits);
+        }
+        if(sims <= 0 || ((long) sims << indBits) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid number of SIMs: " + sims);
+        }
+        this.sims = sims;
+        this.indBits = indBits;
+        this.delta = delta;
+        seqMs = new AtomicLongArray(sims << indBits);
+        highest = new AtomicLongArray(sims);
+    }
+
+    public int getSims() {
+        return sims;
+    }
+
+    public int getIndBits() {
+        return indBits;
+    }
+
+    /**
+     * Checks freshness of a SQN and stores it if it is fresh.
+     *
+     * @param sim  Index of the SIM.
+     * @param sqn  A 48-bit SQN value received in AUTN.
+     * @return  {@code true} if the SQN is fresh and has been stored.
+     */
+    public boolean accept(int sim, long sqn) {
+        checkSim(sim);
+        long seq = sqn >>> indBits;
+        int entry = (sim << indBits) | (int) (sqn & ((1L << indBits) - 1));
+
+        if(delta > 0 && seq - (highest.get(sim) >>> indBits) > delta) {
+            return false;
+        }
+        for(;;) {
+            long current = seqMs.get(entry);
+
+            if(seq <= current) {
+                return false;
+            }
+            if(seqMs.compareAndSet(entry, current, seq)) {
+                break;
+            }
+        }
+        for(;;) {
+            long current = highest.get(sim);
+
+            if(sqn <= current || highest.compareAndSet(sim, current, sqn)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param sim  Index of the SIM.
+     * @return  The highest SQN accepted by the SIM (SQN<sub>MS</sub> reported in AUTS).
+     */
+    public long getSqnMs(int sim) {
+        checkSim(sim);
+        return highest.get(sim);
+    }
+
+    /**
+     * Resets state of a SIM, e.g. to simulate a new card.
+     *
+     * @param sim  Index of the SIM.
+     */
+    public void reset(int sim) {
+        checkSim(sim);
+        for(int i = sim << indBits, end = (sim + 1) << indBits; i < end; i++) {
+            seqMs.set(i, 0);
+        }
+        highest.set(sim, 0);
+    }
+
+    /**
+     * @param sqn  A 6 byte SQN value.
+     * @return  The value as a 48-bit number.
+     */
+    static long toLong(byte [] sqn, int offset) {
+        long value = 0;
+
+        for(int i = 0; i < Milenage.SQN_LEN_BYTES; i++) {
+            value = (value << 8) | (sqn[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private void checkSim(int sim) {
+        if(sim < 0 || sim >= sims) {
+            throw new IndexOutOfBoundsException("SIM index out of range: " + sim);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.MilenageResult;
+
+import java.security.MessageDigest;
+import java.util.EnumSet;
+
+/**
+ * <h1>UsimAuthenticator</h1>
+ * <p>
+ * Terminal (USIM) side of the UMTS authentication (3GPP TS 33.102 6.3.3).
+ * <p>
+ * AUTN is checked before anything else is calculated: after TEMP only OUT2 (AK, and RES which
+ * is taken from the same block) and OUT1 (MAC-A over the recovered SQN and AMF of AUTN) are
+ * calculated, so a forged AUTN costs three block encryptions. CK and IK (OUT3, OUT4) are
+ * calculated only when MAC-A matches and SQN is fresh according to the {@link SqnArrayStore}.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class UsimAuthenticator {
+
+    /**
+     * Outcome of the authentication.
+     */
+    public enum Result {
+        /**
+         * AUTN is valid, RES, CK and IK are calculated.
+         */
+        SUCCESS,
+        /**
+         * MAC-A does not match, the network is not authenticated.
+         */
+        MAC_FAILURE,
+        /**
+         * MAC-A matches but SQN is not fresh, re-synchronisation (AUTS) is required.
+         */
+        SYNC_FAILURE
+    }
+
+    private static final EnumSet<MilenageResult> AK_RES = EnumSet.of(MilenageResult.AK, MilenageResult.RES);
+    private static final EnumSet<MilenageResult> MAC_A = EnumSet.of(MilenageResult.MAC_A);
+    private static final EnumSet<MilenageResult> CK_IK = EnumSet.of(MilenageResult.CK, MilenageResult.IK);
+    private static final EnumSet<MilenageResult> AK_R = EnumSet.of(MilenageResult.AK_R);
+    private static final EnumSet<MilenageResult> MAC_S = EnumSet.of(MilenageResult.MAC_S);
+
+    private static final byte [] RESYNC_AMF = new byte [Milenage.AMF_LEN_BYTES];
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private UsimAuthenticator() {
+    }
+
+    /**
+     * Authenticates the network.
+     *
+     * @param milenage  {@link Milenage} object of the SIM.
+     * @param store  SQN state of the SIMs.
+     * @param sim  Index of the SIM in {@code store}.
+     * @param rand  RAND value received from the network.
+     * @param autn  AUTN value received from the network, {@link Quintet#AUTN_LENGTH} bytes.
+     * @param dst  Destination array in the layout of {@link MilenageOutput}, RES, CK and IK are
+     *             valid on {@link Result#SUCCESS} only.
+     * @param offset  Position of the layout inside {@code dst}.
+     * @return  {@link Result} of the authentication.
+     */
+    public static Result authenticate(Milenage<?> milenage, SqnArrayStore store, int sim,
+                                      byte [] rand, byte [] autn, byte [] dst, int offset) {
+        if(autn.length != Quintet.AUTN_LENGTH) {
+            throw new IllegalArgumentException("Invalid AUTN length: " + autn.length);
+        }
+        Scratch s = SCRATCH.get();
+        Milenage<?>.RandContext context = milenage.forRand(rand);
+
+        context.calculate(AK_RES, null, null, dst, offset);
+
+        int ak = offset + MilenageResult.AK.getOffset();
+        for(int i = 0; i < Milenage.SQN_LEN_BYTES; i++) {
+            s.sqn[i] = (byte) (autn[i] ^ dst[ak + i]);
+        }
+        System.arraycopy(autn, Milenage.SQN_LEN_BYTES, s.amf, 0, Milenage.AMF_LEN_BYTES);
+
+        context.calculate(MAC_A, s.sqn, s.amf, dst, offset);
+        System.arraycopy(dst, offset + MilenageResult.MAC_A.getOffset(), s.expected, 0, Milenage.HALF_BUFFER_BYTES);
+        System.arraycopy(autn, Milenage.SQN_LEN_BYTES + Milenage.AMF_LEN_BYTES, s.received, 0,
+                Milenage.HALF_BUFFER_BYTES);
+
+        if(!MessageDigest.isEqual(s.expected, s.received)) {
+            return Result.MAC_FAILURE;
+        }
+        if(!store.accept(sim, SqnArrayStore.toLong(s.sqn, 0))) {
+            return Result.SYNC_FAILURE;
+        }
+        context.calculate(CK_IK, null, null, dst, offset);
+
+        return Result.SUCCESS;
+    }
+
+    /**
+     * Creates the re-synchronisation token AUTS = SQN<sub>MS</sub> ⊕ AK || MAC-S after
+     * {@link Result#SYNC_FAILURE}.
+     *
+     * @param milenage  {@link Milenage} object of the SIM.
+     * @param store  SQN state of the SIMs.
+     * @param sim  Index of the SIM in {@code store}.
+     * @param rand  RAND value received from the network.
+     * @param dst  Destination array.
+     * @param offset  Position inside {@code dst}, {@link AutsVerifier#AUTS_LENGTH} bytes are written.
+     */
+    public static void createAuts(Milenage<?> milenage, SqnArrayStore store, int sim,
+                                  byte [] rand, byte [] dst, int offset) {
+        Scratch s = SCRATCH.get();
+        Milenage<?>.RandContext context = milenage.forRand(rand);
+        long sqnMs = store.getSqnMs(sim);
+
+        for(int i = Milenage.SQN_LEN_BYTES - 1; i >= 0; i--, sqnMs >>>= 8) {
+            s.sqn[i] = (byte) sqnMs;
+        }
+        context.calculate(AK_R, null, null, s.out, 0);
+        context.calculate(MAC_S, s.sqn, RESYNC_AMF, s.out, 0);
+
+        int ak = MilenageResult.AK_R.getOffset();
+        for(int i = 0; i < Milenage.SQN_LEN_BYTES; i++) {
+            dst[offset + i] = (byte) (s.sqn[i] ^ s.out[ak + i]);
+        }
+        System.arraycopy(s.out, MilenageResult.MAC_S.getOffset(), dst, offset + Milenage.SQN_LEN_BYTES,
+                Milenage.HALF_BUFFER_BYTES);
+    }
+
+    /**
+     * Per-thread scratch arrays.
+     */
+    private static final class Scratch {
+        final byte [] out = new byte [MilenageOutput.LENGTH];
+        final byte [] sqn = new byte [Milenage.SQN_LEN_BYTES];
+        final byte [] amf = new byte [Milenage.AMF_LEN_BYTES];
+        final byte [] expected = new byte [Milenage.HALF_BUFFER_BYTES];
+        final byte [] received = new byte [Milenage.HALF_BUFFER_BYTES];
+    }
+}
@@ -0,0 +1,347 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import threegpp.milenage.SqnPolicy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * <h1>VectorPool</h1>
+ * <p>
+ * Pool of pre-generated quintets of recently active subscribers.
+ * <p>
+ * Every subscriber that requested a vector gets a lock-free ring of ready quintets. A request
+ * takes a quintet from the ring in O(1); when the ring drops below the low watermark a background
+ * task of the executor refills it up to the high watermark, at most one task per subscriber at a
+ * time. An empty ring makes the request generate a quintet synchronously.
+ * <p>
+ * Generation of quintets of a subscriber is serialized: a request finding the ring empty while
+ * it is being refilled waits for the refill and takes the first refilled quintet. Quintets of
+ * a subscriber are therefore served in SQN order, as required by a USIM checking SQN freshness
+ * against the highest accepted value.
+ * <p>
+ * Rings of subscribers not seen for the TTL are evicted periodically. The maximal size is
+ * enforced when a ring is created: once it is exceeded the least recently used rings are evicted
+ * down to 1/16 below the maximum, so that the sort is not repeated for every new subscriber.
+ * Concurrent requests of new subscribers may exceed the maximum by the number of such requests.
+ * Unused quintets of an evicted ring are dropped, which leaves a gap in the SQN sequence allowed
+ * by 3GPP TS 33.102.
+ *
+ * @param <K>  Type of the subscriber identifier.
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class VectorPool<K> implements Closeable {
+
+    private final QuintetSupplier<K> supplier;
+    private final ScheduledExecutorService executor;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final long ttlNanos;
+    private final int maxSubscribers;
+    private final Map<K, VectorRing> rings = new ConcurrentHashMap<>();
+    private final ScheduledFuture<?> sweeper;
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param supplier  Generator of quintets.
+     * @param executor  Executor of refill tasks and of the periodic eviction.
+     * @param lowWatermark  Number of ready quintets below which a ring is refilled.
+     * @param highWatermark  Number of ready quintets a ring is refilled to.
+     * @param ttl  Time of inactivity after which a ring is evicted.
+     * @param unit  Unit of {@code ttl}.
+     * @param maxSubscribers  Maximal number of rings.
+     */
+    public VectorPool(QuintetSupplier<K> supplier, ScheduledExecutorService executor,
+                      int lowWatermark, int highWatermark, long ttl, TimeUnit unit, int maxSubscribers) {
+        if(lowWatermark < 0 || highWatermark <= lowWatermark || maxSubscribers <= 0) {
+            throw new IllegalArgumentException("Invalid watermarks or size");
+        }
+        this.supplier = supplier;
+        this.executor = executor;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxSubscribers = maxSubscribers;
+
+        long period = Math.max(1, ttlNanos / 2);
+        sweeper = executor.scheduleAtFixedRate(this::evict, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a supplier generating quintets with {@link QuintetGenerator}s and SQN ranges
+     * claimed from the reserver, e.g. {@code threegpp.milenage.sqn.SqnManager}.
+     *
+     * @param generators  Generator of a subscriber.
+     * @param reserver  Allocator of SQN values.
+     * @param policy  Rule producing SQN values inside a reserved range.
+     * @param amf  A 16-bit AMF value
+     * @param <K>  Type of the subscriber identifier.
+     * @return  {@link QuintetSupplier} object.
+     */
+    public static <K> QuintetSupplier<K> supplier(final Function<K, QuintetGenerator> generators,
+                                                  final QuintetSupplier.SqnReserver<K> reserver,
+                                                  final SqnPolicy policy, final byte [] amf) {
+        return (subscriber, count, dst, offset) ->
+                generators.apply(subscriber).generate(count, reserver.reserve(subscriber, count), policy, amf, dst, offset);
+    }
+
+    /**
+     * Takes a quintet of the subscriber.
+     *
+     * @param subscriber  Subscriber identifier.
+     * @return  {@link Quintet} object.
+     * @throws IOException  If the quintet has to be generated and SQN cannot be allocated.
+     * @throws InterruptedException  If interrupted while allocating SQN.
+     */
+    public Quintet take(K subscriber) throws IOException, InterruptedException {
+        Quintet quintet = new Quintet();
+
+        take(subscriber, quintet.getData(), 0);
+        return quintet;
+    }
+
+    /**
+     * Takes a quintet of the subscriber into an array in the layout of {@link Quintet}.
+     *
+     * @param subscriber  Subscriber identifier.
+     * @param dst  Destination array.
+     * @param offset  Position inside {@code dst}, {@link Quintet#LENGTH} bytes are written.
+     * @throws IOException  If the quintet has to be generated and SQN cannot be allocated.
+     * @throws InterruptedException  If interrupted while allocating SQN.
+     */
+    public void take(K subscriber, byte [] dst, int offset) throws IOException, InterruptedException {
+        if(offset < 0 || offset + Quintet.LENGTH > dst.length) {
+            throw new IndexOutOfBoundsException("Destination is too small for Quintet");
+        }
+        VectorRing ring = rings.get(subscriber);
+
+        if(null == ring) {
+            ring = createRing(subscriber);
+        } else {
+            ring.lastAccess = System.nanoTime();
+        }
+
+        boolean hit = ring.poll(dst, offset);
+
+        if(!hit) {
+            synchronized(ring.generationLock) {
+                // a refill may have completed while waiting, its quintets precede a new one
+                hit = ring.poll(dst, offset);
+                if(!hit) {
+                    supplier.generate(subscriber, 1, dst, offset);
+                    generated.incrementAndGet();
+                }
+            }
+        }
+        if(ring.size() < lowWatermark) {
+            scheduleRefill(subscriber, ring);
+        }
+        if(hit) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return  Number of requests served from a ring.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return  Number of requests served by synchronous generation.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return  Share of requests served from a ring, 0 if there were no requests.
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return  Number of quintets generated, in background and synchronously.
+     */
+    public long getGenerated() {
+        return generated.get();
+    }
+
+    /**
+     * @return  Number of evicted rings.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return  Number of failed background refills.
+     */
+    public long getRefillFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return  Number of subscribers having a ring.
+     */
+    public int size() {
+        return rings.size();
+    }
+
+    /**
+     * @param subscriber  Subscriber identifier.
+     * @return  Number of ready quintets of the subscriber.
+     */
+    public int available(K subscriber) {
+        VectorRing ring = rings.get(subscriber);
+
+        return null == ring ? 0 : ring.size();
+    }
+
+    /**
+     * Evicts rings not used for the TTL and, above the maximal size, the least recently used ones.
+     * Called periodically by the executor.
+     */
+    public void evict() {
+        long now = System.nanoTime();
+
+        rings.entrySet().removeIf(entry -> {
+            boolean expired = now - entry.getValue().lastAccess > ttlNanos;
+            if(expired) {
+                evictions.incrementAndGet();
+            }
+            return expired;
+        });
+        trim(maxSubscribers);
+    }
+
+    /**
+     * Stops the periodic eviction, the executor is not shut down.
+     */
+    @Override
+    public void close() {
+        sweeper.cancel(false);
+        rings.clear();
+    }
+
+    /**
+     * Inserts a ring of a new subscriber and evicts least recently used rings if there are too many.
+     */
+    private VectorRing createRing(K subscriber) {
+        VectorRing created = new VectorRing(highWatermark);
+        created.lastAccess = System.nanoTime();
+
+        VectorRing ring = rings.putIfAbsent(subscriber, created);
+        if(null != ring) {
+            ring.lastAccess = created.lastAccess;
+            return ring;
+        }
+        if(rings.size() > maxSubscribers && trimming.compareAndSet(false, true)) {
+            try {
+                trim(maxSubscribers - maxSubscribers / 16);
+            } finally {
+                trimming.set(false);
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Evicts least recently used rings until at most {@code target} rings are left.
+     */
+    private void trim(int target) {
+        int excess = rings.size() - target;
+        if(excess <= 0) {
+            return;
+        }
+        List<Map.Entry<K, VectorRing>> entries = new ArrayList<>(rings.entrySet());
+        entries.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+
+        for(int i = 0; i < excess && i < entries.size(); i++) {
+            Map.Entry<K, VectorRing> entry = entries.get(i);
+
+            if(rings.remove(entry.getKey(), entry.getValue())) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void scheduleRefill(final K subscriber, final VectorRing ring) {
+        if(!ring.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                synchronized(ring.generationLock) {
+                    int count = Math.min(highWatermark, ring.capacity()) - ring.size();
+
+                    if(count > 0) {
+                        byte [] buffer = new byte [count * Quintet.LENGTH];
+
+                        supplier.generate(subscriber, count, buffer, 0);
+                        generated.addAndGet(count);
+                        for(int i = 0; i < count; i++) {
+                            if(!ring.offer(buffer, i * Quintet.LENGTH)) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+
+            } catch (InterruptedException e) {
+                failures.incrementAndGet();
+                Thread.currentThread().interrupt();
+
+            } finally {
+                ring.refilling.set(false);
+            }
+        });
+    }
+}
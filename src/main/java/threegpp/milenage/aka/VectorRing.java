@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <h1>VectorRing</h1>
+ * <p>
+ * Lock-free bounded multi-producer multi-consumer ring of quintets stored in a flat array.
+ * <p>
+ * Every slot has a sequence number telling whether it is free for the producer of a lap or
+ * filled for the consumer of that lap (D. Vyukov's bounded MPMC queue), so neither side locks.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+final class VectorRing {
+
+    final AtomicBoolean refilling = new AtomicBoolean();
+    /**
+     * Held while quintets of the ring's subscriber are generated, so SQN ranges are reserved
+     * in the order the quintets are served.
+     */
+    final Object generationLock = new Object();
+    volatile long lastAccess;
+
+    private final byte [] data;
+    private final AtomicLongArray sequence;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param minCapacity  Minimal number of quintets, rounded up to a power of two.
+     */
+    VectorRing(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(1, minCapacity - 1)) << 1;
+
+        data = new byte [capacity * Quintet.LENGTH];
+        sequence = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++) {
+            sequence.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return  {@code false} if the ring is full.
+     */
+    boolean offer(byte [] src, int offset) {
+        long pos = tail.get();
+        int slot;
+
+        for(;;) {
+            slot = (int) (pos & mask);
+            long diff = sequence.get(slot) - pos;
+
+            if(diff == 0) {
+                if(tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if(diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+        System.arraycopy(src, offset, data, slot * Quintet.LENGTH, Quintet.LENGTH);
+        sequence.set(slot, pos + 1);
+        return true;
+    }
+
+    /**
+     * @return  {@code false} if the ring is empty.
+     */
+    boolean poll(byte [] dst, int offset) {
+        long pos = head.get();
+        int slot;
+
+        for(;;) {
+            slot = (int) (pos & mask);
+            long diff = sequence.get(slot) - (pos + 1);
+
+            if(diff == 0) {
+                if(head.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = head.get();
+            } else if(diff < 0) {
+                return false;
+            } else {
+                pos = head.get();
+            }
+        }
+        System.arraycopy(data, slot * Quintet.LENGTH, dst, offset, Quintet.LENGTH);
+        sequence.set(slot, pos + mask + 1);
+        return true;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -20,6 +20,7 @@ package threegpp.milenage.biginteger;
 
 import threegpp.milenage.Milenage;
 import threegpp.milenage.MilenageBuffer;
+import threegpp.milenage.cipher.BlockEngine;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -105,6 +106,17 @@ public class BigIntegerBuffer implements MilenageBuffer<BigInteger> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<BigInteger> encrypt(BlockEngine engine) {
+        byte [] block = toBytes();
+
+        engine.encryptBlock(block, 0, block, 0);
+        return new BigIntegerBuffer(block);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.bulk;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.cipher.AesEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>BulkOpcCalculator</h1>
+ * <p>
+ * Streaming OPc derivation for large numbers of subscribers (OPC = OP ⊕ E[OP]K).
+ * <p>
+ * Input is a stream of fixed-size binary records: either K only (16 bytes) when OP is
+ * common for all subscribers and passed to the constructor, or K followed by OP (32 bytes).
+ * Output is a stream of 16-byte OPc records in the input order.
+ * <p>
+ * Records are processed in chunks. Every chunk is split between the tasks of an
+ * {@link ExecutorService}; the next chunk is read and the previous one is written while the
+ * current one is calculated. Keys are expanded with {@link AesEngine} straight from the input
+ * buffer.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class BulkOpcCalculator {
+
+    public static final int DEFAULT_CHUNK_RECORDS = 64 * 1024;
+
+    private static final int KEY_LEN = Milenage.BLOCK_LEN_BYTES;
+
+    private final boolean commonOp;
+    private final long opHi;
+    private final long opLo;
+    private final ExecutorService executor;
+    private final int chunkRecords;
+    private final int parallelism;
+
+    /**
+     * Creates calculator for input records containing K only.
+     *
+     * @param op  Operator Variant Algorithm Configuration Field common for all records.
+     * @param executor  {@link ExecutorService} calculating the chunks.
+     * @param parallelism  Number of tasks each chunk is split into.
+     * @param chunkRecords  Number of records in a chunk.
+     */
+    public BulkOpcCalculator(byte [] op, ExecutorService executor, int parallelism, int chunkRecords) {
+        this(true, op, executor, parallelism, chunkRecords);
+    }
+
+    /**
+     * Creates calculator for input records containing K followed by OP.
+     *
+     * @param executor  {@link ExecutorService} calculating the chunks.
+     * @param parallelism  Number of tasks each chunk is split into.
+     * @param chunkRecords  Number of records in a chunk.
+     */
+    public BulkOpcCalculator(ExecutorService executor, int parallelism, int chunkRecords) {
+        this(false, new byte [Milenage.BLOCK_LEN_BYTES], executor, parallelism, chunkRecords);
+    }
+
+    private BulkOpcCalculator(boolean commonOp, byte [] op, ExecutorService executor,
+                              int parallelism, int chunkRecords) {
+        if(op.length != Milenage.BLOCK_LEN_BYTES) {
+            throw new IllegalArgumentException("Invalid length of OP buffer");
+        }
+        if(parallelism <= 0 || chunkRecords <= 0) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+        }
+        ByteBuffer opBuffer = ByteBuffer.wrap(op);
+
+        this.commonOp = commonOp;
+        this.opHi = opBuffer.getLong(0);
+        this.opLo = opBuffer.getLong(Milenage.HALF_BUFFER_BYTES);
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.chunkRecords = chunkRecords;
+    }
+
+    /**
+     * @return  Size of an input record in bytes.
+     */
+    public int getInputRecordLength() {
+        return commonOp ? KEY_LEN : KEY_LEN + Milenage.BLOCK_LEN_BYTES;
+    }
+
+    /**
+     * Calculates OPc values for all records of a stream.
+     *
+     * @param in  Source of input records.
+     * @param out  Destination of OPc records.
+     * @param listener  {@link ProgressListener} or {@code null}.
+     * @return  Number of processed records.
+     * @throws IOException  If reading or writing fails, or the input ends inside a record.
+     * @throws InterruptedException  If interrupted while waiting for the calculation tasks.
+     */
+    public long calculate(InputStream in, OutputStream out, ProgressListener listener)
+            throws IOException, InterruptedException {
+        return calculate(Channels.newChannel(in), Channels.newChannel(out), listener);
+    }
+
+    /**
+     * Calculates OPc values for all records of a channel.
+     *
+     * @param in  Source of input records.
+     * @param out  Destination of OPc records.
+     * @param listener  {@link ProgressListener} or {@code null}.
+     * @return  Number of processed records.
+     * @throws IOException  If reading or writing fails, or the input ends inside a record.
+     * @throws InterruptedException  If interrupted while waiting for the calculation tasks.
+     */
+    public long calculate(ReadableByteChannel in, WritableByteChannel out, ProgressListener listener)
+            throws IOException, InterruptedException {
+        int inRecord = getInputRecordLength();
+        ByteBuffer [] inputs = {
+                ByteBuffer.allocate(inRecord * chunkRecords),
+                ByteBuffer.allocate(inRecord * chunkRecords)
+        };
+        ByteBuffer [] outputs = {
+                ByteBuffer.allocate(Milenage.BLOCK_LEN_BYTES * chunkRecords),
+                ByteBuffer.allocate(Milenage.BLOCK_LEN_BYTES * chunkRecords)
+        };
+        long start = System.nanoTime();
+        long written = 0;
+        int pending = -1;
+        int cur = 0;
+        int records = fill(in, inputs[cur], inRecord);
+
+        while(records > 0) {
+            List<Future<Void>> tasks = submit(inputs[cur], outputs[cur], records);
+
+            // overlap I/O of the neighbour chunks with the calculation of the current one
+            if(pending >= 0) {
+                written += drain(out, outputs[pending], listener, written, start);
+            }
+            int next = fill(in, inputs[cur ^ 1], inRecord);
+
+            await(tasks);
+            outputs[cur].limit(records * Milenage.BLOCK_LEN_BYTES);
+            pending = cur;
+            cur ^= 1;
+            records = next;
+        }
+        if(pending >= 0) {
+            written += drain(out, outputs[pending], listener, written, start);
+        }
+        return written;
+    }
+
+    private List<Future<Void>> submit(ByteBuffer input, ByteBuffer output, int records) {
+        int slice = (records + parallelism - 1) / parallelism;
+        List<Future<Void>> tasks = new ArrayList<>(parallelism);
+
+        for(int from = 0; from < records; from += slice) {
+            tasks.add(executor.submit(new Slice(input, output, from, Math.min(records, from + slice))));
+        }
+        return tasks;
+    }
+
+    private static void await(List<Future<Void>> tasks) throws InterruptedException, IOException {
+        for(Future<Void> task: tasks) {
+            try {
+                task.get();
+
+            } catch (ExecutionException e) {
+                throw new IOException("OPc calculation failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Reads as many whole records as fit into the buffer.
+     *
+     * @return  Number of records read, 0 at the end of stream.
+     */
+    private static int fill(ReadableByteChannel in, ByteBuffer buffer, int recordLength) throws IOException {
+        buffer.clear();
+        while(buffer.hasRemaining()) {
+            if(in.read(buffer) < 0) {
+                break;
+            }
+        }
+        if(buffer.position() % recordLength != 0) {
+            throw new IOException("Input ends inside a record");
+        }
+        return buffer.position() / recordLength;
+    }
+
+    private static long drain(WritableByteChannel out, ByteBuffer buffer, ProgressListener listener,
+                              long written, long start) throws IOException {
+        buffer.position(0);
+        long records = buffer.remaining() / Milenage.BLOCK_LEN_BYTES;
+
+        while(buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+        if(null != listener) {
+            listener.onProgress(written + records, System.nanoTime() - start);
+        }
+        return records;
+    }
+
+    /**
+     * Calculates a contiguous range of records of a chunk.
+     */
+    private final class Slice implements Callable<Void> {
+        private final ByteBuffer input;
+        private final ByteBuffer output;
+        private final int from;
+        private final int to;
+
+        Slice(ByteBuffer input, ByteBuffer output, int from, int to) {
+            this.input = input;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Void call() {
+            byte [] in = input.array();
+            int inRecord = getInputRecordLength();
+            long [] cipherText = new long [2];
+
+            for(int i = from; i < to; i++) {
+                int offset = i * inRecord;
+                long hi = opHi;
+                long lo = opLo;
+                if(!commonOp) {
+                    hi = input.getLong(offset + KEY_LEN);
+                    lo = input.getLong(offset + KEY_LEN + Milenage.HALF_BUFFER_BYTES);
+                }
+                new AesEngine(in, offset, KEY_LEN).encryptBlock(hi, lo, cipherText);
+
+                int outOffset = i * Milenage.BLOCK_LEN_BYTES;
+                output.putLong(outOffset, cipherText[0] ^ hi);
+                output.putLong(outOffset + Milenage.HALF_BUFFER_BYTES, cipherText[1] ^ lo);
+            }
+            return null;
+        }
+    }
+}
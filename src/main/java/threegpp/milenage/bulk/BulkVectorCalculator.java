@@ -0,0 +1,323 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.bulk;
+
+import threegpp.milenage.CConstants;
+import threegpp.milenage.Constants;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageCore;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.MutableMilenageBuffer;
+import threegpp.milenage.RConstants;
+import threegpp.milenage.cipher.AesEngine;
+import threegpp.milenage.cipher.BlockEngine;
+import threegpp.milenage.primitive.PrimitiveBuffer;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <h1>BulkVectorCalculator</h1>
+ * <p>
+ * Calculates authentication vectors for large batches of different subscribers.
+ * <p>
+ * Records of a {@link SubscriberBatch} are split between the workers of a {@link ForkJoinPool}.
+ * Every worker thread has its own scratch buffers, the key of each record is either the
+ * {@link BlockEngine} set for it or is expanded with {@link AesEngine} straight from the flat
+ * K array, and TEMP, OUT1 ... OUT5 are calculated by {@link MilenageCore} without a
+ * {@link Milenage} object. Results are written into a shared array in the layout
+ * of {@link MilenageOutput}, vector i at {@code offset + i * MilenageOutput.LENGTH}.
+ * <p>
+ * The batch can also be consumed as a {@link Stream} of {@link MilenageOutput} views, with
+ * vectors calculated lazily by the stream's {@link Spliterator}.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class BulkVectorCalculator {
+
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    private static final int BLOCK = Milenage.BLOCK_LEN_BYTES;
+    private static final int OUT_OFFSET = MilenageCore.OUT_OFFSET;
+    private static final int ALL_OUT_BLOCKS = (1 << Constants.CONST_NUM) - 1;
+    private static final MilenageResult [] RESULTS = MilenageResult.values();
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final CConstants<PrimitiveBuffer> c;
+    private final RConstants r;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * Creates calculator using sample C and R constants of 3GPP TS 35.206.
+     *
+     * @param pool  {@link ForkJoinPool} running the calculations.
+     * @param threshold  Number of records below which a task is not split any further.
+     */
+    public BulkVectorCalculator(ForkJoinPool pool, int threshold) {
+        this(pool, threshold, new CConstants<>(PrimitiveBufferFactory.getInstance()), new RConstants());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pool  {@link ForkJoinPool} running the calculations.
+     * @param threshold  Number of records below which a task is not split any further.
+     * @param cConstants  Block of C constants (C1...C5)
+     * @param rConstants  Block of R constants (R1...R5)
+     */
+    public BulkVectorCalculator(ForkJoinPool pool, int threshold,
+                                CConstants<PrimitiveBuffer> cConstants, RConstants rConstants) {
+        if(threshold <= 0) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+        c = cConstants;
+        r = rConstants;
+    }
+
+    /**
+     * Calculates vectors of the whole batch.
+     *
+     * @param batch  Input records.
+     * @return  Array holding {@code batch.size()} vectors in the layout of {@link MilenageOutput}.
+     */
+    public byte [] calculate(SubscriberBatch batch) {
+        byte [] out = new byte [batch.size() * MilenageOutput.LENGTH];
+
+        calculate(batch, out, 0);
+        return out;
+    }
+
+    /**
+     * Calculates vectors of the whole batch into a caller-supplied array.
+     *
+     * @param batch  Input records.
+     * @param out  Destination array.
+     * @param offset  Position of the first vector inside {@code out}.
+     */
+    public void calculate(SubscriberBatch batch, byte [] out, int offset) {
+        checkDestination(batch, out, offset);
+        pool.invoke(new Task(batch, out, offset, 0, batch.size()));
+    }
+
+    /**
+     * Starts calculation of the whole batch without waiting for it.
+     * <p>
+     * Several batches can be in flight at once, their tasks share the workers of the pool.
+     *
+     * @param batch  Input records.
+     * @param out  Destination array.
+     * @param offset  Position of the first vector inside {@code out}.
+     * @return  {@link CompletableFuture} completed when all vectors of the batch are written.
+     */
+    public CompletableFuture<Void> calculateAsync(SubscriberBatch batch, byte [] out, int offset) {
+        checkDestination(batch, out, offset);
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Task task = new Task(batch, out, offset, 0, batch.size());
+
+        pool.execute(() -> {
+            try {
+                task.invoke();
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Creates a {@link Spliterator} calculating vectors of the batch on traversal.
+     * <p>
+     * Each element is a view on the region of {@code out} the vector has just been written to.
+     * Vectors are calculated only when elements are traversed, terminal operations that can be
+     * answered from the size alone (e.g. {@code count()}) calculate nothing.
+     *
+     * @param batch  Input records.
+     * @param out  Destination array.
+     * @param offset  Position of the first vector inside {@code out}.
+     * @return  {@link Spliterator} object.
+     */
+    public Spliterator<MilenageOutput> spliterator(SubscriberBatch batch, byte [] out, int offset) {
+        checkDestination(batch, out, offset);
+        return new VectorSpliterator(batch, out, offset, 0, batch.size());
+    }
+
+    /**
+     * @param batch  Input records.
+     * @param out  Destination array.
+     * @param offset  Position of the first vector inside {@code out}.
+     * @param parallel  Whether the stream is parallel.
+     * @return  {@link Stream} of calculated vectors.
+     * @see #spliterator(SubscriberBatch, byte[], int)
+     */
+    public Stream<MilenageOutput> stream(SubscriberBatch batch, byte [] out, int offset, boolean parallel) {
+        return StreamSupport.stream(spliterator(batch, out, offset), parallel);
+    }
+
+    /**
+     * Calculates vectors of records {@code from} (inclusive) ... {@code to} (exclusive).
+     */
+    private void calculateRange(SubscriberBatch batch, byte [] out, int offset, int from, int to) {
+        Worker w = workers.get();
+
+        for(int i = from; i < to; i++) {
+            calculateRecord(w, batch, i, out, offset + i * MilenageOutput.LENGTH);
+        }
+    }
+
+    private void calculateRecord(Worker w, SubscriberBatch batch, int i, byte [] out, int outOffset) {
+        BlockEngine key = batch.getEngine(i);
+
+        if(null == key) {
+            key = new AesEngine(batch.getK(), i * BLOCK, BLOCK);
+        }
+        System.arraycopy(batch.getSqn(), i * Milenage.SQN_LEN_BYTES, w.sqn, 0, Milenage.SQN_LEN_BYTES);
+        System.arraycopy(batch.getAmf(), i * Milenage.AMF_LEN_BYTES, w.amf, 0, Milenage.AMF_LEN_BYTES);
+
+        MutableMilenageBuffer<long []> opc = w.opc.load(batch.getOPc(), i * BLOCK);
+        MutableMilenageBuffer<long []> tmp = MilenageCore.temp(opc, key, w.scratch, batch.getRand(), i * BLOCK);
+        byte [] blocks = MilenageCore.outBlocks(opc, key, c, r, w.scratch, tmp, w.sqn, w.amf, ALL_OUT_BLOCKS);
+
+        for(MilenageResult result: RESULTS) {
+            System.arraycopy(blocks, OUT_OFFSET + result.getOutIndex() * BLOCK + result.getOutOffset(),
+                    out, outOffset + result.getOffset(), result.getLength());
+        }
+    }
+
+    private static void checkDestination(SubscriberBatch batch, byte [] out, int offset) {
+        if(offset < 0 || offset + (long) batch.size() * MilenageOutput.LENGTH > out.length) {
+            throw new IndexOutOfBoundsException("Destination is too small for the batch");
+        }
+    }
+
+    /**
+     * Per-thread set of scratch buffers.
+     */
+    private static final class Worker {
+        final MutableMilenageBuffer<long []> opc = PrimitiveBufferFactory.getInstance().createScratch();
+        final MilenageCore.Scratch<long []> scratch = PrimitiveBufferFactory.getInstance().getScratch();
+        final byte [] sqn = new byte [Milenage.SQN_LEN_BYTES];
+        final byte [] amf = new byte [Milenage.AMF_LEN_BYTES];
+    }
+
+    private final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SubscriberBatch batch;
+        private final byte [] out;
+        private final int offset;
+        private final int from;
+        private final int to;
+
+        Task(SubscriberBatch batch, byte [] out, int offset, int from, int to) {
+            this.batch = batch;
+            this.out = out;
+            this.offset = offset;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= threshold) {
+                calculateRange(batch, out, offset, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+
+            invokeAll(new Task(batch, out, offset, from, middle), new Task(batch, out, offset, middle, to));
+        }
+    }
+
+    private final class VectorSpliterator implements Spliterator<MilenageOutput> {
+        private final SubscriberBatch batch;
+        private final byte [] out;
+        private final int offset;
+        private int index;
+        private final int fence;
+
+        VectorSpliterator(SubscriberBatch batch, byte [] out, int offset, int index, int fence) {
+            this.batch = batch;
+            this.out = out;
+            this.offset = offset;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super MilenageOutput> action) {
+            if(index >= fence) {
+                return false;
+            }
+            action.accept(next(workers.get()));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super MilenageOutput> action) {
+            Worker w = workers.get();
+
+            while(index < fence) {
+                action.accept(next(w));
+            }
+        }
+
+        @Override
+        public Spliterator<MilenageOutput> trySplit() {
+            int middle = (index + fence) >>> 1;
+
+            if(middle - index < threshold) {
+                return null;
+            }
+            Spliterator<MilenageOutput> prefix = new VectorSpliterator(batch, out, offset, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+
+        private MilenageOutput next(Worker w) {
+            int outOffset = offset + index * MilenageOutput.LENGTH;
+
+            calculateRecord(w, batch, index++, out, outOffset);
+            return new MilenageOutput(out, outOffset);
+        }
+    }
+}
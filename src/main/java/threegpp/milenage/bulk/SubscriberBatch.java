@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.bulk;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.cipher.BlockEngine;
+
+/**
+ * <h1>SubscriberBatch</h1>
+ * <p>
+ * Batch of authentication vector requests of different subscribers laid out in flat arrays.
+ * <p>
+ * Record i consists of K, OPc and RAND (16 bytes each) at i * 16, SQN (6 bytes) at i * 6 and
+ * AMF (2 bytes) at i * 2 of the corresponding arrays. Arrays are used as is, without copying.
+ * <p>
+ * A record may carry an already expanded {@link BlockEngine} instead of K, e.g. an
+ * {@link threegpp.milenage.cipher.AesEngine} kept per subscriber, which spares the key schedule
+ * expansion of every vector calculated for the same subscriber. K of such a record is ignored.
+ * Engines are called from the worker threads of the calculator and have to be thread-safe.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ * @see BulkVectorCalculator
+ */
+public class SubscriberBatch {
+
+    private final byte [] k;
+    private final byte [] opc;
+    private final byte [] rand;
+    private final byte [] sqn;
+    private final byte [] amf;
+    private final int size;
+    private BlockEngine [] engines;
+
+    /**
+     * Creates a batch with zeroed arrays to be filled with {@link #set(int, byte[], byte[], byte[], byte[], byte[])}.
+     *
+     * @param size  Number of records.
+     */
+    public SubscriberBatch(int size) {
+        this(new byte [size * Milenage.BLOCK_LEN_BYTES],
+                new byte [size * Milenage.BLOCK_LEN_BYTES],
+                new byte [size * Milenage.BLOCK_LEN_BYTES],
+                new byte [size * Milenage.SQN_LEN_BYTES],
+                new byte [size * Milenage.AMF_LEN_BYTES]);
+    }
+
+    /**
+     * Creates a batch on top of existing arrays.
+     *
+     * @param k  Subscriber keys.
+     * @param opc  OPc values.
+     * @param rand  RAND values.
+     * @param sqn  SQN values.
+     * @param amf  AMF values.
+     * @throws IllegalArgumentException  If the arrays hold different numbers of records.
+     */
+    public SubscriberBatch(byte [] k, byte [] opc, byte [] rand, byte [] sqn, byte [] amf) {
+        this(k, opc, rand, sqn, amf, k.length / Milenage.BLOCK_LEN_BYTES);
+
+        if(k.length % Milenage.BLOCK_LEN_BYTES != 0) {
+            throw new IllegalArgumentException("K array length is not a multiple of " + Milenage.BLOCK_LEN_BYTES);
+        }
+        if(opc.length != k.length || rand.length != k.length
+                || sqn.length != size * Milenage.SQN_LEN_BYTES
+                || amf.length != size * Milenage.AMF_LEN_BYTES) {
+            throw new IllegalArgumentException("Arrays hold different numbers of records");
+        }
+    }
+
+    /**
+     * Creates a batch of the first records of existing arrays, e.g. of a partially filled
+     * reusable set of arrays.
+     *
+     * @param k  Subscriber keys.
+     * @param opc  OPc values.
+     * @param rand  RAND values.
+     * @param sqn  SQN values.
+     * @param amf  AMF values.
+     * @param size  Number of records.
+     * @throws IllegalArgumentException  If an array holds less than {@code size} records.
+     */
+    public SubscriberBatch(byte [] k, byte [] opc, byte [] rand, byte [] sqn, byte [] amf, int size) {
+        if(size < 0 || k.length < size * Milenage.BLOCK_LEN_BYTES
+                || opc.length < size * Milenage.BLOCK_LEN_BYTES
+                || rand.length < size * Milenage.BLOCK_LEN_BYTES
+                || sqn.length < size * Milenage.SQN_LEN_BYTES
+                || amf.length < size * Milenage.AMF_LEN_BYTES) {
+            throw new IllegalArgumentException("Arrays hold less than " + size + " records");
+        }
+        this.size = size;
+        this.k = k;
+        this.opc = opc;
+        this.rand = rand;
+        this.sqn = sqn;
+        this.amf = amf;
+    }
+
+    /**
+     * Fills a record.
+     *
+     * @param index  Zero based index of the record.
+     * @param kValue  Subscriber key (K).
+     * @param opcValue  OPc value.
+     * @param randValue  RAND value.
+     * @param sqnValue  A 48-bit SQN value.
+     * @param amfValue  A 16-bit AMF value.
+     */
+    public void set(int index, byte [] kValue, byte [] opcValue, byte [] randValue, byte [] sqnValue, byte [] amfValue) {
+        setEngine(index, null);
+        System.arraycopy(kValue, 0, k, index * Milenage.BLOCK_LEN_BYTES, Milenage.BLOCK_LEN_BYTES);
+        setValues(index, opcValue, randValue, sqnValue, amfValue);
+    }
+
+    private void setValues(int index, byte [] opcValue, byte [] randValue, byte [] sqnValue, byte [] amfValue) {
+        System.arraycopy(opcValue, 0, opc, index * Milenage.BLOCK_LEN_BYTES, Milenage.BLOCK_LEN_BYTES);
+        System.arraycopy(randValue, 0, rand, index * Milenage.BLOCK_LEN_BYTES, Milenage.BLOCK_LEN_BYTES);
+        System.arraycopy(sqnValue, 0, sqn, index * Milenage.SQN_LEN_BYTES, Milenage.SQN_LEN_BYTES);
+        System.arraycopy(amfValue, 0, amf, index * Milenage.AMF_LEN_BYTES, Milenage.AMF_LEN_BYTES);
+    }
+
+    /**
+     * Fills a record whose key is an already expanded {@link BlockEngine}.
+     *
+     * @param index  Zero based index of the record.
+     * @param key  Cipher of the subscriber key, used as is by the calculating thread.
+     * @param opcValue  OPc value.
+     * @param randValue  RAND value.
+     * @param sqnValue  A 48-bit SQN value.
+     * @param amfValue  A 16-bit AMF value.
+     */
+    public void set(int index, BlockEngine key, byte [] opcValue, byte [] randValue, byte [] sqnValue, byte [] amfValue) {
+        if(null == key) {
+            throw new NullPointerException("Key engine is null");
+        }
+        setEngine(index, key);
+        setValues(index, opcValue, randValue, sqnValue, amfValue);
+    }
+
+    /**
+     * Sets the cipher used for a record instead of its K.
+     *
+     * @param index  Zero based index of the record.
+     * @param key  Cipher of the subscriber key, {@code null} switches the record back to K.
+     */
+    public void setEngine(int index, BlockEngine key) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Record index out of range: " + index);
+        }
+        if(null == engines) {
+            if(null == key) {
+                return;
+            }
+            engines = new BlockEngine [size];
+        }
+        engines[index] = key;
+    }
+
+    /**
+     * @param index  Zero based index of the record.
+     * @return  Cipher set for the record or {@code null} if the record uses K.
+     */
+    public BlockEngine getEngine(int index) {
+        return null == engines ? null : engines[index];
+    }
+
+    /**
+     * @return  Number of records.
+     */
+    public int size() {
+        return size;
+    }
+
+    public byte [] getK() {
+        return k;
+    }
+
+    public byte [] getOPc() {
+        return opc;
+    }
+
+    public byte [] getRand() {
+        return rand;
+    }
+
+    public byte [] getSqn() {
+        return sqn;
+    }
+
+    public byte [] getAmf() {
+        return amf;
+    }
+}
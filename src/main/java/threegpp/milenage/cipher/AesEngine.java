@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import javax.security.auth.Destroyable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <h1>AesEngine</h1>
+ * <p>
+ * Pure Java Rijndael (a.k.a. AES) {@link BlockEngine}, encryption direction only.
+ * <p>
+ * The key schedule is expanded once in the constructor into an {@code int} array and
+ * rounds are computed with the classic four 32-bit T-tables, so encrypting a block
+ * allocates nothing and the object is immutable and thread-safe.
+ * <p>
+ * Note that T-table lookups depend on secret data, so the implementation is not
+ * constant-time with respect to cache timing. Use {@link CipherBlockEngine} over a JCA
+ * provider where such attacks are in scope.
+ * <p>
+ * {@link #destroy()} zeroes the key schedule; the engine must not be used afterwards.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class AesEngine implements BlockEngine, Destroyable {
+
+    private static final int [] SBOX = new int [256];
+    private static final int [] T0 = new int [256];
+    private static final int [] T1 = new int [256];
+    private static final int [] T2 = new int [256];
+    private static final int [] T3 = new int [256];
+    private static final int [] RCON = new int [10];
+
+    static {
+        // S-box: multiplicative inverse in GF(2^8) followed by the affine transformation,
+        // p walks through the field by multiplying by 3 and q by its inverse.
+        int p = 1;
+        int q = 1;
+        do {
+            p = (p ^ (p << 1) ^ ((p & 0x80) != 0 ? 0x1B : 0)) & 0xFF;
+            q ^= q << 1;
+            q ^= q << 2;
+            q ^= q << 4;
+            q &= 0xFF;
+            if((q & 0x80) != 0) {
+                q ^= 0x09;
+            }
+            int x = q ^ rotl8(q, 1) ^ rotl8(q, 2) ^ rotl8(q, 3) ^ rotl8(q, 4);
+            SBOX[p] = (x ^ 0x63) & 0xFF;
+        } while(p != 1);
+        SBOX[0] = 0x63;
+
+        for(int i = 0; i < 256; i++) {
+            int s = SBOX[i];
+            int s2 = xtime(s);
+            int s3 = s2 ^ s;
+            int t = (s2 << 24) | (s << 16) | (s << 8) | s3;
+
+            T0[i] = t;
+            T1[i] = Integer.rotateRight(t, 8);
+            T2[i] = Integer.rotateRight(t, 16);
+            T3[i] = Integer.rotateRight(t, 24);
+        }
+        int rc = 1;
+        for(int i = 0; i < RCON.length; i++) {
+            RCON[i] = rc << 24;
+            rc = xtime(rc);
+        }
+    }
+
+    private final int [] roundKeys;
+    private final int rounds;
+    private volatile boolean destroyed;
+
+    /**
+     * Constructor.
+     *
+     * @param key  Ciphering key of 16, 24 or 32 bytes.
+     */
+    public AesEngine(byte [] key) {
+        this(key, 0, key.length);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param key  Array containing the ciphering key.
+     * @param offset  Position of the key inside {@code key}.
+     * @param length  Key length: 16, 24 or 32 bytes.
+     */
+    public AesEngine(byte [] key, int offset, int length) {
+        this(keyWords(key, offset, length));
+    }
+
+    /**
+     * Creates engine reading the key straight from a buffer, e.g. a memory-mapped file,
+     * without copying it to the heap first.
+     *
+     * @param key  Buffer containing the ciphering key, its position and byte order are ignored.
+     * @param offset  Absolute position of the key inside {@code key}.
+     * @param length  Key length: 16, 24 or 32 bytes.
+     */
+    public AesEngine(ByteBuffer key, int offset, int length) {
+        this(keyWords(key, offset, length));
+    }
+
+    private AesEngine(int [] keyWords) {
+        int nk = keyWords.length;
+
+        rounds = nk + 6;
+        roundKeys = new int [4 * (rounds + 1)];
+
+        System.arraycopy(keyWords, 0, roundKeys, 0, nk);
+        Arrays.fill(keyWords, 0);
+
+        for(int i = nk; i < roundKeys.length; i++) {
+            int t = roundKeys[i - 1];
+            if(i % nk == 0) {
+                t = subWord(Integer.rotateLeft(t, 8)) ^ RCON[i / nk - 1];
+            } else if(nk > 6 && i % nk == 4) {
+                t = subWord(t);
+            }
+            roundKeys[i] = roundKeys[i - nk] ^ t;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encryptBlock(byte [] in, int inOffset, byte [] out, int outOffset) {
+        encrypt(readInt(in, inOffset), readInt(in, inOffset + 4),
+                readInt(in, inOffset + 8), readInt(in, inOffset + 12), null, out, outOffset);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encryptBlocks(byte [] in, int inOffset, byte [] out, int outOffset, int blocks) {
+        for(int i = 0; i < blocks; i++, inOffset += BLOCK_SIZE, outOffset += BLOCK_SIZE) {
+            encryptBlock(in, inOffset, out, outOffset);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encryptBlock(long hi, long lo, long [] out) {
+        encrypt((int) (hi >>> 32), (int) hi, (int) (lo >>> 32), (int) lo, out, null, 0);
+    }
+
+    /**
+     * Zeroes the expanded key, encryption fails with {@link IllegalStateException} afterwards.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        Arrays.fill(roundKeys, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Encrypts a block given as four big-endian words and stores the result either in
+     * {@code longs} (when not {@code null}) or in {@code bytes}.
+     */
+    private void encrypt(int s0, int s1, int s2, int s3, long [] longs, byte [] bytes, int offset) {
+        if(destroyed) {
+            throw new IllegalStateException("AES engine has been destroyed");
+        }
+        final int [] rk = roundKeys;
+
+        s0 ^= rk[0];
+        s1 ^= rk[1];
+        s2 ^= rk[2];
+        s3 ^= rk[3];
+
+        int k = 4;
+        for(int round = 1; round < rounds; round++, k += 4) {
+            int t0 = T0[s0 >>> 24] ^ T1[(s1 >>> 16) & 0xFF] ^ T2[(s2 >>> 8) & 0xFF] ^ T3[s3 & 0xFF] ^ rk[k];
+            int t1 = T0[s1 >>> 24] ^ T1[(s2 >>> 16) & 0xFF] ^ T2[(s3 >>> 8) & 0xFF] ^ T3[s0 & 0xFF] ^ rk[k + 1];
+            int t2 = T0[s2 >>> 24] ^ T1[(s3 >>> 16) & 0xFF] ^ T2[(s0 >>> 8) & 0xFF] ^ T3[s1 & 0xFF] ^ rk[k + 2];
+            int t3 = T0[s3 >>> 24] ^ T1[(s0 >>> 16) & 0xFF] ^ T2[(s1 >>> 8) & 0xFF] ^ T3[s2 & 0xFF] ^ rk[k + 3];
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+        int r0 = lastRound(s0, s1, s2, s3) ^ rk[k];
+        int r1 = lastRound(s1, s2, s3, s0) ^ rk[k + 1];
+        int r2 = lastRound(s2, s3, s0, s1) ^ rk[k + 2];
+        int r3 = lastRound(s3, s0, s1, s2) ^ rk[k + 3];
+
+        if(null != longs) {
+            longs[0] = ((long) r0 << 32) | (r1 & 0xFFFFFFFFL);
+            longs[1] = ((long) r2 << 32) | (r3 & 0xFFFFFFFFL);
+        } else {
+            writeInt(r0, bytes, offset);
+            writeInt(r1, bytes, offset + 4);
+            writeInt(r2, bytes, offset + 8);
+            writeInt(r3, bytes, offset + 12);
+        }
+    }
+
+    private static int lastRound(int a, int b, int c, int d) {
+        return (SBOX[a >>> 24] << 24) | (SBOX[(b >>> 16) & 0xFF] << 16)
+                | (SBOX[(c >>> 8) & 0xFF] << 8) | SBOX[d & 0xFF];
+    }
+
+    private static int subWord(int w) {
+        return lastRound(w, w, w, w);
+    }
+
+    private static int xtime(int b) {
+        return ((b << 1) ^ ((b & 0x80) != 0 ? 0x1B : 0)) & 0xFF;
+    }
+
+    private static int rotl8(int x, int shift) {
+        return ((x << shift) | (x >>> (8 - shift))) & 0xFF;
+    }
+
+    private static int [] keyWords(byte [] key, int offset, int length) {
+        int [] words = new int [checkKeyLength(length) / 4];
+
+        for(int i = 0; i < words.length; i++) {
+            words[i] = readInt(key, offset + i * 4);
+        }
+        return words;
+    }
+
+    private static int [] keyWords(ByteBuffer key, int offset, int length) {
+        int [] words = new int [checkKeyLength(length) / 4];
+
+        for(int i = 0; i < words.length; i++) {
+            int j = offset + i * 4;
+            words[i] = ((key.get(j) & 0xFF) << 24) | ((key.get(j + 1) & 0xFF) << 16)
+                    | ((key.get(j + 2) & 0xFF) << 8) | (key.get(j + 3) & 0xFF);
+        }
+        return words;
+    }
+
+    private static int checkKeyLength(int length) {
+        if(length != 16 && length != 24 && length != 32) {
+            throw new IllegalArgumentException("Invalid AES key length: " + length);
+        }
+        return length;
+    }
+
+    private static int readInt(byte [] src, int offset) {
+        return ((src[offset] & 0xFF) << 24) | ((src[offset + 1] & 0xFF) << 16)
+                | ((src[offset + 2] & 0xFF) << 8) | (src[offset + 3] & 0xFF);
+    }
+
+    private static void writeInt(int v, byte [] dst, int offset) {
+        dst[offset] = (byte) (v >>> 24);
+        dst[offset + 1] = (byte) (v >>> 16);
+        dst[offset + 2] = (byte) (v >>> 8);
+        dst[offset + 3] = (byte) v;
+    }
+}
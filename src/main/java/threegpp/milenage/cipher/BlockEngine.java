@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+/**
+ * <h1>BlockEngine</h1>
+ * <p>
+ * Minimal block cipher SPI used by Milenage: encryption of a single 128-bit block
+ * with a key fixed at construction time.
+ * <p>
+ * Unlike {@link javax.crypto.Cipher}, implementations are expected to be thread-safe
+ * and to encrypt without allocating memory.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public interface BlockEngine {
+
+    /**
+     * Size of a block in bytes.
+     */
+    int BLOCK_SIZE = 16;
+
+    /**
+     * Encrypts one block.
+     *
+     * @param in  Array containing plain text.
+     * @param inOffset  Position of the block inside {@code in}.
+     * @param out  Array receiving cipher text, may be the same as {@code in}.
+     * @param outOffset  Position of the block inside {@code out}.
+     */
+    void encryptBlock(byte [] in, int inOffset, byte [] out, int outOffset);
+
+    /**
+     * Encrypts one block represented by two big-endian {@code long} halves.
+     *
+     * @param hi  Bytes 0..7 of the plain text.
+     * @param lo  Bytes 8..15 of the plain text.
+     * @param out  Array receiving cipher text: bytes 0..7 in element 0, bytes 8..15 in element 1.
+     */
+    void encryptBlock(long hi, long lo, long [] out);
+
+    /**
+     * Encrypts several consecutive blocks in ECB mode.
+     *
+     * @param in  Array containing plain text.
+     * @param inOffset  Position of the first block inside {@code in}.
+     * @param out  Array receiving cipher text. If it is the same array as {@code in} the ranges
+     *             must either coincide or not overlap.
+     * @param outOffset  Position of the first block inside {@code out}.
+     * @param blocks  Number of blocks to encrypt.
+     */
+    void encryptBlocks(byte [] in, int inOffset, byte [] out, int outOffset, int blocks);
+}
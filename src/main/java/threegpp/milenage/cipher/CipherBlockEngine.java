@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * <h1>CipherBlockEngine</h1>
+ * <p>
+ * {@link BlockEngine} adapter over {@link Cipher} objects obtained from a {@link CipherProvider}.
+ * Thread-safe as long as the provider is.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class CipherBlockEngine implements BlockEngine {
+
+    private static final ThreadLocal<byte []> SCRATCH = new ThreadLocal<byte []>() {
+        @Override
+        protected byte [] initialValue() {
+            return new byte [BLOCK_SIZE * 2];
+        }
+    };
+
+    private final CipherProvider provider;
+
+    public CipherBlockEngine(CipherProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * @return  {@link CipherProvider} ciphers are borrowed from.
+     */
+    public CipherProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encryptBlock(byte [] in, int inOffset, byte [] out, int outOffset) {
+        encryptBlocks(in, inOffset, out, outOffset, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All blocks are passed to a single {@link Cipher#doFinal(byte[], int, int, byte[], int)} call.
+     */
+    @Override
+    public void encryptBlocks(byte [] in, int inOffset, byte [] out, int outOffset, int blocks) {
+        Cipher cipher = provider.acquire();
+        try {
+            cipher.doFinal(in, inOffset, BLOCK_SIZE * blocks, out, outOffset);
+
+        } catch (IllegalBlockSizeException|BadPaddingException|ShortBufferException e) {
+            // that can't be a case
+            throw new RuntimeException(e);
+
+        } finally {
+            provider.release(cipher);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encryptBlock(long hi, long lo, long [] out) {
+        byte [] io = SCRATCH.get();
+
+        writeLong(hi, io, 0);
+        writeLong(lo, io, 8);
+        encryptBlock(io, 0, io, BLOCK_SIZE);
+        out[0] = readLong(io, BLOCK_SIZE);
+        out[1] = readLong(io, BLOCK_SIZE + 8);
+    }
+
+    private static long readLong(byte [] src, int offset) {
+        long v = 0;
+        for(int i = offset; i < offset + 8; i++) {
+            v = (v << 8) | (src[i] & 0xFF);
+        }
+        return v;
+    }
+
+    private static void writeLong(long v, byte [] dst, int offset) {
+        for(int i = offset + 7; i >= offset; i--) {
+            dst[i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+}
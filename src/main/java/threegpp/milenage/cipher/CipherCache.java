@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h1>CipherCache</h1>
+ * <p>
+ * Bounded LRU cache of initialized {@link BlockEngine} objects keyed by the subscriber key K.
+ * <p>
+ * A cached engine is obtained with {@link #acquire(byte[])} as a {@link Lease} that has to be
+ * {@link Lease#close() closed} after use. An entry evicted while leased stays usable and is
+ * zeroized when its last lease is closed: the cache copy of K is cleared and the engine is
+ * {@link Destroyable#destroy() destroyed} if it supports that (e.g. {@link AesEngine}).
+ * <p>
+ * All methods are thread-safe. Engines are created outside of the cache lock, so a slow
+ * key expansion for one subscriber does not block lookups of others.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class CipherCache {
+
+    /**
+     * Creates engines for keys missing in the cache.
+     */
+    public interface Loader {
+
+        /**
+         * @param key  Ciphering key.
+         * @return  {@link BlockEngine} object for the key.
+         */
+        BlockEngine create(byte [] key);
+    }
+
+    private static final Loader RIJNDAEL_LOADER = new Loader() {
+        @Override
+        public BlockEngine create(byte [] key) {
+            return Ciphers.createRijndaelEngine(key);
+        }
+    };
+
+    private final int maxSize;
+    private final Loader loader;
+    private final LinkedHashMap<ByteBuffer, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates cache of {@link AesEngine} objects.
+     *
+     * @param maxSize  Maximum number of cached keys.
+     */
+    public CipherCache(int maxSize) {
+        this(maxSize, RIJNDAEL_LOADER);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize  Maximum number of cached keys.
+     * @param loader  {@link Loader} creating engines for missing keys.
+     */
+    public CipherCache(int maxSize, Loader loader) {
+        if(maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.loader = loader;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Obtains the engine for a key, creating it on a cache miss.
+     *
+     * @param key  Ciphering key (K).
+     * @return  {@link Lease} of the engine, has to be closed after use.
+     */
+    public Lease acquire(byte [] key) {
+        ByteBuffer probe = ByteBuffer.wrap(key);
+
+        synchronized (entries) {
+            Entry entry = entries.get(probe);
+            if(null != entry) {
+                hits.incrementAndGet();
+                return entry.lease();
+            }
+        }
+        misses.incrementAndGet();
+        Entry created = new Entry(Arrays.copyOf(key, key.length), loader.create(key));
+        List<Entry> evicted = new ArrayList<>(1);
+        Lease lease;
+
+        synchronized (entries) {
+            Entry entry = entries.get(probe);
+            if(null != entry) {
+                // another thread has loaded the same key meanwhile
+                evicted.add(created);
+                lease = entry.lease();
+            } else {
+                entries.put(ByteBuffer.wrap(created.key), created);
+                lease = created.lease();
+                evictOverflow(evicted);
+            }
+        }
+        zeroize(evicted);
+        return lease;
+    }
+
+    /**
+     * Removes the entry for a key, e.g. when subscriber's K is changed.
+     *
+     * @param key  Ciphering key (K).
+     */
+    public void invalidate(byte [] key) {
+        List<Entry> evicted = new ArrayList<>(1);
+
+        synchronized (entries) {
+            Entry entry = entries.remove(ByteBuffer.wrap(key));
+            if(null != entry) {
+                evicted.add(entry);
+            }
+        }
+        zeroize(evicted);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        List<Entry> evicted;
+
+        synchronized (entries) {
+            evicted = new ArrayList<>(entries.size());
+            for(Entry entry: entries.values()) {
+                evicted.add(entry);
+            }
+            entries.clear();
+        }
+        zeroize(evicted);
+    }
+
+    /**
+     * @return  Number of cached keys.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return  Maximum number of cached keys.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return  Number of {@link #acquire(byte[])} calls served from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return  Number of {@link #acquire(byte[])} calls which had to create an engine.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return  Number of entries evicted because of the size bound.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private void evictOverflow(List<Entry> evicted) {
+        Iterator<Map.Entry<ByteBuffer, Entry>> it = entries.entrySet().iterator();
+
+        while(entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            evictions.incrementAndGet();
+            evicted.add(eldest);
+        }
+    }
+
+    /**
+     * Drops the cache reference of removed entries. Must be called outside of the cache lock.
+     */
+    private void zeroize(List<Entry> evicted) {
+        for(Entry entry: evicted) {
+            entry.release();
+        }
+    }
+
+    /**
+     * Cache entry with a count of outstanding leases. The extra reference held by the cache itself
+     * is dropped on eviction, so the entry is zeroized when the count reaches zero.
+     */
+    private final class Entry {
+        final byte [] key;
+        final BlockEngine engine;
+        int refs = 1;
+
+        Entry(byte [] key, BlockEngine engine) {
+            this.key = key;
+            this.engine = engine;
+        }
+
+        /**
+         * Must be called under the cache lock.
+         */
+        Lease lease() {
+            refs++;
+            return new Lease(this);
+        }
+
+        void release() {
+            synchronized (entries) {
+                if(--refs > 0) {
+                    return;
+                }
+            }
+            Arrays.fill(key, (byte) 0);
+            if(engine instanceof Destroyable) {
+                try {
+                    ((Destroyable) engine).destroy();
+
+                } catch (DestroyFailedException e) {
+                    // the engine does not support zeroization, nothing else can be done
+                }
+            }
+        }
+    }
+
+    /**
+     * Leased {@link BlockEngine} from the cache. Encryption fails with {@link IllegalStateException}
+     * once the lease is closed.
+     */
+    public static final class Lease implements BlockEngine, AutoCloseable {
+        private final Entry entry;
+        private volatile boolean closed;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void encryptBlock(byte [] in, int inOffset, byte [] out, int outOffset) {
+            checkOpen();
+            entry.engine.encryptBlock(in, inOffset, out, outOffset);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void encryptBlock(long hi, long lo, long [] out) {
+            checkOpen();
+            entry.engine.encryptBlock(hi, lo, out);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void encryptBlocks(byte [] in, int inOffset, byte [] out, int outOffset, int blocks) {
+            checkOpen();
+            entry.engine.encryptBlocks(in, inOffset, out, outOffset, blocks);
+        }
+
+        /**
+         * Returns the engine to the cache. Subsequent calls have no effect.
+         */
+        @Override
+        public synchronized void close() {
+            if(!closed) {
+                closed = true;
+                entry.release();
+            }
+        }
+
+        private void checkOpen() {
+            if(closed) {
+                throw new IllegalStateException("Cipher lease is closed");
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import javax.crypto.Cipher;
+
+/**
+ * <h1>CipherProvider</h1>
+ * <p>
+ * Source of initialized {@link Cipher} objects sharing the same key.
+ * <p>
+ * {@link Cipher} is not thread-safe, so a thread has to {@link #acquire()} a cipher,
+ * use it exclusively and then {@link #release(Cipher)} it back. Implementations themselves
+ * are thread-safe.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public interface CipherProvider {
+
+    /**
+     * Obtain a cipher for exclusive use by the calling thread.
+     *
+     * @return  Initialized {@link Cipher} object.
+     */
+    Cipher acquire();
+
+    /**
+     * Give back a cipher previously obtained with {@link #acquire()} by the same thread.
+     *
+     * @param cipher  {@link Cipher} object to release.
+     */
+    void release(Cipher cipher);
+}
@@ -36,6 +36,9 @@ import java.security.NoSuchAlgorithmException;
  */
 public class Ciphers {
 
+    private static final String RIJNDAEL_CIPHER_ID = "AES/ECB/NoPadding";
+    private static final String RIJNDAEL_ALGO_ID = "AES";
+
     /**
      * Create Cipher from algorithm parameters and key bytes.
      *
@@ -67,6 +70,57 @@ public class Ciphers {
      * @return  {@link Cipher} object.
      */
     public static Cipher createRijndaelCipher(byte [] key) {
-        return createCipher("AES/ECB/NoPadding", "AES", key);
+        return createCipher(RIJNDAEL_CIPHER_ID, RIJNDAEL_ALGO_ID, key);
+    }
+
+    /**
+     * Create a provider of per-thread Rijndael (a.k.a. AES) ciphers.
+     *
+     * @param key  byte array representing a ciphering key.
+     * @return  {@link CipherProvider} object.
+     */
+    public static CipherProvider createRijndaelCipherProvider(byte [] key) {
+        return new ThreadLocalCipherProvider(RIJNDAEL_CIPHER_ID, RIJNDAEL_ALGO_ID, key);
+    }
+
+    /**
+     * Create a bounded pool of Rijndael (a.k.a. AES) ciphers.
+     *
+     * @param key  byte array representing a ciphering key.
+     * @param size  Maximum number of ciphers in the pool.
+     * @return  {@link CipherProvider} object.
+     */
+    public static CipherProvider createRijndaelCipherPool(byte [] key, int size) {
+        return new PooledCipherProvider(RIJNDAEL_CIPHER_ID, RIJNDAEL_ALGO_ID, key, size);
+    }
+
+    /**
+     * Create a provider sharing the given cipher between threads under a lock.
+     *
+     * @param cipher  {@link Cipher} object.
+     * @return  {@link CipherProvider} object.
+     */
+    public static CipherProvider createSharedCipherProvider(Cipher cipher) {
+        return new SharedCipherProvider(cipher);
+    }
+
+    /**
+     * Create pure Java Rijndael (a.k.a. AES) block engine.
+     *
+     * @param key  byte array representing a ciphering key.
+     * @return  {@link BlockEngine} object.
+     */
+    public static BlockEngine createRijndaelEngine(byte [] key) {
+        return new AesEngine(key);
+    }
+
+    /**
+     * Create block engine encrypting with ciphers from the given provider.
+     *
+     * @param provider  {@link CipherProvider} object.
+     * @return  {@link BlockEngine} object.
+     */
+    public static BlockEngine createBlockEngine(CipherProvider provider) {
+        return new CipherBlockEngine(provider);
     }
 }
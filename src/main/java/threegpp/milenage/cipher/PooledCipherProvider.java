@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import javax.crypto.Cipher;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>PooledCipherProvider</h1>
+ * <p>
+ * {@link CipherProvider} keeping a bounded pool of {@link Cipher} objects.
+ * <p>
+ * Ciphers are created lazily up to the pool size. When all of them are in use
+ * {@link #acquire()} blocks until another thread releases one.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class PooledCipherProvider implements CipherProvider {
+
+    private final String cipherId;
+    private final String algoId;
+    private final byte [] key;
+    private final BlockingQueue<Cipher> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final int size;
+
+    /**
+     * Constructor.
+     *
+     * @param cipherId  {@link String} representation of cipher ID for {@link Cipher#getInstance(String)}.
+     * @param algoId  {@link String} representation of algorithm ID for
+     *                {@link javax.crypto.spec.SecretKeySpec#SecretKeySpec(byte[], String)}.
+     * @param key  byte array representing a ciphering key.
+     * @param size  Maximum number of ciphers in the pool.
+     */
+    public PooledCipherProvider(String cipherId, String algoId, byte [] key, int size) {
+        if(size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.cipherId = cipherId;
+        this.algoId = algoId;
+        this.key = Arrays.copyOf(key, key.length);
+        this.size = size;
+        idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cipher acquire() {
+        Cipher cipher = idle.poll();
+        if(null != cipher) {
+            return cipher;
+        }
+        while(true) {
+            int n = created.get();
+            if(n >= size) {
+                break;
+            }
+            if(created.compareAndSet(n, n + 1)) {
+                return Ciphers.createCipher(cipherId, algoId, key);
+            }
+        }
+        try {
+            return idle.take();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a cipher", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(Cipher cipher) {
+        if(!idle.offer(cipher)) {
+            throw new IllegalStateException("Released cipher does not belong to the pool");
+        }
+    }
+
+    /**
+     * @return  Maximum number of ciphers in the pool.
+     */
+    public int getSize() {
+        return size;
+    }
+}
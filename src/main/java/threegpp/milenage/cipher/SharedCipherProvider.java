@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import javax.crypto.Cipher;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h1>SharedCipherProvider</h1>
+ * <p>
+ * {@link CipherProvider} serializing access to a single {@link Cipher} object with a lock.
+ * <p>
+ * Makes a single cipher safe to share between threads, but only one thread at a time
+ * can encrypt. Prefer {@link ThreadLocalCipherProvider} or {@link PooledCipherProvider}
+ * for concurrent use.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class SharedCipherProvider implements CipherProvider {
+
+    private final Cipher cipher;
+    private final Lock lock = new ReentrantLock();
+
+    public SharedCipherProvider(Cipher cipher) {
+        this.cipher = cipher;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cipher acquire() {
+        lock.lock();
+        return cipher;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(Cipher cipher) {
+        lock.unlock();
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import javax.crypto.Cipher;
+import java.util.Arrays;
+
+/**
+ * <h1>ThreadLocalCipherProvider</h1>
+ * <p>
+ * {@link CipherProvider} creating one {@link Cipher} per thread on first use.
+ * Releasing a cipher is a no-op.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class ThreadLocalCipherProvider implements CipherProvider {
+
+    private final ThreadLocal<Cipher> ciphers;
+
+    /**
+     * Constructor.
+     *
+     * @param cipherId  {@link String} representation of cipher ID for {@link Cipher#getInstance(String)}.
+     * @param algoId  {@link String} representation of algorithm ID for
+     *                {@link javax.crypto.spec.SecretKeySpec#SecretKeySpec(byte[], String)}.
+     * @param key  byte array representing a ciphering key.
+     */
+    public ThreadLocalCipherProvider(final String cipherId, final String algoId, byte [] key) {
+        final byte [] keyCopy = Arrays.copyOf(key, key.length);
+
+        ciphers = new ThreadLocal<Cipher>() {
+            @Override
+            protected Cipher initialValue() {
+                return Ciphers.createCipher(cipherId, algoId, keyCopy);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cipher acquire() {
+        return ciphers.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(Cipher cipher) {}
+}
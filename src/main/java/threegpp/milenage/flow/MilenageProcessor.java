@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.flow;
+
+import threegpp.milenage.AsyncExecutors;
+import threegpp.milenage.MilenageOutput;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>MilenageProcessor</h1>
+ * <p>
+ * {@link Flow.Processor} turning a stream of {@link VectorRequest}s into a stream of
+ * {@link VectorResult}s.
+ * <p>
+ * Memory use is bounded on both sides. At most {@code inputCapacity} requests are requested
+ * from upstream and not yet processed; they are kept in a bounded queue. Results are
+ * published through {@link SubmissionPublisher} with a bounded per-subscriber buffer, and a slow
+ * subscriber blocks the publishing task, which in turn stops requesting more input.
+ * <p>
+ * Requests are drained in batches of up to {@code batchSize} by a single task at a time. All
+ * vectors of a batch are calculated on one thread, reusing its scratch buffers, into one array
+ * the results are views on. Results are emitted in the order of requests. A failed calculation
+ * cancels the upstream subscription and completes subscribers exceptionally.
+ * <p>
+ * Publishing may block the draining task, so the executor must not be a single thread one.
+ *
+ * @param <A>  Type of the request attachment.
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class MilenageProcessor<A> extends SubmissionPublisher<VectorResult<A>>
+        implements Flow.Processor<VectorRequest<A>, VectorResult<A>> {
+
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    private final Executor executor;
+    private final int batchSize;
+    private final int inputCapacity;
+    private final ArrayBlockingQueue<VectorRequest<A>> input;
+    private final VectorRequest<A> [] batch;
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile Flow.Subscription upstream;
+    private volatile boolean done;
+    private volatile Throwable error;
+
+    /**
+     * Creates processor running on the {@link AsyncExecutors#getDefault() default executor} with
+     * {@link #DEFAULT_BATCH_SIZE} and {@link Flow#defaultBufferSize()} input and output capacity.
+     */
+    public MilenageProcessor() {
+        this(AsyncExecutors.getDefault(), DEFAULT_BATCH_SIZE, Flow.defaultBufferSize(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param executor  {@link Executor} running calculations and delivering results.
+     * @param batchSize  Maximal number of requests calculated at once.
+     * @param inputCapacity  Maximal number of requests buffered from upstream.
+     * @param outputCapacity  Maximal number of results buffered for each subscriber.
+     */
+    public MilenageProcessor(Executor executor, int batchSize, int inputCapacity, int outputCapacity) {
+        super(executor, outputCapacity);
+        if(batchSize <= 0 || inputCapacity < batchSize) {
+            throw new IllegalArgumentException("Invalid batch size or input capacity");
+        }
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.inputCapacity = inputCapacity;
+        input = new ArrayBlockingQueue<>(inputCapacity);
+        batch = newBatch(batchSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Requests are taken from upstream only after the first subscriber has subscribed, so that
+     * no result is dropped for the lack of subscribers.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super VectorResult<A>> subscriber) {
+        super.subscribe(subscriber);
+        start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if(null != upstream) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNext(VectorRequest<A> item) {
+        if(!input.offer(item)) {
+            upstream.cancel();
+            onError(new IllegalStateException("Upstream sent more items than requested"));
+            return;
+        }
+        schedule();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        done = true;
+        schedule();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onComplete() {
+        done = true;
+        schedule();
+    }
+
+    private void start() {
+        Flow.Subscription subscription = upstream;
+
+        if(null != subscription && hasSubscribers() && started.compareAndSet(false, true)) {
+            subscription.request(inputCapacity);
+        }
+    }
+
+    private void schedule() {
+        if(wip.getAndIncrement() == 0) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+
+        do {
+            drainAvailable();
+            missed = wip.addAndGet(-missed);
+        } while(missed != 0);
+    }
+
+    /**
+     * Calculates and publishes batches while requests are available. Runs in one task at a time.
+     */
+    private void drainAvailable() {
+        while(!isClosed()) {
+            int count = 0;
+            VectorRequest<A> request;
+
+            while(count < batchSize && null != (request = input.poll())) {
+                batch[count++] = request;
+            }
+            if(count == 0) {
+                if(done) {
+                    finish();
+                }
+                return;
+            }
+            if(!emit(count)) {
+                return;
+            }
+            upstream.request(count);
+        }
+        input.clear();
+    }
+
+    /**
+     * @param count  Number of requests in {@link #batch}.
+     * @return  {@code false} if the calculation failed and the processor is closed.
+     */
+    private boolean emit(int count) {
+        byte [] data = new byte [count * MilenageOutput.LENGTH];
+
+        try {
+            for(int i = 0; i < count; i++) {
+                VectorRequest<A> request = batch[i];
+
+                request.getMilenage().calculateAll(request.getRand(), request.getSqn(), request.getAmf(),
+                        data, i * MilenageOutput.LENGTH);
+            }
+        } catch (RuntimeException e) {
+            Arrays.fill(batch, 0, count, null);
+            upstream.cancel();
+            input.clear();
+            closeExceptionally(e);
+            return false;
+        }
+        for(int i = 0; i < count; i++) {
+            submit(new VectorResult<>(batch[i], new MilenageOutput(data, i * MilenageOutput.LENGTH)));
+            batch[i] = null;
+        }
+        return true;
+    }
+
+    private void finish() {
+        Throwable e = error;
+
+        if(null != e) {
+            closeExceptionally(e);
+        } else {
+            close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A> VectorRequest<A> [] newBatch(int size) {
+        return (VectorRequest<A> []) new VectorRequest<?> [size];
+    }
+}
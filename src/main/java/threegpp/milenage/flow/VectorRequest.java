@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.flow;
+
+import threegpp.milenage.Milenage;
+
+/**
+ * <h1>VectorRequest</h1>
+ * <p>
+ * Request of an authentication vector flowing through {@link MilenageProcessor}.
+ *
+ * @param <A>  Type of the attachment carried from the request to the result, e.g. a session id.
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class VectorRequest<A> {
+
+    private final Milenage<?> milenage;
+    private final byte [] rand;
+    private final byte [] sqn;
+    private final byte [] amf;
+    private final A attachment;
+
+    /**
+     * Constructor
+     *
+     * @param milenage  {@link Milenage} object of the subscriber.
+     * @param rand  Random value generated by the network (RAND)
+     * @param sqn  A 48-bit SQN value
+     * @param amf  A 16-bit AMF value
+     * @param attachment  Caller's object passed to the result as is, may be {@code null}.
+     */
+    public VectorRequest(Milenage<?> milenage, byte [] rand, byte [] sqn, byte [] amf, A attachment) {
+        this.milenage = milenage;
+        this.rand = rand;
+        this.sqn = sqn;
+        this.amf = amf;
+        this.attachment = attachment;
+    }
+
+    public Milenage<?> getMilenage() {
+        return milenage;
+    }
+
+    public byte [] getRand() {
+        return rand;
+    }
+
+    public byte [] getSqn() {
+        return sqn;
+    }
+
+    public byte [] getAmf() {
+        return amf;
+    }
+
+    public A getAttachment() {
+        return attachment;
+    }
+}
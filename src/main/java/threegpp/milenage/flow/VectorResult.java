@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.flow;
+
+import threegpp.milenage.MilenageOutput;
+
+/**
+ * <h1>VectorResult</h1>
+ * <p>
+ * Authentication vector emitted by {@link MilenageProcessor}.
+ *
+ * @param <A>  Type of the attachment of the request.
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class VectorResult<A> {
+
+    private final VectorRequest<A> request;
+    private final MilenageOutput output;
+
+    VectorResult(VectorRequest<A> request, MilenageOutput output) {
+        this.request = request;
+        this.output = output;
+    }
+
+    /**
+     * @return  Request the vector was calculated for.
+     */
+    public VectorRequest<A> getRequest() {
+        return request;
+    }
+
+    /**
+     * @return  Calculated values.
+     */
+    public MilenageOutput getOutput() {
+        return output;
+    }
+
+    /**
+     * @return  Attachment of the request.
+     */
+    public A getAttachment() {
+        return request.getAttachment();
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Histogram</h1>
+ * <p>
+ * Concurrent histogram of non-negative values with log-linear buckets: every power of two is
+ * split into {@link #SUB_BUCKETS} equal buckets, so a bucket is at most 12.5% wide relative to its
+ * values. Recording is a bucket index computation and a few atomic increments, no allocation.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (62 - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        if(value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        if(value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    HistogramSnapshot snapshot() {
+        long [] values = new long [BUCKETS];
+
+        for(int i = 0; i < BUCKETS; i++) {
+            values[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(values, sum.sum(), max.get());
+    }
+
+    void reset() {
+        for(int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    static int index(long value) {
+        if(value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS)
+                | (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return  Largest value falling into the bucket.
+     */
+    static long upperBound(int index) {
+        if(index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS | (index & (SUB_BUCKETS - 1))) << shift;
+
+        return lower + (1L << shift) - 1;
+    }
+}
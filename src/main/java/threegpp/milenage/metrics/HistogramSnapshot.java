@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.metrics;
+
+/**
+ * <h1>HistogramSnapshot</h1>
+ * <p>
+ * Immutable copy of a histogram. Percentiles are reported as the upper bound of the bucket
+ * holding them, but never above the largest recorded value.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class HistogramSnapshot {
+
+    private final long [] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long [] counts, long sum, long max) {
+        long total = 0;
+
+        for(long c : counts) {
+            total += c;
+        }
+        this.counts = counts;
+        this.count = total;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * @return  Number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return  Sum of recorded values.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return  Largest recorded value.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return  Mean of recorded values, 0 if there are none.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile  Percentile in range 0 ... 100.
+     * @return  Value not exceeded by the given share of recorded values, 0 if there are none.
+     */
+    public long getPercentile(double percentile) {
+        if(percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+
+        for(int i = 0; i < counts.length && count > 0; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return Math.min(Histogram.upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+                count, getMean(), getPercentile(50), getPercentile(90), getPercentile(99), max);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.metrics;
+
+/**
+ * <h1>Metric</h1>
+ * <p>
+ * Measured functions and stages of Milenage.
+ * <p>
+ * Functions are the public entry points, each call is counted and timed and a share of the calls
+ * is sampled for the bytes allocated by the calling thread. Stages are timed parts of a function.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public enum Metric {
+    /**
+     * Function f1 and f1*
+     */
+    F1_ALL(true),
+    /**
+     * Functions f2 and f5
+     */
+    F2_F5(true),
+    /**
+     * Function f3
+     */
+    F3(true),
+    /**
+     * Function f4
+     */
+    F4(true),
+    /**
+     * Function f5*
+     */
+    F5_STAR(true),
+    /**
+     * All the functions at once
+     */
+    CALCULATE_ALL(true),
+    /**
+     * Calculation of TEMP
+     */
+    TEMP(false),
+    /**
+     * Calculation of OUT1
+     */
+    OUT1(false),
+    /**
+     * Calculation of OUT2
+     */
+    OUT2(false),
+    /**
+     * Calculation of OUT3
+     */
+    OUT3(false),
+    /**
+     * Calculation of OUT4
+     */
+    OUT4(false),
+    /**
+     * Calculation of OUT5
+     */
+    OUT5(false),
+    /**
+     * Calculation of several OUT blocks with a single multi-block encryption
+     */
+    OUT_BLOCKS(false),
+    /**
+     * Waiting for the tasks of a calculation handed over to an executor
+     */
+    EXECUTOR_WAIT(false);
+
+    private static final Metric [] OUT = {OUT1, OUT2, OUT3, OUT4, OUT5};
+
+    private final boolean function;
+
+    Metric(boolean function) {
+        this.function = function;
+    }
+
+    /**
+     * @return  {@code true} for public functions, {@code false} for stages.
+     */
+    public boolean isFunction() {
+        return function;
+    }
+
+    /**
+     * @param constIndex  Zero based index of the OUT block.
+     * @return  Metric of the OUT block.
+     */
+    public static Metric out(int constIndex) {
+        return OUT[constIndex];
+    }
+}
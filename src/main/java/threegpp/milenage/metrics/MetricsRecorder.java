@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <h1>MetricsRecorder</h1>
+ * <p>
+ * {@link MilenageMetrics} collecting latency histograms and operation counts of every
+ * {@link Metric} and samples of per-thread allocated bytes of the public functions.
+ * <p>
+ * One recorder can be shared by many {@link threegpp.milenage.Milenage} objects. Allocated bytes
+ * are read from the HotSpot {@code com.sun.management.ThreadMXBean} on one call in
+ * {@code allocationSampleRate}, chosen at random, and only count allocations of the calling
+ * thread. On runtimes without that bean no allocations are sampled.
+ * <p>
+ * The data can be read with {@link #snapshot()} or through JMX after {@link #register(String)}.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class MetricsRecorder implements MilenageMetrics {
+
+    public static final int DEFAULT_ALLOCATION_SAMPLE_RATE = 64;
+    public static final String JMX_DOMAIN = "threegpp.milenage";
+
+    private static final Metric [] METRICS = Metric.values();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final Histogram [] latencies = new Histogram [METRICS.length];
+    private final Histogram [] allocations = new Histogram [METRICS.length];
+    private final int allocationSampleRate;
+
+    /**
+     * Creates a recorder sampling allocations of one call in {@link #DEFAULT_ALLOCATION_SAMPLE_RATE}.
+     */
+    public MetricsRecorder() {
+        this(DEFAULT_ALLOCATION_SAMPLE_RATE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param allocationSampleRate  Allocations of one call in this many are sampled, 0 disables sampling.
+     */
+    public MetricsRecorder(int allocationSampleRate) {
+        if(allocationSampleRate < 0) {
+            throw new IllegalArgumentException("Invalid allocation sample rate: " + allocationSampleRate);
+        }
+        this.allocationSampleRate = THREADS == null ? 0 : allocationSampleRate;
+
+        for(Metric metric : METRICS) {
+            latencies[metric.ordinal()] = new Histogram();
+            allocations[metric.ordinal()] = new Histogram();
+        }
+    }
+
+    /**
+     * @return  {@code true} if the runtime reports per-thread allocated bytes.
+     */
+    public static boolean isAllocationSamplingSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop(Metric metric, long start) {
+        latencies[metric.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long startAllocation() {
+        if(allocationSampleRate == 0
+                || (allocationSampleRate > 1 && ThreadLocalRandom.current().nextInt(allocationSampleRate) != 0)) {
+            return -1;
+        }
+        return allocatedBytes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stopAllocation(Metric metric, long start) {
+        if(start < 0) {
+            return;
+        }
+        long end = allocatedBytes();
+
+        if(end >= start) {
+            allocations[metric.ordinal()].record(end - start);
+        }
+    }
+
+    /**
+     * @return  Copy of the collected data.
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Metric, HistogramSnapshot> latencySnapshots = new EnumMap<>(Metric.class);
+        Map<Metric, HistogramSnapshot> allocationSnapshots = new EnumMap<>(Metric.class);
+
+        for(Metric metric : METRICS) {
+            latencySnapshots.put(metric, latencies[metric.ordinal()].snapshot());
+            allocationSnapshots.put(metric, allocations[metric.ordinal()].snapshot());
+        }
+        return new MetricsSnapshot(latencySnapshots, allocationSnapshots);
+    }
+
+    /**
+     * Clears the collected data, values recorded concurrently may survive.
+     */
+    public void reset() {
+        for(Metric metric : METRICS) {
+            reset(metric);
+        }
+    }
+
+    /**
+     * Registers an MXBean per {@link Metric} in the platform MBean server under names
+     * {@code threegpp.milenage:type=Milenage,name=<name>,metric=<metric>}.
+     *
+     * @param name  Name distinguishing this recorder.
+     * @return  Names of the registered beans.
+     * @throws JMException  If a bean cannot be registered, e.g. the name is taken.
+     */
+    public List<ObjectName> register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        List<ObjectName> names = new ArrayList<>(METRICS.length);
+
+        try {
+            for(Metric metric : METRICS) {
+                ObjectName objectName = objectName(name, metric);
+
+                server.registerMBean(new MetricView(metric), objectName);
+                names.add(objectName);
+            }
+        } catch (JMException e) {
+            for(ObjectName registered : names) {
+                server.unregisterMBean(registered);
+            }
+            throw e;
+        }
+        return names;
+    }
+
+    /**
+     * Removes the beans registered with {@link #register(String)}.
+     *
+     * @param name  Name the recorder was registered with.
+     * @throws JMException  If a bean cannot be unregistered.
+     */
+    public void unregister(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        for(Metric metric : METRICS) {
+            ObjectName objectName = objectName(name, metric);
+
+            if(server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        }
+    }
+
+    private void reset(Metric metric) {
+        latencies[metric.ordinal()].reset();
+        allocations[metric.ordinal()].reset();
+    }
+
+    private static ObjectName objectName(String name, Metric metric) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Milenage,name=" + ObjectName.quote(name) + ",metric=" + metric);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if(bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+
+                if(hotspot.isThreadAllocatedMemorySupported()) {
+                    if(!hotspot.isThreadAllocatedMemoryEnabled()) {
+                        hotspot.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return hotspot;
+                }
+            }
+        } catch (LinkageError | RuntimeException e) {
+            // no HotSpot management extensions, allocations are not sampled
+        }
+        return null;
+    }
+
+    private final class MetricView implements MetricMXBean {
+        private final Metric metric;
+
+        MetricView(Metric metric) {
+            this.metric = metric;
+        }
+
+        private HistogramSnapshot latency() {
+            return latencies[metric.ordinal()].snapshot();
+        }
+
+        private HistogramSnapshot allocation() {
+            return allocations[metric.ordinal()].snapshot();
+        }
+
+        @Override
+        public long getCount() {
+            return latency().getCount();
+        }
+
+        @Override
+        public double getMeanNanos() {
+            return latency().getMean();
+        }
+
+        @Override
+        public long getP50Nanos() {
+            return latency().getPercentile(50);
+        }
+
+        @Override
+        public long getP90Nanos() {
+            return latency().getPercentile(90);
+        }
+
+        @Override
+        public long getP99Nanos() {
+            return latency().getPercentile(99);
+        }
+
+        @Override
+        public long getP999Nanos() {
+            return latency().getPercentile(99.9);
+        }
+
+        @Override
+        public long getMaxNanos() {
+            return latency().getMax();
+        }
+
+        @Override
+        public long getAllocationSamples() {
+            return allocation().getCount();
+        }
+
+        @Override
+        public double getMeanAllocatedBytes() {
+            return allocation().getMean();
+        }
+
+        @Override
+        public long getMaxAllocatedBytes() {
+            return allocation().getMax();
+        }
+
+        @Override
+        public void reset() {
+            MetricsRecorder.this.reset(metric);
+        }
+    }
+}
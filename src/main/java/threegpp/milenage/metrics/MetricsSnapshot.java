@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.metrics;
+
+import java.util.Map;
+
+/**
+ * <h1>MetricsSnapshot</h1>
+ * <p>
+ * Immutable copy of the data collected by a {@link MetricsRecorder}.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class MetricsSnapshot {
+
+    private final Map<Metric, HistogramSnapshot> latencies;
+    private final Map<Metric, HistogramSnapshot> allocations;
+
+    MetricsSnapshot(Map<Metric, HistogramSnapshot> latencies, Map<Metric, HistogramSnapshot> allocations) {
+        this.latencies = latencies;
+        this.allocations = allocations;
+    }
+
+    /**
+     * @param metric  Function or stage.
+     * @return  Histogram of durations in nanoseconds, its count is the number of operations.
+     */
+    public HistogramSnapshot getLatency(Metric metric) {
+        return latencies.get(metric);
+    }
+
+    /**
+     * @param metric  Function or stage.
+     * @return  Number of operations.
+     */
+    public long getCount(Metric metric) {
+        return latencies.get(metric).getCount();
+    }
+
+    /**
+     * @param metric  Function, stages are not sampled for allocations.
+     * @return  Histogram of bytes allocated by the calling thread during sampled calls.
+     */
+    public HistogramSnapshot getAllocatedBytes(Metric metric) {
+        return allocations.get(metric);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for(Metric metric : Metric.values()) {
+            sb.append(metric).append(": ").append(latencies.get(metric));
+            if(metric.isFunction()) {
+                sb.append(", allocated bytes: ").append(allocations.get(metric));
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
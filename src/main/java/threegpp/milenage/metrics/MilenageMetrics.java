@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.metrics;
+
+/**
+ * <h1>MilenageMetrics</h1>
+ * <p>
+ * Receiver of measurements taken by {@link threegpp.milenage.Milenage}.
+ * <p>
+ * Every measured piece of work is surrounded by {@link #start()} and {@link #stop(Metric, long)},
+ * public functions also by {@link #startAllocation()} and {@link #stopAllocation(Metric, long)}.
+ * The {@link #disabled()} implementation neither reads a clock nor records anything, its empty
+ * methods are inlined away by the JIT compiler.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ * @see MetricsRecorder
+ */
+public interface MilenageMetrics {
+
+    /**
+     * @return  Start mark of a measurement, passed to {@link #stop(Metric, long)}.
+     */
+    long start();
+
+    /**
+     * Finishes a measurement.
+     *
+     * @param metric  Measured function or stage.
+     * @param start  Value returned by {@link #start()}.
+     */
+    void stop(Metric metric, long start);
+
+    /**
+     * @return  Start mark of an allocation measurement, negative if the call is not sampled.
+     */
+    long startAllocation();
+
+    /**
+     * Finishes an allocation measurement.
+     *
+     * @param metric  Measured function.
+     * @param start  Value returned by {@link #startAllocation()}.
+     */
+    void stopAllocation(Metric metric, long start);
+
+    /**
+     * @return  Shared implementation measuring nothing.
+     */
+    static MilenageMetrics disabled() {
+        return DisabledMetrics.INSTANCE;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.primitive;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageBuffer;
+import threegpp.milenage.MutableMilenageBuffer;
+import threegpp.milenage.cipher.BlockEngine;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * <h1>MutableMilenageBuffer implementation based on a pair of primitive {@code long} values</h1>
+ * Scratch buffer for {@link PrimitiveBuffer} calculations.
+ * <p>
+ * In-place operations allocate nothing: {@link Cipher} encryption goes through a private array
+ * of two blocks (plain text and cipher text) with {@link Cipher#doFinal(byte[], int, int, byte[], int)},
+ * {@link BlockEngine} encryption works directly on the two halves.
+ * Functional operations inherited from {@link MilenageBuffer} return new {@link PrimitiveBuffer}
+ * objects and leave this buffer intact.
+ * <p>
+ * Not thread-safe.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class MutablePrimitiveBuffer implements MutableMilenageBuffer<long []> {
+
+    private final byte [] io = new byte [Milenage.BLOCK_LEN_BYTES * 2];
+    private final long [] pair = new long [2];
+
+    private long hi;
+    private long lo;
+
+    public MutablePrimitiveBuffer() {}
+
+    public MutablePrimitiveBuffer(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    /**
+     * @return  Most significant half (bytes 0..7) of the buffer.
+     */
+    public long getHi() {
+        return hi;
+    }
+
+    /**
+     * @return  Least significant half (bytes 8..15) of the buffer.
+     */
+    public long getLo() {
+        return lo;
+    }
+
+    /**
+     * Replaces contents of this buffer.
+     *
+     * @param hi  Most significant half.
+     * @param lo  Least significant half.
+     * @return  This buffer.
+     */
+    public MutablePrimitiveBuffer set(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutablePrimitiveBuffer load(byte [] src, int offset) {
+        hi = PrimitiveBuffer.readLong(src, offset);
+        lo = PrimitiveBuffer.readLong(src, offset + Milenage.HALF_BUFFER_BYTES);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutablePrimitiveBuffer loadIN1(byte [] sqn, byte [] amf) {
+        long half = PrimitiveBuffer.in1Half(sqn, amf);
+        return set(half, half);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutablePrimitiveBuffer set(MilenageBuffer<long []> that) {
+        return set(PrimitiveBuffer.hiOf(that), PrimitiveBuffer.loOf(that));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutablePrimitiveBuffer xorInPlace(MilenageBuffer<long []> that) {
+        hi ^= PrimitiveBuffer.hiOf(that);
+        lo ^= PrimitiveBuffer.loOf(that);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutableMilenageBuffer<long []> rotateInto(byte numBits, MutableMilenageBuffer<long []> target) {
+        if(numBits < 0) {
+            throw new IllegalArgumentException("rotateInto(): numBits can not be negative");
+        }
+        long rHi = PrimitiveBuffer.rotateHi(hi, lo, numBits);
+        long rLo = PrimitiveBuffer.rotateLo(hi, lo, numBits);
+
+        return assign(target, rHi, rLo);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutableMilenageBuffer<long []> encryptInto(Cipher cipher, MutableMilenageBuffer<long []> target) {
+        PrimitiveBuffer.writeLong(hi, io, 0);
+        PrimitiveBuffer.writeLong(lo, io, Milenage.HALF_BUFFER_BYTES);
+        try {
+            cipher.doFinal(io, 0, Milenage.BLOCK_LEN_BYTES, io, Milenage.BLOCK_LEN_BYTES);
+
+        } catch (IllegalBlockSizeException|BadPaddingException|ShortBufferException e) {
+            // that can't be a case
+            throw new RuntimeException(e);
+        }
+        return assign(target,
+                PrimitiveBuffer.readLong(io, Milenage.BLOCK_LEN_BYTES),
+                PrimitiveBuffer.readLong(io, Milenage.BLOCK_LEN_BYTES + Milenage.HALF_BUFFER_BYTES));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutableMilenageBuffer<long []> encryptInto(BlockEngine engine, MutableMilenageBuffer<long []> target) {
+        engine.encryptBlock(hi, lo, pair);
+        return assign(target, pair[0], pair[1]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void copyBytes(int begin, int end, byte [] dst, int dstOffset)
+                            throws IndexOutOfBoundsException {
+        if(begin < 0 || end > Milenage.BLOCK_LEN_BYTES || begin > end
+                || dstOffset < 0 || dstOffset + (end - begin) > dst.length) {
+            throw new IndexOutOfBoundsException("copyBytes(): invalid range");
+        }
+        for(int i = begin; i < end; i++) {
+            long half = i < Milenage.HALF_BUFFER_BYTES ? hi : lo;
+            dst[dstOffset++] = (byte) (half >>> (56 - ((i & 7) << 3)));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<long []> xor(MilenageBuffer<long []> that) {
+        return new PrimitiveBuffer(hi ^ PrimitiveBuffer.hiOf(that), lo ^ PrimitiveBuffer.loOf(that));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<long []> leftCircularBitRotation(byte numBits) {
+        return new PrimitiveBuffer(hi, lo).leftCircularBitRotation(numBits);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<long []> encrypt(Cipher cipher) {
+        return new PrimitiveBuffer(hi, lo).encrypt(cipher);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<long []> encrypt(BlockEngine engine) {
+        return new PrimitiveBuffer(hi, lo).encrypt(engine);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [][] takeBytes(int... args) throws IndexOutOfBoundsException {
+        return new PrimitiveBuffer(hi, lo).takeBytes(args);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [] toBytes() {
+        return new PrimitiveBuffer(hi, lo).toBytes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long [] getRawBuffer() {
+        return new long [] {hi, lo};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format("%016X%016X", hi, lo);
+    }
+
+    private static MutableMilenageBuffer<long []> assign(MutableMilenageBuffer<long []> target,
+                                                        long hi, long lo) {
+        if(target instanceof MutablePrimitiveBuffer) {
+            return ((MutablePrimitiveBuffer) target).set(hi, lo);
+        }
+        return target.set(new PrimitiveBuffer(hi, lo));
+    }
+}
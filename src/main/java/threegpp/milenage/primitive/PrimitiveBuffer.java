@@ -0,0 +1,356 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.primitive;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageBuffer;
+import threegpp.milenage.cipher.BlockEngine;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import java.util.Arrays;
+
+/**
+ * <h1>MilenageBuffer implementation based on a pair of primitive {@code long} values</h1>
+ * Data buffer to use in calculations of algorithm output blocks.
+ * <p>
+ * The 128-bit block is stored as two big-endian halves: {@code hi} holds bytes 0..7 and
+ * {@code lo} holds bytes 8..15 of the buffer, so XOR and circular rotation are a few
+ * register operations and need neither {@link java.math.BigInteger} nor intermediate arrays.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class PrimitiveBuffer implements MilenageBuffer<long []> {
+
+    private static final int HEX_BUFFER_LENGTH = Milenage.BLOCK_LEN_BYTES * 2;
+
+    private final long hi;
+    private final long lo;
+
+    public PrimitiveBuffer(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    public PrimitiveBuffer(byte [] bytes) {
+        if(bytes.length != Milenage.BLOCK_LEN_BYTES) {
+            throw new IllegalArgumentException("Byte array have to contain "
+                                                + Milenage.BLOCK_LEN_BYTES + " bytes");
+        }
+        hi = readLong(bytes, 0);
+        lo = readLong(bytes, Milenage.HALF_BUFFER_BYTES);
+    }
+
+    public PrimitiveBuffer(String hexVal) {
+        if(hexVal.length() != HEX_BUFFER_LENGTH) {
+            throw new IllegalArgumentException("Hex value have to represent "
+                                                + Milenage.BLOCK_LEN_BYTES + "bytes");
+        }
+        hi = parseHexLong(hexVal, 0);
+        lo = parseHexLong(hexVal, HEX_BUFFER_LENGTH / 2);
+    }
+
+    /**
+     * @return  Most significant half (bytes 0..7) of the buffer.
+     */
+    public long getHi() {
+        return hi;
+    }
+
+    /**
+     * @return  Least significant half (bytes 8..15) of the buffer.
+     */
+    public long getLo() {
+        return lo;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<long []> xor(MilenageBuffer<long []> that) {
+        return new PrimitiveBuffer(hi ^ hiOf(that), lo ^ loOf(that));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<long []> leftCircularBitRotation(byte numBits)
+                                    throws IllegalArgumentException {
+        if(numBits < 0) {
+            throw new IllegalArgumentException("leftCircularBitRotation(): numBits can not be negative");
+        }
+        return new PrimitiveBuffer(rotateHi(hi, lo, numBits), rotateLo(hi, lo, numBits));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<long []> encrypt(Cipher cipher) {
+        try {
+            return new PrimitiveBuffer(cipher.doFinal(toBytes()));
+
+        } catch (IllegalBlockSizeException|BadPaddingException e) {
+            // that can't be a case
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageBuffer<long []> encrypt(BlockEngine engine) {
+        long [] result = new long [2];
+
+        engine.encryptBlock(hi, lo, result);
+        return new PrimitiveBuffer(result[0], result[1]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [][] takeBytes(int... args)
+                            throws IndexOutOfBoundsException {
+        if(args.length % 2 != 0) {
+            throw new IllegalArgumentException("takeBytes() expects an even number of arguments");
+        }
+        byte [] buf = toBytes();
+        byte [][] result = new byte [args.length / 2][];
+
+        for(int i = 0, j = 0; i < args.length; j++) {
+            int beg = args[i++];
+            int end = args[i++];
+
+            result[j] = Arrays.copyOfRange(buf, beg, end);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte [] toBytes() {
+        byte [] result = new byte [Milenage.BLOCK_LEN_BYTES];
+
+        writeLong(hi, result, 0);
+        writeLong(lo, result, Milenage.HALF_BUFFER_BYTES);
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returned array is a copy: element 0 is the {@link #getHi() high} half,
+     * element 1 is the {@link #getLo() low} half.
+     */
+    @Override
+    public long [] getRawBuffer() {
+        return new long [] {hi, lo};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof PrimitiveBuffer)) {
+            return false;
+        }
+        PrimitiveBuffer that = (PrimitiveBuffer) o;
+        return hi == that.hi && lo == that.lo;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        long h = hi * 31 + lo;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format("%016X%016X", hi, lo);
+    }
+
+    /**
+     * Create buffer IN1 based on contents of SQN and AMF fields.
+     *
+     * A 128-bit value IN1 is constructed as follows:
+     * IN1[0] .. IN1[47] = SQN[0] .. SQN[47]
+     * IN1[48] .. IN1[63] = AMF[0] .. AMF[15]
+     * IN1[64] .. IN1[111] = SQN[0] .. SQN[47]
+     * IN1[112] .. IN1[127] = AMF[0] .. AMF[15]
+     * <p>
+     * @param sqn  Array of length {@link Milenage#SQN_LEN_BYTES}.
+     * @param amf  Array of length {@link Milenage#AMF_LEN_BYTES}.
+     * @return  Result buffer with N1 contents.
+     */
+    public static PrimitiveBuffer createIN1(byte [] sqn, byte [] amf) {
+        long half = in1Half(sqn, amf);
+
+        return new PrimitiveBuffer(half, half);
+    }
+
+    /**
+     * Builds one 64-bit half of IN1, i.e. SQN || AMF.
+     *
+     * @param sqn  Array of length {@link Milenage#SQN_LEN_BYTES}.
+     * @param amf  Array of length {@link Milenage#AMF_LEN_BYTES}.
+     * @return  SQN || AMF packed big-endian into a {@code long}.
+     */
+    static long in1Half(byte [] sqn, byte [] amf) {
+        String errorMessage = null;
+        if(sqn.length != Milenage.SQN_LEN_BYTES) {
+            errorMessage = "Invalid length of SQN buffer";
+        } else if(amf.length != Milenage.AMF_LEN_BYTES) {
+            errorMessage = "Invalid length of AMF buffer";
+        }
+        if(null != errorMessage) {
+            throw new IllegalArgumentException(errorMessage);
+        }
+        long half = 0;
+
+        for(byte b: sqn) {
+            half = (half << 8) | (b & 0xFF);
+        }
+        for(byte b: amf) {
+            half = (half << 8) | (b & 0xFF);
+        }
+        return half;
+    }
+
+    /**
+     * @param b  Any buffer holding {@code long} halves.
+     * @return  Most significant half of {@code b}, read without copying when possible.
+     */
+    static long hiOf(MilenageBuffer<long []> b) {
+        if(b instanceof PrimitiveBuffer) {
+            return ((PrimitiveBuffer) b).hi;
+        }
+        if(b instanceof MutablePrimitiveBuffer) {
+            return ((MutablePrimitiveBuffer) b).getHi();
+        }
+        return b.getRawBuffer()[0];
+    }
+
+    /**
+     * @param b  Any buffer holding {@code long} halves.
+     * @return  Least significant half of {@code b}, read without copying when possible.
+     */
+    static long loOf(MilenageBuffer<long []> b) {
+        if(b instanceof PrimitiveBuffer) {
+            return ((PrimitiveBuffer) b).lo;
+        }
+        if(b instanceof MutablePrimitiveBuffer) {
+            return ((MutablePrimitiveBuffer) b).getLo();
+        }
+        return b.getRawBuffer()[1];
+    }
+
+    /**
+     * High half of the 128-bit value {@code hi || lo} rotated to the left by {@code numBits}.
+     * <p>
+     * Branch-free: the halves are swapped through a mask when {@code numBits >= 64}, and the
+     * remaining shift uses {@code (x >>> 1) >>> (63 - s)} so that {@code s == 0} does not
+     * degenerate into a shift by 64 (which Java reduces to a shift by 0).
+     *
+     * @param hi  Most significant half.
+     * @param lo  Least significant half.
+     * @param numBits  Rotation distance, 0..127.
+     * @return  Most significant half of the rotated value.
+     */
+    static long rotateHi(long hi, long lo, int numBits) {
+        long swap = (hi ^ lo) & -((numBits >>> 6) & 1);
+        long a = hi ^ swap;
+        long b = lo ^ swap;
+        int s = numBits & 63;
+
+        return (a << s) | ((b >>> 1) >>> (63 - s));
+    }
+
+    /**
+     * Low half of the 128-bit value {@code hi || lo} rotated to the left by {@code numBits}.
+     *
+     * @param hi  Most significant half.
+     * @param lo  Least significant half.
+     * @param numBits  Rotation distance, 0..127.
+     * @return  Least significant half of the rotated value.
+     * @see #rotateHi(long, long, int)
+     */
+    static long rotateLo(long hi, long lo, int numBits) {
+        long swap = (hi ^ lo) & -((numBits >>> 6) & 1);
+        long a = hi ^ swap;
+        long b = lo ^ swap;
+        int s = numBits & 63;
+
+        return (b << s) | ((a >>> 1) >>> (63 - s));
+    }
+
+    static long readLong(byte [] src, int offset) {
+        return ((long) (src[offset] & 0xFF) << 56)
+                | ((long) (src[offset + 1] & 0xFF) << 48)
+                | ((long) (src[offset + 2] & 0xFF) << 40)
+                | ((long) (src[offset + 3] & 0xFF) << 32)
+                | ((long) (src[offset + 4] & 0xFF) << 24)
+                | ((long) (src[offset + 5] & 0xFF) << 16)
+                | ((long) (src[offset + 6] & 0xFF) << 8)
+                | ((long) (src[offset + 7] & 0xFF));
+    }
+
+    static void writeLong(long v, byte [] dst, int offset) {
+        dst[offset] = (byte) (v >>> 56);
+        dst[offset + 1] = (byte) (v >>> 48);
+        dst[offset + 2] = (byte) (v >>> 40);
+        dst[offset + 3] = (byte) (v >>> 32);
+        dst[offset + 4] = (byte) (v >>> 24);
+        dst[offset + 5] = (byte) (v >>> 16);
+        dst[offset + 6] = (byte) (v >>> 8);
+        dst[offset + 7] = (byte) v;
+    }
+
+    private static long parseHexLong(String hex, int offset) {
+        long v = 0;
+
+        for(int i = offset; i < offset + HEX_BUFFER_LENGTH / 2; i++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if(digit < 0) {
+                throw new IllegalArgumentException("Invalid hex character at position " + i);
+            }
+            v = (v << 4) | digit;
+        }
+        return v;
+    }
+}
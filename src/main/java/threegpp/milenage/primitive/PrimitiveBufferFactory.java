@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.primitive;
+
+import threegpp.milenage.MilenageCore;
+import threegpp.milenage.MutableMilenageBufferFactory;
+
+/**
+ * <h1>PrimitiveBufferFactory</h1>
+ * <p>
+ * Factory of {@link PrimitiveBuffer} objects. Can be used everywhere
+ * {@link threegpp.milenage.biginteger.BigIntegerBufferFactory} is used.
+ * <p>
+ * Scratch buffers are {@link MutablePrimitiveBuffer} objects.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class PrimitiveBufferFactory implements MutableMilenageBufferFactory<PrimitiveBuffer> {
+    private static PrimitiveBufferFactory ourInstance = new PrimitiveBufferFactory();
+
+    public static PrimitiveBufferFactory getInstance() {
+        return ourInstance;
+    }
+
+    private final ThreadLocal<MilenageCore.Scratch<long []>> scratch =
+            ThreadLocal.withInitial(() -> new MilenageCore.Scratch<>(createScratch(), createScratch()));
+
+    private PrimitiveBufferFactory() {}
+
+    @Override
+    public PrimitiveBuffer create(byte[] data) {
+        return new PrimitiveBuffer(data);
+    }
+
+    @Override
+    public PrimitiveBuffer create(String hexString) {
+        return new PrimitiveBuffer(hexString);
+    }
+
+    @Override
+    public PrimitiveBuffer [] createSampleCConstants() {
+        return new PrimitiveBuffer [] {
+            new PrimitiveBuffer(0, 0),
+            new PrimitiveBuffer(0, 1),
+            new PrimitiveBuffer(0, 2),
+            new PrimitiveBuffer(0, 4),
+            new PrimitiveBuffer(0, 8)
+        };
+    }
+
+    @Override
+    public PrimitiveBuffer create(byte[] sqn, byte[] amf) {
+        return PrimitiveBuffer.createIN1(sqn, amf);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutablePrimitiveBuffer createScratch() {
+        return new MutablePrimitiveBuffer();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MilenageCore.Scratch<long []> getScratch() {
+        return scratch.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PrimitiveBuffer[] createArray(byte[]... buffers) {
+        PrimitiveBuffer [] array = new PrimitiveBuffer[buffers.length];
+
+        for(int i = 0; i < buffers.length; i++) {
+            array[i] = create(buffers[i]);
+        }
+        return array;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PrimitiveBuffer[] createArray(String... buffers) {
+        PrimitiveBuffer [] array = new PrimitiveBuffer[buffers.length];
+
+        for(int i = 0; i < buffers.length; i++) {
+            array[i] = create(buffers[i]);
+        }
+        return array;
+    }
+}
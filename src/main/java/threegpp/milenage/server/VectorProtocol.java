@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.server;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageOutput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h1>VectorProtocol</h1>
+ * <p>
+ * Binary protocol of {@link VectorServer}.
+ * <p>
+ * Every frame starts with a big-endian {@code int} holding the length of the rest of the frame,
+ * followed by a request identifier chosen by the client. Requests on a connection can be
+ * pipelined, responses carry the identifier of their request and may come in any order.
+ * <pre>
+ *   request:  length (int) | id (int) | K (16) | OPc (16) | RAND (16) | SQN (6) | AMF (2)
+ *   response: length (int) | id (int) | status (byte) [ | vector ({@link MilenageOutput#LENGTH}) ]
+ * </pre>
+ * The vector is present only in responses with {@link #STATUS_OK}.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public final class VectorProtocol {
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_MALFORMED = 1;
+    public static final byte STATUS_ERROR = 2;
+
+    /**
+     * Value of the length field of a request.
+     */
+    public static final int REQUEST_BODY_LENGTH = Integer.BYTES + 3 * Milenage.BLOCK_LEN_BYTES
+            + Milenage.SQN_LEN_BYTES + Milenage.AMF_LEN_BYTES;
+
+    /**
+     * Full length of a request frame.
+     */
+    public static final int REQUEST_LENGTH = Integer.BYTES + REQUEST_BODY_LENGTH;
+
+    /**
+     * Full length of a response frame with {@link #STATUS_OK}.
+     */
+    public static final int RESPONSE_LENGTH = 2 * Integer.BYTES + 1 + MilenageOutput.LENGTH;
+
+    /**
+     * Full length of a response frame without a vector.
+     */
+    public static final int ERROR_RESPONSE_LENGTH = 2 * Integer.BYTES + 1;
+
+    /**
+     * Frames with a longer length field are treated as a protocol violation.
+     */
+    public static final int MAX_FRAME_LENGTH = 1024;
+
+    private VectorProtocol() {}
+
+    /**
+     * Puts a request frame into a buffer.
+     *
+     * @param dst  Destination buffer.
+     * @param id  Request identifier.
+     * @param k  Subscriber key (K).
+     * @param opc  OPc value.
+     * @param rand  RAND value.
+     * @param sqn  A 48-bit SQN value.
+     * @param amf  A 16-bit AMF value.
+     * @return  {@code dst}
+     */
+    public static ByteBuffer putRequest(ByteBuffer dst, int id, byte [] k, byte [] opc, byte [] rand,
+                                        byte [] sqn, byte [] amf) {
+        return dst.putInt(REQUEST_BODY_LENGTH).putInt(id).put(k).put(opc).put(rand).put(sqn).put(amf);
+    }
+}
@@ -0,0 +1,466 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.server;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.bulk.BulkVectorCalculator;
+import threegpp.milenage.bulk.SubscriberBatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <h1>VectorServer</h1>
+ * <p>
+ * Small embeddable TCP server calculating authentication vectors over {@link VectorProtocol}.
+ * <p>
+ * A single thread runs a {@link Selector} event loop serving all connections. Requests parsed in
+ * one round of the loop, from any number of connections, are collected into a batch and handed
+ * to a {@link BulkVectorCalculator} as one {@link SubscriberBatch}. Responses of a calculated batch
+ * are laid out in one buffer and written to each connection with gathering writes, consecutive
+ * responses of a connection as a single slice. A connection stops being read while it has too
+ * many requests in flight or too many response bytes its client has not read yet.
+ * <p>
+ * Batch arrays are reused once the responses of a batch are queued, so a steady load allocates
+ * little more than the response buffers. A client shutting down its output (half-close) still
+ * gets the responses of all its requests, the connection is closed after the last one is written.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class VectorServer implements Closeable {
+
+    public static final int DEFAULT_MAX_BATCH = 1024;
+
+    private static final int BLOCK = Milenage.BLOCK_LEN_BYTES;
+    private static final int SQN = Milenage.SQN_LEN_BYTES;
+    private static final int AMF = Milenage.AMF_LEN_BYTES;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_IN_FLIGHT = 4096;
+    private static final int MAX_QUEUED_BYTES = 1024 * 1024;
+    private static final int MAX_GATHER = 64;
+
+    private final BulkVectorCalculator calculator;
+    private final int maxBatch;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Queue<PendingBatch> completed = new ConcurrentLinkedQueue<>();
+    private final List<Connection> dirty = new ArrayList<>();
+    private final ArrayDeque<PendingBatch> free = new ArrayDeque<>();
+    private final Thread loop;
+    private PendingBatch pending;
+    private volatile boolean running = true;
+
+    /**
+     * Binds the server, {@link #start()} begins serving the connections.
+     *
+     * @param address  Local address, port 0 selects a free port.
+     * @param calculator  {@link BulkVectorCalculator} calculating the vectors.
+     * @param maxBatch  Maximal number of requests in a batch.
+     * @throws IOException  If the address cannot be bound.
+     */
+    public VectorServer(InetSocketAddress address, BulkVectorCalculator calculator, int maxBatch) throws IOException {
+        if(maxBatch <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + maxBatch);
+        }
+        this.calculator = calculator;
+        this.maxBatch = maxBatch;
+        pending = new PendingBatch(maxBatch);
+        selector = Selector.open();
+        try {
+            server = ServerSocketChannel.open();
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+        loop = new Thread(this::loop, "vector-server");
+        loop.setDaemon(true);
+    }
+
+    /**
+     * Starts the event loop.
+     *
+     * @return  This server.
+     */
+    public VectorServer start() {
+        loop.start();
+        return this;
+    }
+
+    /**
+     * @return  Address the server is bound to.
+     * @throws IOException  If the server is closed.
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Stops the event loop and closes all connections.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if(loop.isAlive()) {
+            selector.wakeup();
+            try {
+                loop.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            shutdown();
+        }
+    }
+
+    private void loop() {
+        try {
+            while(running) {
+                selector.select();
+                respond();
+
+                for(SelectionKey key : selector.selectedKeys()) {
+                    if(!key.isValid()) {
+                        continue;
+                    }
+                    if(key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if(key.isReadable()) {
+                            connection.read();
+                        }
+                        if(key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+                selector.selectedKeys().clear();
+                submit();
+                writeDirty();
+            }
+        } catch (IOException e) {
+            running = false;
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void shutdown() {
+        if(!selector.isOpen()) {
+            return;
+        }
+        for(SelectionKey key : selector.keys()) {
+            if(key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            // nothing to do on shutdown
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+
+        while((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    /**
+     * Hands the collected requests over to the calculator.
+     */
+    private void submit() {
+        if(pending.count == 0) {
+            return;
+        }
+        PendingBatch batch = pending;
+        PendingBatch next = free.poll();
+
+        pending = null == next ? new PendingBatch(maxBatch) : next;
+        try {
+            calculator.calculateAsync(batch.toSubscriberBatch(), batch.out, 0).whenComplete((v, e) -> {
+                batch.failure = e;
+                completed.add(batch);
+                selector.wakeup();
+            });
+        } catch (RuntimeException e) {
+            batch.failure = e;
+            completed.add(batch);
+        }
+    }
+
+    /**
+     * Queues responses of the calculated batches.
+     */
+    private void respond() {
+        PendingBatch batch;
+
+        while((batch = completed.poll()) != null) {
+            int length = batch.failure == null ? VectorProtocol.RESPONSE_LENGTH : VectorProtocol.ERROR_RESPONSE_LENGTH;
+            ByteBuffer responses = ByteBuffer.allocate(batch.count * length);
+
+            for(int i = 0; i < batch.count; i++) {
+                if(batch.failure == null) {
+                    responses.putInt(length - Integer.BYTES).putInt(batch.ids[i]).put(VectorProtocol.STATUS_OK)
+                            .put(batch.out, i * MilenageOutput.LENGTH, MilenageOutput.LENGTH);
+                } else {
+                    responses.putInt(length - Integer.BYTES).putInt(batch.ids[i]).put(VectorProtocol.STATUS_ERROR);
+                }
+            }
+            for(int start = 0, end; start < batch.count; start = end) {
+                Connection connection = batch.connections[start];
+
+                for(end = start + 1; end < batch.count && batch.connections[end] == connection; end++) {
+                    // responses of the same connection share a slice
+                }
+                responses.limit(end * length).position(start * length);
+                connection.inFlight -= end - start;
+                connection.enqueue(responses.slice());
+            }
+            batch.clear();
+            free.add(batch);
+        }
+    }
+
+    private void writeDirty() {
+        for(Connection connection : dirty) {
+            connection.dirty = false;
+            try {
+                connection.write();
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Requests collected for a single calculation.
+     */
+    private static final class PendingBatch {
+        final byte [] k;
+        final byte [] opc;
+        final byte [] rand;
+        final byte [] sqn;
+        final byte [] amf;
+        final int [] ids;
+        final Connection [] connections;
+        final byte [] out;
+        int count;
+        Throwable failure;
+
+        PendingBatch(int capacity) {
+            k = new byte [capacity * BLOCK];
+            opc = new byte [capacity * BLOCK];
+            rand = new byte [capacity * BLOCK];
+            sqn = new byte [capacity * SQN];
+            amf = new byte [capacity * AMF];
+            ids = new int [capacity];
+            connections = new Connection [capacity];
+            out = new byte [capacity * MilenageOutput.LENGTH];
+        }
+
+        boolean isFull() {
+            return count == ids.length;
+        }
+
+        /**
+         * Takes the body of a request frame following its identifier.
+         */
+        void add(Connection connection, int id, ByteBuffer src) {
+            src.get(k, count * BLOCK, BLOCK)
+                    .get(opc, count * BLOCK, BLOCK)
+                    .get(rand, count * BLOCK, BLOCK)
+                    .get(sqn, count * SQN, SQN)
+                    .get(amf, count * AMF, AMF);
+            ids[count] = id;
+            connections[count++] = connection;
+        }
+
+        SubscriberBatch toSubscriberBatch() {
+            return new SubscriberBatch(k, opc, rand, sqn, amf, count);
+        }
+
+        /**
+         * Prepares the batch for reuse, connections are released.
+         */
+        void clear() {
+            Arrays.fill(connections, 0, count, null);
+            count = 0;
+            failure = null;
+        }
+    }
+
+    private final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        final ByteBuffer [] gather = new ByteBuffer [MAX_GATHER];
+        SelectionKey key;
+        int inFlight;
+        long queued;
+        boolean dirty;
+        boolean inputShutdown;
+        boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            if(channel.read(in) < 0) {
+                // half-close: answer the requests already received before closing
+                inputShutdown = true;
+                updateInterest();
+                return;
+            }
+            in.flip();
+            while(in.remaining() >= Integer.BYTES) {
+                int length = in.getInt(in.position());
+
+                if(length < Integer.BYTES || length > VectorProtocol.MAX_FRAME_LENGTH) {
+                    throw new IOException("Invalid frame length: " + length);
+                }
+                if(in.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                int next = in.position() + Integer.BYTES + length;
+                int id = in.getInt(in.position() + Integer.BYTES);
+
+                if(length == VectorProtocol.REQUEST_BODY_LENGTH) {
+                    in.position(in.position() + 2 * Integer.BYTES);
+                    pending.add(this, id, in);
+                    inFlight++;
+                    if(pending.isFull()) {
+                        submit();
+                    }
+                } else {
+                    enqueue(ByteBuffer.allocate(VectorProtocol.ERROR_RESPONSE_LENGTH)
+                            .putInt(VectorProtocol.ERROR_RESPONSE_LENGTH - Integer.BYTES).putInt(id)
+                            .put(VectorProtocol.STATUS_MALFORMED).flip());
+                }
+                in.position(next);
+            }
+            in.compact();
+            updateInterest();
+        }
+
+        void enqueue(ByteBuffer response) {
+            if(closed) {
+                return;
+            }
+            out.add(response);
+            queued += response.remaining();
+            if(!dirty) {
+                dirty = true;
+                VectorServer.this.dirty.add(this);
+            }
+        }
+
+        void write() throws IOException {
+            while(!out.isEmpty()) {
+                int n = 0;
+
+                for(ByteBuffer buffer : out) {
+                    gather[n++] = buffer;
+                    if(n == gather.length) {
+                        break;
+                    }
+                }
+                long written = channel.write(gather, 0, n);
+
+                queued -= written;
+                while(!out.isEmpty() && !out.peek().hasRemaining()) {
+                    out.poll();
+                }
+                if(out.size() > 0 && written == 0) {
+                    break;
+                }
+            }
+            Arrays.fill(gather, null);
+            updateInterest();
+        }
+
+        void updateInterest() {
+            if(closed) {
+                return;
+            }
+            if(inputShutdown && inFlight == 0 && out.isEmpty()) {
+                close();
+                return;
+            }
+            int ops = 0;
+
+            if(!inputShutdown && inFlight < MAX_IN_FLIGHT && queued < MAX_QUEUED_BYTES) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if(!out.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        void close() {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            out.clear();
+            if(key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the connection is gone anyway
+            }
+        }
+    }
+}
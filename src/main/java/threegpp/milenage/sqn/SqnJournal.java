@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.sqn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h1>SqnJournal</h1>
+ * <p>
+ * Memory-mapped append-only journal of SQN advances with group commit.
+ * <p>
+ * A record is 16 bytes: subscriber index (int), check value (int) and SQN (long). Positions are
+ * global record numbers growing across {@link #reset()}s, the slot of a record inside the file is
+ * its position minus the position of the last reset. {@link #sync(long)} makes records durable:
+ * the first waiting thread forces the mapping while the others wait and are covered by the same
+ * {@link MappedByteBuffer#force()}. A failed force is kept: records it was to cover are never
+ * reported durable and every later {@link #sync(long)} fails with it until the next {@link #reset()}.
+ * <p>
+ * The file is mapped with at least its existing size, so records written with a larger capacity
+ * are replayed even if the journal is reopened with a smaller one.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+final class SqnJournal implements Closeable {
+
+    static final int RECORD_LENGTH = 16;
+
+    private static final int MAGIC = 0x5A4E5131;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private final int mapped;
+    private final Forcer forcer;
+
+    private final Object appendLock = new Object();
+    private long base;
+    private volatile long written;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean forcing;
+    private long durable;
+    private IOException failure;
+
+    /**
+     * Opens or creates the journal file.
+     *
+     * @param file  Journal file.
+     * @param capacity  Number of records the file holds.
+     */
+    SqnJournal(Path file, int capacity) throws IOException {
+        this(file, capacity, MappedByteBuffer::force);
+    }
+
+    /**
+     * @param file  Journal file.
+     * @param capacity  Number of records the file holds.
+     * @param forcer  Writes the mapping to disk.
+     */
+    SqnJournal(Path file, int capacity, Forcer forcer) throws IOException {
+        this.capacity = capacity;
+        this.forcer = forcer;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long existing = Math.min(channel.size() / RECORD_LENGTH, Integer.MAX_VALUE / RECORD_LENGTH);
+
+            mapped = (int) Math.max(existing, capacity);
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) mapped * RECORD_LENGTH);
+            map.order(ByteOrder.BIG_ENDIAN);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Passes valid records of the file, in order, to the consumer. Stops at the first record
+     * failing the check, i.e. at the end of written data or at a torn write.
+     */
+    void replay(RecordConsumer consumer) {
+        for(int slot = 0; slot < mapped; slot++) {
+            int offset = slot * RECORD_LENGTH;
+            int index = map.getInt(offset);
+            int check = map.getInt(offset + 4);
+            long sqn = map.getLong(offset + 8);
+
+            if(check != check(index, sqn)) {
+                break;
+            }
+            consumer.accept(index, sqn);
+        }
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @return  Position to pass to {@link #sync(long)}, -1 if the journal is full.
+     */
+    long append(int index, long sqn) {
+        synchronized(appendLock) {
+            int slot = (int) (written - base);
+
+            if(slot >= capacity) {
+                return -1;
+            }
+            int offset = slot * RECORD_LENGTH;
+            map.putInt(offset, index);
+            map.putInt(offset + 4, check(index, sqn));
+            map.putLong(offset + 8, sqn);
+
+            return ++written;
+        }
+    }
+
+    /**
+     * Waits until records up to the position are on disk.
+     *
+     * @param position  Value returned by {@link #append(int, long)}.
+     * @throws IOException  If the records could not be written to disk, by this or another thread.
+     */
+    void sync(long position) throws IOException, InterruptedException {
+        syncLock.lock();
+        try {
+            while(durable < position) {
+                if(failure != null) {
+                    throw new IOException("SQN journal cannot be written", failure);
+                }
+                if(forcing) {
+                    synced.await();
+                    continue;
+                }
+                forcing = true;
+                long target = written;
+                IOException error = null;
+
+                syncLock.unlock();
+                try {
+                    forcer.force(map);
+                } catch (UncheckedIOException e) {
+                    error = e.getCause();
+                } catch (RuntimeException e) {
+                    error = new IOException(e);
+                } finally {
+                    syncLock.lock();
+                    forcing = false;
+                    if(error == null) {
+                        durable = Math.max(durable, target);
+                    } else {
+                        failure = error;
+                    }
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Starts the journal over after all the state it holds has been saved elsewhere.
+     * Records appended before are reported durable.
+     */
+    void reset() throws IOException {
+        synchronized(appendLock) {
+            for(int offset = 0; offset < mapped * RECORD_LENGTH; offset += 8) {
+                map.putLong(offset, 0L);
+            }
+            try {
+                forcer.force(map);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            base = written;
+        }
+        syncLock.lock();
+        try {
+            durable = Math.max(durable, base);
+            failure = null;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            forcer.force(map);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static int check(int index, long sqn) {
+        int h = index * 0x9E3779B1;
+        h ^= (int) (sqn ^ (sqn >>> 32)) * 0x85EBCA6B;
+        return h ^ MAGIC;
+    }
+
+    interface RecordConsumer {
+        void accept(int index, long sqn);
+    }
+
+    interface Forcer {
+        void force(MappedByteBuffer map);
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.sqn;
+
+import threegpp.milenage.SqnPolicies;
+import threegpp.milenage.SqnPolicy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <h1>SqnManager</h1>
+ * <p>
+ * Durable per-subscriber SQN state for the network side.
+ * <p>
+ * The last issued SQN of every subscriber is kept in an off-heap table (a direct buffer, 8 bytes
+ * per subscriber) and advanced with a compare-and-set, so subscribers never contend with each
+ * other. Every advance is appended to a memory-mapped journal and the call returns only when the
+ * record is on disk; concurrent callers share a single {@code force()} (group commit).
+ * <p>
+ * When the journal is full the table is written to a snapshot file and the journal starts over.
+ * On startup the snapshot is loaded and the journal is replayed on top of it. Replay keeps the
+ * highest value seen for a subscriber, so records older than the snapshot are harmless.
+ * <p>
+ * {@link #reserve(int, int)} claims a range of SQN values in one operation for batch vector
+ * generation, the values of the range follow one another according to the {@link SqnPolicy}.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class SqnManager implements Closeable {
+
+    public static final int DEFAULT_JOURNAL_RECORDS = 1 << 20;
+
+    static final String SNAPSHOT_FILE = "sqn.snapshot";
+    static final String JOURNAL_FILE = "sqn.journal";
+
+    private static final int SNAPSHOT_MAGIC = 0x5A4E5153;
+    private static final int SNAPSHOT_HEADER = 8;
+
+    private static final VarHandle SLOT = MethodHandles.byteBufferViewVarHandle(long [].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path directory;
+    private final int subscribers;
+    private final SqnPolicy policy;
+    private final ByteBuffer table;
+    private final SqnJournal journal;
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    /**
+     * Opens the state stored in the directory with the default journal size and sequential SQN values.
+     *
+     * @param directory  Directory of the snapshot and journal files, created if missing.
+     * @param subscribers  Number of subscribers, addressed by indexes 0 ... subscribers - 1.
+     * @throws IOException  If the files cannot be read or written.
+     */
+    public SqnManager(Path directory, int subscribers) throws IOException {
+        this(directory, subscribers, DEFAULT_JOURNAL_RECORDS, SqnPolicies.sequential());
+    }
+
+    /**
+     * Opens the state stored in the directory.
+     *
+     * @param directory  Directory of the snapshot and journal files, created if missing.
+     * @param subscribers  Number of subscribers, addressed by indexes 0 ... subscribers - 1.
+     * @param journalRecords  Number of advances the journal holds between snapshots.
+     * @param policy  Rule producing the next SQN of a subscriber.
+     * @throws IOException  If the files cannot be read or written.
+     */
+    public SqnManager(Path directory, int subscribers, int journalRecords, SqnPolicy policy) throws IOException {
+        if(subscribers <= 0 || subscribers > (Integer.MAX_VALUE - SNAPSHOT_HEADER) / 8 - 1) {
+            throw new IllegalArgumentException("Invalid number of subscribers: " + subscribers);
+        }
+        if(journalRecords <= 0 || journalRecords > Integer.MAX_VALUE / SqnJournal.RECORD_LENGTH) {
+            throw new IllegalArgumentException("Invalid journal size: " + journalRecords);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.subscribers = subscribers;
+        this.policy = policy;
+        table = ByteBuffer.allocateDirect(subscribers * 8 + 8).alignedSlice(8).order(ByteOrder.BIG_ENDIAN);
+
+        loadSnapshot();
+        journal = new SqnJournal(directory.resolve(JOURNAL_FILE), journalRecords);
+        journal.replay((index, sqn) -> {
+            if(index >= 0 && index < subscribers && sqn > get(index)) {
+                table.putLong(index * 8, sqn);
+            }
+        });
+        checkpoint();
+    }
+
+    public int getSubscribers() {
+        return subscribers;
+    }
+
+    /**
+     * @param subscriber  Index of the subscriber.
+     * @return  The last SQN issued to the subscriber, 0 if none.
+     */
+    public long current(int subscriber) {
+        checkSubscriber(subscriber);
+        return get(subscriber);
+    }
+
+    /**
+     * Issues the next SQN of the subscriber. The value is durable when the method returns.
+     *
+     * @param subscriber  Index of the subscriber.
+     * @return  A 48-bit SQN value.
+     * @throws IOException  If the journal cannot be written.
+     * @throws InterruptedException  If interrupted while waiting for the journal.
+     */
+    public long next(int subscriber) throws IOException, InterruptedException {
+        return reserve(subscriber, 1);
+    }
+
+    /**
+     * Claims {@code count} consecutive SQN values of the subscriber in one operation.
+     * The range is durable when the method returns.
+     *
+     * @param subscriber  Index of the subscriber.
+     * @param count  Number of values.
+     * @return  The first SQN value of the range, next ones are obtained with the {@link SqnPolicy}.
+     * @throws IOException  If the journal cannot be written.
+     * @throws InterruptedException  If interrupted while waiting for the journal.
+     */
+    public long reserve(int subscriber, int count) throws IOException, InterruptedException {
+        checkSubscriber(subscriber);
+        if(count <= 0) {
+            throw new IllegalArgumentException("Invalid number of SQN values: " + count);
+        }
+        long position;
+        long first;
+
+        checkpointLock.readLock().lock();
+        try {
+            long last;
+            long current;
+            do {
+                current = get(subscriber);
+                first = policy.next(current);
+                last = first;
+                for(int i = 1; i < count; i++) {
+                    last = policy.next(last);
+                }
+                if(last <= current) {
+                    throw new IllegalStateException("SQN space of subscriber " + subscriber + " is exhausted");
+                }
+            } while(!SLOT.compareAndSet(table, subscriber * 8, current, last));
+
+            position = journal.append(subscriber, last);
+
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if(position < 0) {
+            // journal is full, the value is in the table and gets into the snapshot
+            checkpoint();
+        } else {
+            journal.sync(position);
+        }
+        return first;
+    }
+
+    /**
+     * Writes the table to the snapshot file and starts the journal over.
+     *
+     * @throws IOException  If the snapshot cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        checkpointLock.writeLock().lock();
+        try {
+            Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER).putInt(SNAPSHOT_MAGIC).putInt(subscribers);
+            header.flip();
+
+            try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer data = table.duplicate().order(table.order());
+                data.clear().limit(subscribers * 8);
+                while(header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while(data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.reset();
+
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves a snapshot and closes the files.
+     *
+     * @throws IOException  If the files cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+        journal.close();
+    }
+
+    private void loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+
+        if(!Files.exists(file)) {
+            return;
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+            readFully(channel, header);
+            header.flip();
+            if(header.remaining() < SNAPSHOT_HEADER || header.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Invalid SQN snapshot " + file);
+            }
+            int stored = header.getInt();
+            if(stored > subscribers) {
+                throw new IOException("SQN snapshot holds " + stored + " subscribers, more than " + subscribers);
+            }
+            ByteBuffer data = table.duplicate().order(table.order());
+            data.clear().limit(stored * 8);
+            readFully(channel, data);
+            if(data.hasRemaining()) {
+                throw new IOException("SQN snapshot " + file + " is truncated");
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer) < 0) {
+                break;
+            }
+        }
+    }
+
+    private long get(int subscriber) {
+        return (long) SLOT.getVolatile(table, subscriber * 8);
+    }
+
+    private void checkSubscriber(int subscriber) {
+        if(subscriber < 0 || subscriber >= subscribers) {
+            throw new IndexOutOfBoundsException("Subscriber index out of range: " + subscriber);
+        }
+    }
+}
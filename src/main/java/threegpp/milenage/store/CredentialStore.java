@@ -0,0 +1,354 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.store;
+
+import threegpp.milenage.CConstants;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.RConstants;
+import threegpp.milenage.cipher.AesEngine;
+import threegpp.milenage.cipher.BlockEngine;
+import threegpp.milenage.primitive.PrimitiveBuffer;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <h1>CredentialStore</h1>
+ * <p>
+ * Read-only store of subscriber credentials in a memory-mapped file.
+ * <p>
+ * The file consists of a 16-byte header followed by fixed-size records sorted by IMSI, so the
+ * records themselves are the on-disk index searched with a binary search:
+ * <pre>
+ *   header: magic (int) | version (int) | number of records (long)
+ *   record: IMSI key (long) | K (16 bytes) | OPc (16 bytes) | default AMF (2 bytes) | reserved (6 bytes)
+ * </pre>
+ * The IMSI key holds the number of IMSI digits in bits 50 ... 53 and the IMSI value below them
+ * (15 decimal digits fit into 50 bits), so IMSIs differing only in leading zeros, e.g.
+ * {@code 001010000000001} and {@code 1010000000001}, stay different subscribers.
+ * <p>
+ * Records are mapped in segments of whole records no larger than 2 GB each. Credentials never
+ * leave the mapped region as byte arrays: the key schedule of {@link AesEngine} is built straight
+ * from it and OPc is read into a {@link PrimitiveBuffer} as two {@code long} values, so mapped
+ * subscribers cost no heap beyond the {@link Milenage} objects created on lookup.
+ * <p>
+ * Files are created with {@link CredentialStoreWriter}, which keeps all records in a single heap
+ * array and thus produces files of at most {@link CredentialStoreWriter#MAX_RECORDS} records, i.e.
+ * a single segment. The object is thread safe.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class CredentialStore implements Closeable {
+
+    public static final int RECORD_LENGTH = 48;
+    public static final int HEADER_LENGTH = 16;
+
+    static final int MAGIC = 0x4D43_5344;
+    static final int VERSION = 2;
+
+    public static final int MAX_IMSI_DIGITS = 15;
+
+    private static final int IMSI_DIGITS_SHIFT = 50;
+    private static final long IMSI_VALUE_MASK = (1L << IMSI_DIGITS_SHIFT) - 1;
+    private static final long [] POWERS_OF_TEN = new long [MAX_IMSI_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for(int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    static final int IMSI_OFFSET = 0;
+    static final int K_OFFSET = 8;
+    static final int OPC_OFFSET = K_OFFSET + Milenage.BLOCK_LEN_BYTES;
+    static final int AMF_OFFSET = OPC_OFFSET + Milenage.BLOCK_LEN_BYTES;
+
+    /**
+     * Number of records in a mapped segment.
+     */
+    private static final int SEGMENT_RECORDS = Integer.MAX_VALUE / RECORD_LENGTH;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer [] segments;
+    private final long size;
+    private final int segmentRecords;
+    private final CConstants<PrimitiveBuffer> c = new CConstants<>(PrimitiveBufferFactory.getInstance());
+    private final RConstants r = new RConstants();
+
+    private CredentialStore(FileChannel channel, MappedByteBuffer [] segments, long size, int segmentRecords) {
+        this.channel = channel;
+        this.segments = segments;
+        this.size = size;
+        this.segmentRecords = segmentRecords;
+    }
+
+    /**
+     * Maps a credential file.
+     *
+     * @param file  File created by {@link CredentialStoreWriter}.
+     * @return  {@link CredentialStore} object.
+     * @throws IOException  If the file cannot be mapped or is not a credential file.
+     */
+    public static CredentialStore open(Path file) throws IOException {
+        return open(file, SEGMENT_RECORDS);
+    }
+
+    /**
+     * @param file  File created by {@link CredentialStoreWriter}.
+     * @param segmentRecords  Number of records in a mapped segment.
+     * @return  {@link CredentialStore} object.
+     * @throws IOException  If the file cannot be mapped or is not a credential file.
+     */
+    static CredentialStore open(Path file, int segmentRecords) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+
+            if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a credential store file: " + file);
+            }
+            long size = header.getLong(8);
+            if(size < 0 || HEADER_LENGTH + size * RECORD_LENGTH > channel.size()) {
+                throw new IOException("Credential store file is truncated: " + file);
+            }
+            MappedByteBuffer [] segments = new MappedByteBuffer [(int) ((size + segmentRecords - 1) / segmentRecords)];
+
+            for(int i = 0; i < segments.length; i++) {
+                long first = (long) i * segmentRecords;
+                long records = Math.min(segmentRecords, size - first);
+
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_LENGTH + first * RECORD_LENGTH, records * RECORD_LENGTH);
+                segments[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            return new CredentialStore(channel, segments, size, segmentRecords);
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return  Number of records.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Looks a subscriber up.
+     *
+     * @param imsiKey  IMSI key, see {@link #imsiKey(String)}.
+     * @return  Index of the record or -1 if there is no such IMSI.
+     */
+    public long find(long imsiKey) {
+        long low = 0;
+        long high = size - 1;
+
+        while(low <= high) {
+            long middle = (low + high) >>> 1;
+            long value = getImsiKey(middle);
+
+            if(value < imsiKey) {
+                low = middle + 1;
+            } else if(value > imsiKey) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param imsi  IMSI as a decimal string.
+     * @return  Index of the record or -1 if there is no such IMSI.
+     * @see #find(long)
+     */
+    public long find(String imsi) {
+        return find(imsiKey(imsi));
+    }
+
+    /**
+     * @param record  Index of the record.
+     * @return  IMSI key of the record.
+     */
+    public long getImsiKey(long record) {
+        return segment(record).getLong(offset(record) + IMSI_OFFSET);
+    }
+
+    /**
+     * @param record  Index of the record.
+     * @return  IMSI of the record as a decimal string including leading zeros.
+     */
+    public String getImsi(long record) {
+        return formatImsi(getImsiKey(record));
+    }
+
+    /**
+     * @param record  Index of the record.
+     * @return  Default AMF of the record as an unsigned 16-bit value.
+     */
+    public int getAmf(long record) {
+        return segment(record).getShort(offset(record) + AMF_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * Creates a block engine of the subscriber key straight from the mapped record.
+     *
+     * @param record  Index of the record.
+     * @return  {@link BlockEngine} ciphering with K.
+     */
+    public BlockEngine getKey(long record) {
+        return new AesEngine(segment(record), offset(record) + K_OFFSET, Milenage.BLOCK_LEN_BYTES);
+    }
+
+    /**
+     * @param record  Index of the record.
+     * @return  OPc of the record.
+     */
+    public PrimitiveBuffer getOPc(long record) {
+        ByteBuffer segment = segment(record);
+        int offset = offset(record) + OPC_OFFSET;
+
+        return new PrimitiveBuffer(segment.getLong(offset), segment.getLong(offset + Milenage.HALF_BUFFER_BYTES));
+    }
+
+    /**
+     * Creates {@link Milenage} of the subscriber, K and OPc are read from the mapped record
+     * without intermediate byte arrays.
+     *
+     * @param record  Index of the record.
+     * @return  {@link Milenage} object using sample constants of 3GPP TS 35.206.
+     */
+    public Milenage<PrimitiveBuffer> getMilenage(long record) {
+        return new Milenage<>(getOPc(record), getKey(record), c, r, PrimitiveBufferFactory.getInstance());
+    }
+
+    /**
+     * @param imsiKey  IMSI key, see {@link #imsiKey(String)}.
+     * @return  {@link Milenage} of the subscriber or {@code null} if there is no such IMSI.
+     */
+    public Milenage<PrimitiveBuffer> lookup(long imsiKey) {
+        long record = find(imsiKey);
+
+        return record < 0 ? null : getMilenage(record);
+    }
+
+    /**
+     * @param imsi  IMSI as a decimal string.
+     * @return  {@link Milenage} of the subscriber or {@code null} if there is no such IMSI.
+     */
+    public Milenage<PrimitiveBuffer> lookup(String imsi) {
+        return lookup(imsiKey(imsi));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Encodes an IMSI into the key records are sorted by.
+     *
+     * @param imsi  IMSI as a decimal string of up to 15 digits.
+     * @return  IMSI key holding both the value and the number of digits.
+     */
+    public static long imsiKey(String imsi) {
+        if(imsi.isEmpty() || imsi.length() > MAX_IMSI_DIGITS) {
+            throw new IllegalArgumentException("Invalid IMSI: " + imsi);
+        }
+        long value = 0;
+
+        for(int i = 0; i < imsi.length(); i++) {
+            int digit = Character.digit(imsi.charAt(i), 10);
+
+            if(digit < 0) {
+                throw new IllegalArgumentException("Invalid IMSI: " + imsi);
+            }
+            value = value * 10 + digit;
+        }
+        return imsiKey(value, imsi.length());
+    }
+
+    /**
+     * Encodes an IMSI into the key records are sorted by.
+     *
+     * @param value  IMSI as a number.
+     * @param digits  Number of IMSI digits including leading zeros.
+     * @return  IMSI key holding both the value and the number of digits.
+     */
+    public static long imsiKey(long value, int digits) {
+        if(digits < 1 || digits > MAX_IMSI_DIGITS || value < 0 || value >= POWERS_OF_TEN[digits]) {
+            throw new IllegalArgumentException("Invalid IMSI " + value + " of " + digits + " digits");
+        }
+        return (long) digits << IMSI_DIGITS_SHIFT | value;
+    }
+
+    /**
+     * @param imsiKey  IMSI key to validate.
+     * @throws IllegalArgumentException  If the key has not been produced by {@link #imsiKey(long, int)}.
+     */
+    public static void checkImsiKey(long imsiKey) {
+        long digits = imsiKey >>> IMSI_DIGITS_SHIFT;
+
+        if(digits < 1 || digits > MAX_IMSI_DIGITS || (imsiKey & IMSI_VALUE_MASK) >= POWERS_OF_TEN[(int) digits]) {
+            throw new IllegalArgumentException("Invalid IMSI key: " + imsiKey);
+        }
+    }
+
+    /**
+     * @param imsiKey  IMSI key, see {@link #imsiKey(String)}.
+     * @return  IMSI as a decimal string including leading zeros.
+     */
+    public static String formatImsi(long imsiKey) {
+        checkImsiKey(imsiKey);
+
+        int digits = (int) (imsiKey >>> IMSI_DIGITS_SHIFT);
+        long value = imsiKey & IMSI_VALUE_MASK;
+        char [] chars = new char [digits];
+
+        for(int i = digits - 1; i >= 0; i--, value /= 10) {
+            chars[i] = (char) ('0' + value % 10);
+        }
+        return new String(chars);
+    }
+
+    private ByteBuffer segment(long record) {
+        if(record < 0 || record >= size) {
+            throw new IndexOutOfBoundsException("Record index out of range: " + record);
+        }
+        return segments[(int) (record / segmentRecords)];
+    }
+
+    private int offset(long record) {
+        return (int) (record % segmentRecords) * RECORD_LENGTH;
+    }
+}
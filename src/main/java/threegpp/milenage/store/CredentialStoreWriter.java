@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.store;
+
+import threegpp.milenage.Milenage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * <h1>CredentialStoreWriter</h1>
+ * <p>
+ * Collects subscriber credentials and writes them as a {@link CredentialStore} file sorted by IMSI.
+ * <p>
+ * Records are accumulated in a flat growing array, not as objects, and are sorted in memory.
+ * A single heap array limits the writer to {@link #MAX_RECORDS} records (about 44.7 million),
+ * larger subscriber bases have to be split between several stores. The writer is not thread safe.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class CredentialStoreWriter {
+
+    /**
+     * Maximum number of records a writer can hold.
+     */
+    public static final int MAX_RECORDS = (Integer.MAX_VALUE - 8) / CredentialStore.RECORD_LENGTH;
+
+    private byte [] records = new byte [1024 * CredentialStore.RECORD_LENGTH];
+    private int count;
+
+    /**
+     * Adds a subscriber.
+     *
+     * @param imsi  IMSI as a decimal string of up to 15 digits, leading zeros are significant.
+     * @param k  Subscriber key (K).
+     * @param opc  OPc value.
+     * @param amf  Default 16-bit AMF value.
+     * @return  This writer.
+     */
+    public CredentialStoreWriter add(String imsi, byte [] k, byte [] opc, byte [] amf) {
+        return add(CredentialStore.imsiKey(imsi), k, opc, amf);
+    }
+
+    /**
+     * Adds a subscriber.
+     *
+     * @param imsiKey  IMSI key, see {@link CredentialStore#imsiKey(long, int)}.
+     * @param k  Subscriber key (K).
+     * @param opc  OPc value.
+     * @param amf  Default 16-bit AMF value.
+     * @return  This writer.
+     */
+    public CredentialStoreWriter add(long imsiKey, byte [] k, byte [] opc, byte [] amf) {
+        if(k.length != Milenage.BLOCK_LEN_BYTES || opc.length != Milenage.BLOCK_LEN_BYTES
+                || amf.length != Milenage.AMF_LEN_BYTES) {
+            throw new IllegalArgumentException("Invalid credential length");
+        }
+        CredentialStore.checkImsiKey(imsiKey);
+        if(count == MAX_RECORDS) {
+            throw new IllegalStateException("A writer holds at most " + MAX_RECORDS + " records");
+        }
+        if((count + 1) * CredentialStore.RECORD_LENGTH > records.length) {
+            records = Arrays.copyOf(records, (int) Math.min(Integer.MAX_VALUE - 8, records.length * 2L));
+        }
+        ByteBuffer record = ByteBuffer.wrap(records, count * CredentialStore.RECORD_LENGTH, CredentialStore.RECORD_LENGTH);
+
+        record.putLong(imsiKey).put(k).put(opc).put(amf);
+        count++;
+        return this;
+    }
+
+    /**
+     * @return  Number of added records.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Writes the records sorted by IMSI.
+     *
+     * @param file  Destination file, replaced if it exists.
+     * @throws IOException  If the file cannot be written.
+     * @throws IllegalStateException  If an IMSI has been added twice.
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer view = ByteBuffer.wrap(records);
+        long [] imsis = new long [count];
+
+        for(int i = 0; i < count; i++) {
+            imsis[i] = view.getLong(i * CredentialStore.RECORD_LENGTH);
+        }
+        int [] order = sort(imsis);
+
+        for(int i = 1; i < count; i++) {
+            if(imsis[order[i]] == imsis[order[i - 1]]) {
+                throw new IllegalStateException("Duplicate IMSI " + CredentialStore.formatImsi(imsis[order[i]]));
+            }
+        }
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            ByteBuffer header = ByteBuffer.allocate(CredentialStore.HEADER_LENGTH);
+            header.putInt(CredentialStore.MAGIC).putInt(CredentialStore.VERSION).putLong(count);
+            out.write(header.array());
+
+            for(int i = 0; i < count; i++) {
+                out.write(records, order[i] * CredentialStore.RECORD_LENGTH, CredentialStore.RECORD_LENGTH);
+            }
+        }
+    }
+
+    /**
+     * Sorts record indexes by IMSI key without boxing.
+     * <p>
+     * Keys of a store usually share the digit count and most leading digits, so their distance
+     * from the smallest key together with the record index fits one {@code long} sorted as is.
+     * Otherwise the indexes are sorted with an LSD radix sort on the bytes of that distance.
+     *
+     * @return  Record indexes in IMSI order.
+     */
+    private static int [] sort(long [] imsis) {
+        int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, imsis.length - 1));
+        long minImsi = Long.MAX_VALUE;
+        long maxImsi = 0;
+
+        for(long imsi : imsis) {
+            minImsi = Math.min(minImsi, imsi);
+            maxImsi = Math.max(maxImsi, imsi);
+        }
+        int keyBits = 64 - Long.numberOfLeadingZeros(Math.max(0, maxImsi - minImsi));
+
+        if(keyBits + indexBits < 64) {
+            // pack key distance and record index into one key: sorting a long[] keeps it primitive
+            long [] keys = new long [imsis.length];
+
+            for(int i = 0; i < imsis.length; i++) {
+                keys[i] = (imsis[i] - minImsi) << indexBits | i;
+            }
+            Arrays.sort(keys);
+
+            int [] order = new int [imsis.length];
+            for(int i = 0; i < imsis.length; i++) {
+                order[i] = (int) (keys[i] & ((1L << indexBits) - 1));
+            }
+            return order;
+        }
+        return radixSort(imsis, minImsi, keyBits);
+    }
+
+    /**
+     * Stable LSD radix sort of record indexes, one byte of the key distance per pass.
+     */
+    private static int [] radixSort(long [] imsis, long minImsi, int keyBits) {
+        int [] order = new int [imsis.length];
+        int [] buffer = new int [imsis.length];
+        int [] counts = new int [257];
+
+        for(int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for(int shift = 0; shift < keyBits; shift += 8) {
+            Arrays.fill(counts, 0);
+            for(int index : order) {
+                counts[(int) ((imsis[index] - minImsi) >>> shift & 0xFF) + 1]++;
+            }
+            for(int b = 0; b < 256; b++) {
+                counts[b + 1] += counts[b];
+            }
+            for(int index : order) {
+                buffer[counts[(int) ((imsis[index] - minImsi) >>> shift & 0xFF)]++] = index;
+            }
+            int [] sorted = buffer;
+            buffer = order;
+            order = sorted;
+        }
+        return order;
+    }
+}
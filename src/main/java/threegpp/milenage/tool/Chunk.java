@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.tool;
+
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.bulk.SubscriberBatch;
+
+/**
+ * <h1>Chunk</h1>
+ * <p>
+ * A run of consecutive input records together with room for their vectors.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+final class Chunk {
+
+    final long sequence;
+    final long started;
+    final long [] imsi;
+    final SubscriberBatch batch;
+    final byte [] out;
+
+    /**
+     * @param sequence  Zero based number of the chunk in the input.
+     * @param started  {@link System#nanoTime()} when reading of the chunk started.
+     * @param imsi  IMSI keys.
+     * @param batch  Input records.
+     */
+    Chunk(long sequence, long started, long [] imsi, SubscriberBatch batch) {
+        this.sequence = sequence;
+        this.started = started;
+        this.imsi = imsi;
+        this.batch = batch;
+        this.out = new byte [batch.size() * MilenageOutput.LENGTH];
+    }
+
+    int size() {
+        return batch.size();
+    }
+}
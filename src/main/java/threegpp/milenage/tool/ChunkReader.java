@@ -0,0 +1,250 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.tool;
+
+import threegpp.milenage.Milenage;
+import threegpp.milenage.bulk.SubscriberBatch;
+import threegpp.milenage.store.CredentialStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * <h1>ChunkReader</h1>
+ * <p>
+ * Reads input records from a channel in large blocks and splits them into {@link Chunk}s.
+ * <p>
+ * Fields are decoded straight from the read buffer into the flat arrays of a
+ * {@link SubscriberBatch}. The object is not thread safe.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+final class ChunkReader {
+
+    private static final int BLOCK = Milenage.BLOCK_LEN_BYTES;
+    private static final int SQN = Milenage.SQN_LEN_BYTES;
+    private static final int AMF = Milenage.AMF_LEN_BYTES;
+
+    private final ReadableByteChannel channel;
+    private final InputFormat format;
+    private final int chunkRecords;
+    private final ByteBuffer buffer;
+    private boolean eof;
+    private long sequence;
+    private long line;
+
+    /**
+     * @param channel  Input channel.
+     * @param format  Format of the records.
+     * @param chunkRecords  Maximal number of records in a chunk.
+     * @param bufferSize  Size of the read buffer, must hold at least one record.
+     */
+    ChunkReader(ReadableByteChannel channel, InputFormat format, int chunkRecords, int bufferSize) {
+        if(chunkRecords <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkRecords);
+        }
+        if(bufferSize < InputFormat.RECORD_LENGTH) {
+            throw new IllegalArgumentException("Buffer is too small: " + bufferSize);
+        }
+        this.channel = channel;
+        this.format = format;
+        this.chunkRecords = chunkRecords;
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.flip();
+    }
+
+    /**
+     * Reads the next chunk.
+     *
+     * @return  {@link Chunk} with one or more records or {@code null} at the end of input.
+     * @throws IOException  If the input cannot be read or is malformed.
+     */
+    Chunk next() throws IOException {
+        long started = System.nanoTime();
+        long [] imsi = new long [chunkRecords];
+        SubscriberBatch batch = new SubscriberBatch(chunkRecords);
+        int count = 0;
+
+        while(count < chunkRecords && (format == InputFormat.BINARY ? readBinary(imsi, batch, count)
+                                                                   : readCsv(imsi, batch, count))) {
+            count++;
+        }
+        if(count == 0) {
+            return null;
+        }
+        if(count < chunkRecords) {
+            imsi = Arrays.copyOf(imsi, count);
+            batch = new SubscriberBatch(Arrays.copyOf(batch.getK(), count * BLOCK),
+                    Arrays.copyOf(batch.getOPc(), count * BLOCK),
+                    Arrays.copyOf(batch.getRand(), count * BLOCK),
+                    Arrays.copyOf(batch.getSqn(), count * SQN),
+                    Arrays.copyOf(batch.getAmf(), count * AMF));
+        }
+        return new Chunk(sequence++, started, imsi, batch);
+    }
+
+    private boolean readBinary(long [] imsi, SubscriberBatch batch, int i) throws IOException {
+        if(!fill(InputFormat.RECORD_LENGTH)) {
+            if(buffer.hasRemaining()) {
+                throw new IOException("Truncated record at the end of input");
+            }
+            return false;
+        }
+        imsi[i] = buffer.getLong();
+        try {
+            CredentialStore.checkImsiKey(imsi[i]);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid IMSI key in record " + (sequence * chunkRecords + i), e);
+        }
+        buffer.get(batch.getK(), i * BLOCK, BLOCK)
+                .get(batch.getOPc(), i * BLOCK, BLOCK)
+                .get(batch.getRand(), i * BLOCK, BLOCK)
+                .get(batch.getSqn(), i * SQN, SQN)
+                .get(batch.getAmf(), i * AMF, AMF);
+        return true;
+    }
+
+    private boolean readCsv(long [] imsi, SubscriberBatch batch, int i) throws IOException {
+        int end;
+
+        while(true) {
+            end = lineEnd();
+            if(end < 0) {
+                if(eof) {
+                    if(!buffer.hasRemaining()) {
+                        return false;
+                    }
+                    end = buffer.limit();
+                } else {
+                    if(buffer.remaining() == buffer.capacity()) {
+                        throw new IOException("Line " + (line + 1) + " is too long");
+                    }
+                    fill(buffer.remaining() + 1);
+                    continue;
+                }
+            }
+            line++;
+            int start = buffer.position();
+            int next = end < buffer.limit() ? end + 1 : end;
+
+            if(end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if(end == start || buffer.get(start) == '#') {
+                buffer.position(next);
+                continue;
+            }
+            parseCsv(start, end, imsi, batch, i);
+            buffer.position(next);
+            return true;
+        }
+    }
+
+    private void parseCsv(int start, int end, long [] imsi, SubscriberBatch batch, int i) throws IOException {
+        int p = start;
+        long value = 0;
+        int digits = 0;
+
+        for(; p < end && buffer.get(p) != ','; p++, digits++) {
+            int digit = Character.digit(buffer.get(p), 10);
+
+            if(digit < 0 || digits == CredentialStore.MAX_IMSI_DIGITS) {
+                throw malformed();
+            }
+            value = value * 10 + digit;
+        }
+        if(digits == 0) {
+            throw malformed();
+        }
+        imsi[i] = CredentialStore.imsiKey(value, digits);
+        p = parseHex(p, end, batch.getK(), i * BLOCK, BLOCK);
+        p = parseHex(p, end, batch.getOPc(), i * BLOCK, BLOCK);
+        p = parseHex(p, end, batch.getRand(), i * BLOCK, BLOCK);
+        p = parseHex(p, end, batch.getSqn(), i * SQN, SQN);
+        p = parseHex(p, end, batch.getAmf(), i * AMF, AMF);
+
+        if(p != end) {
+            throw malformed();
+        }
+    }
+
+    /**
+     * Parses a comma-prefixed hex field of exactly {@code length} bytes.
+     *
+     * @return  Position after the field.
+     */
+    private int parseHex(int p, int end, byte [] dst, int offset, int length) throws IOException {
+        if(p + 1 + length * 2 > end || buffer.get(p) != ',') {
+            throw malformed();
+        }
+        p++;
+        for(int n = 0; n < length; n++, p += 2) {
+            int hi = Character.digit(buffer.get(p), 16);
+            int lo = Character.digit(buffer.get(p + 1), 16);
+
+            if(hi < 0 || lo < 0) {
+                throw malformed();
+            }
+            dst[offset + n] = (byte) ((hi << 4) | lo);
+        }
+        return p;
+    }
+
+    private IOException malformed() {
+        return new IOException("Malformed record at line " + line);
+    }
+
+    /**
+     * @return  Position of the next line feed in the buffer or -1.
+     */
+    private int lineEnd() {
+        for(int p = buffer.position(); p < buffer.limit(); p++) {
+            if(buffer.get(p) == '\n') {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads from the channel until the buffer holds at least {@code length} bytes or the input ends.
+     *
+     * @return  Whether the buffer holds {@code length} bytes.
+     */
+    private boolean fill(int length) throws IOException {
+        if(buffer.remaining() >= length) {
+            return true;
+        }
+        buffer.compact();
+        try {
+            while(buffer.position() < length && !eof) {
+                if(channel.read(buffer) < 0) {
+                    eof = true;
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= length;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.tool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>DoubleBufferedWriter</h1>
+ * <p>
+ * Writes fixed-size records to a channel through two buffers: one is filled by the caller
+ * while the other is being written to the channel by a background thread.
+ * <p>
+ * The object is not thread safe, records must be written by a single thread.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+final class DoubleBufferedWriter implements Closeable {
+
+    private final WritableByteChannel channel;
+    private final ExecutorService io;
+    private ByteBuffer current;
+    private ByteBuffer spare;
+    private Future<?> pending;
+
+    /**
+     * @param channel  Output channel, it's not closed by {@link #close()}.
+     * @param bufferSize  Size of each of the two buffers.
+     */
+    DoubleBufferedWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        current = ByteBuffer.allocateDirect(bufferSize);
+        spare = ByteBuffer.allocateDirect(bufferSize);
+        io = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "vector-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Writes a record of an 8-byte key and a region of an array.
+     *
+     * @param key  Key of the record.
+     * @param src  Array holding the rest of the record.
+     * @param offset  Position of the region inside {@code src}.
+     * @param length  Length of the region.
+     * @throws IOException  If a previous write to the channel failed.
+     */
+    void write(long key, byte [] src, int offset, int length) throws IOException {
+        if(current.remaining() < Long.BYTES + length) {
+            swap();
+        }
+        current.putLong(key).put(src, offset, length);
+    }
+
+    /**
+     * Writes out the buffered records and waits until they reach the channel.
+     *
+     * @throws IOException  If writing to the channel failed.
+     */
+    void flush() throws IOException {
+        swap();
+        await();
+    }
+
+    /**
+     * Flushes the buffered records and stops the background thread.
+     *
+     * @throws IOException  If writing to the channel failed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            io.shutdown();
+        }
+    }
+
+    private void swap() throws IOException {
+        await();
+
+        ByteBuffer full = current;
+        full.flip();
+        pending = io.submit(() -> {
+            while(full.hasRemaining()) {
+                channel.write(full);
+            }
+            return null;
+        });
+        current = spare;
+        current.clear();
+        spare = full;
+    }
+
+    private void await() throws IOException {
+        if(pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing vectors");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            pending = null;
+        }
+    }
+}
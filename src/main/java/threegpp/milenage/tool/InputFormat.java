@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.tool;
+
+import threegpp.milenage.Milenage;
+
+/**
+ * <h1>InputFormat</h1>
+ * <p>
+ * Formats of the input records of {@link VectorGenerator}.
+ * <p>
+ * Both formats hold the same fields: IMSI, K, OPc, RAND, SQN and AMF. IMSIs are carried as
+ * IMSI keys of {@link threegpp.milenage.store.CredentialStore#imsiKey(long, int)}, which keep
+ * the number of digits, so IMSIs differing only in leading zeros stay different.
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public enum InputFormat {
+    /**
+     * Fixed-size records of {@link #RECORD_LENGTH} bytes: IMSI key as a big-endian {@code long}
+     * followed by K, OPc, RAND (16 bytes each), SQN (6 bytes) and AMF (2 bytes).
+     */
+    BINARY,
+    /**
+     * One record per line: decimal IMSI of up to 15 digits, leading zeros included, followed by K, OPc, RAND, SQN and AMF in hex, separated
+     * by commas. Empty lines and lines starting with {@code #} are skipped.
+     */
+    CSV;
+
+    /**
+     * Length of a {@link #BINARY} record.
+     */
+    public static final int RECORD_LENGTH = 8 + 3 * Milenage.BLOCK_LEN_BYTES
+            + Milenage.SQN_LEN_BYTES + Milenage.AMF_LEN_BYTES;
+
+    /**
+     * @param fileName  Name of the input file.
+     * @return  {@link #CSV} for files with {@code .csv} extension, {@link #BINARY} otherwise.
+     */
+    public static InputFormat forFileName(String fileName) {
+        return fileName.toLowerCase().endsWith(".csv") ? CSV : BINARY;
+    }
+}
@@ -0,0 +1,386 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.tool;
+
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.bulk.BulkVectorCalculator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>VectorGenerator</h1>
+ * <p>
+ * Command-line tool calculating authentication vectors of a file of subscriber records.
+ * <p>
+ * Input in one of {@link InputFormat}s is read through a {@link FileChannel} in large blocks and
+ * split into chunks, which are calculated in parallel by a {@link BulkVectorCalculator}. Output
+ * records of {@link #OUTPUT_RECORD_LENGTH} bytes, the IMSI key (see
+ * {@link threegpp.milenage.store.CredentialStore#imsiKey(long, int)}, decoded with
+ * {@link threegpp.milenage.store.CredentialStore#formatImsi(long)}) as a big-endian {@code long}
+ * followed by the vector in the layout of {@link MilenageOutput}, are written through a double-buffered
+ * writer either in input order or as soon as their chunk is calculated. The number of chunks
+ * in flight is bounded, so memory use does not depend on the size of the input.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java -jar milenage.jar [options] input output
+ *     --format binary|csv     format of the input (by default taken from the file extension)
+ *     --order input|fastest   order of the output records (input)
+ *     --chunk N               records per chunk (16384)
+ *     --threads N             number of calculating threads (number of processors)
+ * </pre>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class VectorGenerator {
+
+    /**
+     * Length of an output record in bytes.
+     */
+    public static final int OUTPUT_RECORD_LENGTH = Long.BYTES + MilenageOutput.LENGTH;
+
+    public static final int DEFAULT_CHUNK_RECORDS = 16 * 1024;
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final CompletableFuture<Chunk> END = new CompletableFuture<>();
+
+    /**
+     * Order of the output records.
+     */
+    public enum Order {
+        /**
+         * Records are written in the order of the input.
+         */
+        INPUT,
+        /**
+         * Chunks are written as soon as they are calculated.
+         */
+        FASTEST
+    }
+
+    private final ForkJoinPool pool;
+    private final InputFormat format;
+    private final Order order;
+    private final int chunkRecords;
+    private final int maxInFlight;
+
+    /**
+     * Constructor
+     *
+     * @param pool  {@link ForkJoinPool} calculating the vectors.
+     * @param format  Format of the input records.
+     * @param order  Order of the output records.
+     * @param chunkRecords  Number of records in a chunk.
+     * @param maxInFlight  Maximal number of chunks read but not written yet.
+     */
+    public VectorGenerator(ForkJoinPool pool, InputFormat format, Order order, int chunkRecords, int maxInFlight) {
+        if(chunkRecords <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size or number of chunks in flight");
+        }
+        this.pool = pool;
+        this.format = format;
+        this.order = order;
+        this.chunkRecords = chunkRecords;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Calculates vectors of all records of the input file.
+     *
+     * @param input  Input file.
+     * @param output  Output file, replaced if it exists.
+     * @return  {@link Statistics} of the run.
+     * @throws IOException  If a file cannot be read or written or the input is malformed.
+     */
+    public Statistics run(Path input, Path output) throws IOException {
+        BulkVectorCalculator calculator = new BulkVectorCalculator(pool, BulkVectorCalculator.DEFAULT_THRESHOLD);
+        BlockingQueue<CompletableFuture<Chunk>> queue = new LinkedBlockingQueue<>();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Statistics statistics = new Statistics();
+        long [] total = new long [1];
+
+        try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            DoubleBufferedWriter writer = new DoubleBufferedWriter(out, WRITE_BUFFER_SIZE)) {
+
+            ChunkReader reader = new ChunkReader(in, format, chunkRecords, READ_BUFFER_SIZE);
+            ExecutorService drainer = Executors.newSingleThreadExecutor();
+            Future<?> draining = drainer.submit(() -> {
+                drain(queue, writer, inFlight, statistics, total);
+                return null;
+            });
+            try {
+                Chunk chunk;
+
+                while(acquire(inFlight, draining) && (chunk = reader.next()) != null) {
+                    Chunk submitted = chunk;
+                    CompletableFuture<Chunk> done = calculator.calculateAsync(submitted.batch, submitted.out, 0)
+                            .thenApply(v -> submitted);
+
+                    if(order == Order.INPUT) {
+                        queue.add(done);
+                    } else {
+                        done.whenComplete((c, e) -> queue.add(done));
+                    }
+                    total[0]++;
+                }
+                queue.add(END);
+                await(draining);
+            } finally {
+                // the writer is not thread safe, the drainer must stop before it's closed
+                drainer.shutdownNow();
+                awaitTermination(drainer);
+            }
+        }
+        statistics.elapsed = System.nanoTime() - statistics.started;
+        return statistics;
+    }
+
+    /**
+     * Writes calculated chunks until all {@code total[0]} of them, known once {@link #END}
+     * is taken, are written.
+     */
+    private static void drain(BlockingQueue<CompletableFuture<Chunk>> queue, DoubleBufferedWriter writer,
+                              Semaphore inFlight, Statistics statistics, long [] total)
+            throws IOException, InterruptedException {
+        long expected = -1;
+        long written = 0;
+
+        while(expected < 0 || written < expected) {
+            CompletableFuture<Chunk> next = queue.take();
+
+            if(next == END) {
+                expected = total[0];
+                continue;
+            }
+            Chunk chunk = next.join();
+
+            for(int i = 0; i < chunk.size(); i++) {
+                writer.write(chunk.imsi[i], chunk.out, i * MilenageOutput.LENGTH, MilenageOutput.LENGTH);
+            }
+            statistics.record(System.nanoTime() - chunk.started, chunk.size());
+            written++;
+            inFlight.release();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Waits for a free slot unless the drainer has stopped.
+     *
+     * @return  {@code false} if the drainer has stopped.
+     */
+    private static boolean acquire(Semaphore inFlight, Future<?> draining) throws IOException {
+        try {
+            while(!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                if(draining.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading records");
+        }
+    }
+
+    private static void await(Future<?> draining) throws IOException {
+        try {
+            draining.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing vectors");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Vector generation failed", cause);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) throws IOException {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping the writer");
+        }
+    }
+
+    /**
+     * <h1>Statistics</h1>
+     * <p>
+     * Throughput and end-to-end latency of a run. Latency of a record is the time from the start of
+     * reading its chunk to handing the chunk's vectors over to the writer.
+     */
+    public static final class Statistics {
+        private final long started = System.nanoTime();
+        private long elapsed;
+        private long records;
+        private long [] latencies = new long [64];
+        private int [] counts = new int [64];
+        private int chunks;
+
+        private void record(long latency, int count) {
+            if(chunks == latencies.length) {
+                latencies = Arrays.copyOf(latencies, chunks * 2);
+                counts = Arrays.copyOf(counts, chunks * 2);
+            }
+            latencies[chunks] = latency;
+            counts[chunks++] = count;
+            records += count;
+        }
+
+        /**
+         * @return  Number of written records.
+         */
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * @return  Duration of the run in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsed;
+        }
+
+        /**
+         * @return  Throughput of the run.
+         */
+        public double getRecordsPerSecond() {
+            return elapsed == 0 ? 0 : records * 1e9 / elapsed;
+        }
+
+        /**
+         * @param percentile  Percentile in range 0 ... 100.
+         * @return  Latency in nanoseconds not exceeded by the given share of records.
+         */
+        public long getLatencyPercentile(double percentile) {
+            if(records == 0) {
+                return 0;
+            }
+            Integer [] order = new Integer [chunks];
+
+            for(int i = 0; i < chunks; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(latencies[a], latencies[b]));
+
+            long rank = (long) Math.ceil(records * percentile / 100);
+            long seen = 0;
+
+            for(int i : order) {
+                seen += counts[i];
+                if(seen >= rank) {
+                    return latencies[i];
+                }
+            }
+            return latencies[order[chunks - 1]];
+        }
+    }
+
+    public static void main(String [] args) {
+        InputFormat format = null;
+        Order order = Order.INPUT;
+        int chunk = DEFAULT_CHUNK_RECORDS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path input = null;
+        Path output = null;
+
+        try {
+            for(int i = 0; i < args.length; i++) {
+                switch(args[i]) {
+                    case "--format":
+                        format = InputFormat.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--order":
+                        order = Order.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--chunk":
+                        chunk = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if(input == null) {
+                            input = Paths.get(args[i]);
+                        } else if(output == null) {
+                            output = Paths.get(args[i]);
+                        } else {
+                            throw new IllegalArgumentException(args[i]);
+                        }
+                }
+            }
+            if(output == null) {
+                throw new IllegalArgumentException("input and output files are required");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.err.println("Usage: VectorGenerator [--format binary|csv] [--order input|fastest] "
+                    + "[--chunk N] [--threads N] input output");
+            System.exit(2);
+            return;
+        }
+        if(format == null) {
+            format = InputFormat.forFileName(input.getFileName().toString());
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try {
+            Statistics s = new VectorGenerator(pool, format, order, chunk, threads * 2).run(input, output);
+
+            System.out.printf("%d records in %.3f s, %.0f records/s%n",
+                    s.getRecords(), s.getElapsedNanos() / 1e9, s.getRecordsPerSecond());
+            System.out.printf("latency ms: p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                    s.getLatencyPercentile(50) / 1e6, s.getLatencyPercentile(90) / 1e6,
+                    s.getLatencyPercentile(99) / 1e6, s.getLatencyPercentile(99.9) / 1e6,
+                    s.getLatencyPercentile(100) / 1e6);
+        } catch (IOException e) {
+            System.err.println("Vector generation failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -18,18 +18,40 @@
  */
 package threegpp.milenage;
 
+import org.junit.Assume;
 import org.junit.Test;
 import threegpp.milenage.biginteger.BigIntegerBuffer;
 import threegpp.milenage.biginteger.BigIntegerBufferFactory;
+import threegpp.milenage.cipher.CipherProvider;
 import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.metrics.HistogramSnapshot;
+import threegpp.milenage.metrics.Metric;
+import threegpp.milenage.metrics.MetricsRecorder;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
 
 import javax.crypto.Cipher;
 import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static threegpp.milenage.MilenageTestData.*;
 
 /**
@@ -106,6 +128,299 @@ public class MilenageTest {
         assertArrayEquals(F5_STAR, result.get(MilenageResult.AK_R));
     }
 
+    @Test
+    public void etsiTs135207SyncTest() {
+        byte [] opc = Milenage.calculateOPc(OP, key, factory);
+
+        Milenage<BigIntegerBuffer> milenage = new Milenage<>(opc, key, factory);
+
+        Map<MilenageResult, byte []> result = milenage.calculateAll(RAND, SQN, AMF);
+
+        assertArrayEquals(F1, result.get(MilenageResult.MAC_A));
+        assertArrayEquals(F1_STAR, result.get(MilenageResult.MAC_S));
+        assertArrayEquals(F2, result.get(MilenageResult.RES));
+        assertArrayEquals(F3, result.get(MilenageResult.CK));
+        assertArrayEquals(F4, result.get(MilenageResult.IK));
+        assertArrayEquals(F5, result.get(MilenageResult.AK));
+        assertArrayEquals(F5_STAR, result.get(MilenageResult.AK_R));
+    }
+
+    @Test
+    public void concurrentCalculationTest() throws InterruptedException, ExecutionException {
+        CipherProvider[] providers = new CipherProvider[] {
+                Ciphers.createRijndaelCipherProvider(K),
+                Ciphers.createRijndaelCipherPool(K, 2),
+                Ciphers.createSharedCipherProvider(Ciphers.createRijndaelCipher(K))
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for(CipherProvider provider: providers) {
+                byte [] opc = Milenage.calculateOPc(OP, provider, factory);
+                final Milenage<BigIntegerBuffer> milenage = new Milenage<>(opc, provider, factory);
+
+                List<Callable<Map<MilenageResult, byte []>>> tasks = new ArrayList<>();
+                for(int i = 0; i < 64; i++) {
+                    tasks.add(new Callable<Map<MilenageResult, byte []>>() {
+                        @Override
+                        public Map<MilenageResult, byte []> call() throws Exception {
+                            return milenage.calculateAll(RAND, SQN, AMF);
+                        }
+                    });
+                }
+                for(Future<Map<MilenageResult, byte []>> future: executor.invokeAll(tasks)) {
+                    Map<MilenageResult, byte []> result = future.get();
+
+                    assertArrayEquals(F1, result.get(MilenageResult.MAC_A));
+                    assertArrayEquals(F3, result.get(MilenageResult.CK));
+                    assertArrayEquals(F5_STAR, result.get(MilenageResult.AK_R));
+                }
+                Map<MilenageResult, byte []> result = milenage.calculateAll(RAND, SQN, AMF, executor);
+                assertArrayEquals(F4, result.get(MilenageResult.IK));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void flatOutputTest() {
+        Milenage<?>[] implementations = new Milenage<?>[] {
+                new Milenage<>(OPC, key, factory),
+                new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance())
+        };
+        for(Milenage<?> milenage: implementations) {
+            MilenageOutput output = milenage.calculateOutput(RAND, SQN, AMF);
+
+            assertArrayEquals(F1, output.getMacA());
+            assertArrayEquals(F1_STAR, output.getMacS());
+            assertArrayEquals(F2, output.getRes());
+            assertArrayEquals(F3, output.getCk());
+            assertArrayEquals(F4, output.getIk());
+            assertArrayEquals(F5, output.getAk());
+            assertArrayEquals(F5_STAR, output.getAkR());
+
+            byte [] array = new byte [MilenageOutput.LENGTH + 3];
+            milenage.calculateAll(RAND, SQN, AMF, array, 3);
+            assertArrayEquals(output.getData(), Arrays.copyOfRange(array, 3, array.length));
+            assertArrayEquals(F3, new MilenageOutput(array, 3).get(MilenageResult.CK));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(MilenageOutput.LENGTH * 2);
+            direct.position(MilenageOutput.LENGTH);
+            milenage.calculateAll(RAND, SQN, AMF, direct);
+            assertEquals(MilenageOutput.LENGTH * 2, direct.position());
+
+            byte [] copy = new byte [MilenageOutput.LENGTH];
+            direct.position(MilenageOutput.LENGTH);
+            direct.get(copy);
+            assertArrayEquals(output.getData(), copy);
+        }
+    }
+
+    @Test
+    public void limitedHeapBufferTest() {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        byte [] array = new byte [MilenageOutput.LENGTH * 2];
+        ByteBuffer slice = ByteBuffer.wrap(array, 1, MilenageOutput.LENGTH - 1).slice();
+
+        try {
+            milenage.calculateAll(RAND, SQN, AMF, slice);
+            fail("BufferOverflowException expected");
+        } catch (BufferOverflowException e) {
+            assertEquals(0, slice.position());
+            assertArrayEquals(new byte [array.length], array);
+        }
+
+        ByteBuffer limited = ByteBuffer.wrap(array);
+        limited.position(2).limit(MilenageOutput.LENGTH + 1);
+
+        try {
+            milenage.calculateAll(RAND, SQN, AMF, limited);
+            fail("BufferOverflowException expected");
+        } catch (BufferOverflowException e) {
+            assertEquals(2, limited.position());
+            assertArrayEquals(new byte [array.length], array);
+        }
+    }
+
+    @Test
+    public void selectiveCalculationTest() {
+        Milenage<?>[] implementations = new Milenage<?>[] {
+                new Milenage<>(OPC, key, factory),
+                new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance())
+        };
+        byte [] zero = new byte [MilenageResult.CK.getLength()];
+
+        for(Milenage<?> milenage: implementations) {
+            MilenageOutput output = milenage.calculate(
+                    EnumSet.of(MilenageResult.AK_R, MilenageResult.MAC_S), RAND, SQN, AMF);
+
+            assertArrayEquals(F5_STAR, output.getAkR());
+            assertArrayEquals(F1_STAR, output.getMacS());
+            assertArrayEquals(Arrays.copyOf(zero, MilenageResult.MAC_A.getLength()), output.getMacA());
+            assertArrayEquals(zero, output.getCk());
+
+            output = milenage.calculate(EnumSet.of(MilenageResult.CK, MilenageResult.AK), RAND, null, null);
+            assertArrayEquals(F3, output.getCk());
+            assertArrayEquals(F5, output.getAk());
+            assertArrayEquals(zero, output.getIk());
+
+            output = milenage.calculate(EnumSet.allOf(MilenageResult.class), RAND, SQN, AMF);
+            assertArrayEquals(milenage.calculateOutput(RAND, SQN, AMF).getData(), output.getData());
+        }
+    }
+
+    @Test
+    public void randContextTest() {
+        Milenage<?>[] implementations = new Milenage<?>[] {
+                new Milenage<>(OPC, key, factory),
+                new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance())
+        };
+        for(Milenage<?> milenage: implementations) {
+            Milenage<?>.RandContext context = milenage.forRand(RAND);
+
+            Map<MilenageResult, byte []> f1 = context.f1All(SQN, AMF);
+            assertArrayEquals(F1, f1.get(MilenageResult.MAC_A));
+            assertArrayEquals(F1_STAR, f1.get(MilenageResult.MAC_S));
+
+            Map<MilenageResult, byte []> f2f5 = context.f2f5();
+            assertArrayEquals(F2, f2f5.get(MilenageResult.RES));
+            assertArrayEquals(F5, f2f5.get(MilenageResult.AK));
+
+            assertArrayEquals(F3, context.f3());
+            assertArrayEquals(F4, context.f4());
+            assertArrayEquals(F5_STAR, context.f5Star());
+
+            MilenageOutput output = context.calculate(EnumSet.allOf(MilenageResult.class), SQN, AMF);
+            assertArrayEquals(milenage.calculateOutput(RAND, SQN, AMF).getData(), output.getData());
+        }
+    }
+
+    @Test
+    public void batchTest() {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        byte [][] rands = new byte [3][];
+        for(int i = 0; i < rands.length; i++) {
+            rands[i] = RAND.clone();
+            rands[i][0] += i;
+        }
+        long sqn = new BigInteger(1, SQN).longValue();
+        MilenageBatch batch = new MilenageBatch(5);
+
+        long next = milenage.calculateBatch(rands, sqn, SqnPolicies.seqInd(5), AMF, batch);
+
+        assertEquals(rands.length, batch.size());
+        assertEquals((((sqn >>> 5) + 3) << 5) | (((sqn & 31) + 3) & 31), next);
+        assertArrayEquals(SQN, batch.getSqnBytes(0));
+        for(int i = 0; i < rands.length; i++) {
+            MilenageOutput expected = milenage.calculateOutput(rands[i], batch.getSqnBytes(i), AMF);
+
+            assertArrayEquals(expected.getData(), Arrays.copyOfRange(batch.getData(),
+                    i * MilenageOutput.LENGTH, (i + 1) * MilenageOutput.LENGTH));
+            assertArrayEquals(expected.getCk(), batch.get(i).getCk());
+        }
+        assertEquals(sqn + 1, SqnPolicies.sequential().next(sqn));
+        assertEquals(0L, SqnPolicies.sequential().next(SqnPolicies.SQN_MASK));
+    }
+
+    @Test
+    public void executionPolicyTest() throws InterruptedException, ExecutionException {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ExecutionPolicy adaptive = new ExecutionPolicy(ExecutionPolicy.Mode.ADAPTIVE, 4);
+            milenage.setExecutionPolicy(adaptive);
+
+            Map<MilenageResult, byte []> result = milenage.calculateAll(RAND, SQN, AMF, executor);
+            assertArrayEquals(F3, result.get(MilenageResult.CK));
+            assertEquals(1, adaptive.getInlineCount());
+            assertEquals(0, adaptive.getFanOutCount());
+
+            byte [][] rands = new byte [16][];
+            for(int i = 0; i < rands.length; i++) {
+                rands[i] = RAND.clone();
+                rands[i][1] += i;
+            }
+            long sqn = new BigInteger(1, SQN).longValue();
+            MilenageBatch parallel = new MilenageBatch(rands.length);
+            MilenageBatch sequential = new MilenageBatch(rands.length);
+
+            milenage.calculateBatch(rands, sqn, SqnPolicies.sequential(), AMF, parallel, executor);
+            milenage.calculateBatch(rands, sqn, SqnPolicies.sequential(), AMF, sequential);
+            assertEquals(1, adaptive.getParallelBatchCount());
+            assertArrayEquals(sequential.getData(), parallel.getData());
+
+            milenage.calculateBatch(Arrays.copyOf(rands, 2), sqn, SqnPolicies.sequential(), AMF, parallel, executor);
+            assertEquals(1, adaptive.getInlineBatchCount());
+            assertEquals(0, adaptive.getInFlight());
+
+            ExecutionPolicy fanOut = new ExecutionPolicy(ExecutionPolicy.Mode.FAN_OUT, 4);
+            milenage.setExecutionPolicy(fanOut);
+            result = milenage.calculateAll(RAND, SQN, AMF, executor);
+            assertArrayEquals(F5_STAR, result.get(MilenageResult.AK_R));
+            assertEquals(1, fanOut.getFanOutCount());
+
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void asyncTest() throws Exception {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+
+        MilenageOutput output = milenage.calculateAsync(RAND, SQN, AMF).get(10, TimeUnit.SECONDS);
+        assertArrayEquals(F2, output.getRes());
+
+        final List<Runnable> pending = new ArrayList<>();
+        CompletableFuture<MilenageOutput> late = milenage.calculateAsync(RAND, SQN, AMF, pending::add,
+                10, TimeUnit.MILLISECONDS);
+        try {
+            late.get(10, TimeUnit.SECONDS);
+            fail("Deadline is not enforced");
+
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        CompletableFuture<MilenageOutput> cancelled = milenage.calculateAsync(RAND, SQN, AMF, pending::add);
+        cancelled.cancel(false);
+        for(Runnable task: pending) {
+            task.run();
+        }
+        assertTrue(cancelled.isCancelled());
+    }
+
+    @Test
+    public void asyncAllocationTest() throws Exception {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        MetricsRecorder recorder = new MetricsRecorder(1);
+
+        Assume.assumeTrue(MetricsRecorder.isAllocationSamplingSupported());
+
+        runAsync(milenage, AsyncExecutors.getDefault(), 1000);
+        milenage.setMetrics(recorder);
+        runAsync(milenage, AsyncExecutors.getDefault(), 1000);
+
+        HistogramSnapshot allocated = recorder.snapshot().getAllocatedBytes(Metric.CALCULATE_ALL);
+        assertEquals(1000, allocated.getCount());
+        assertEquals(0, allocated.getMax());
+
+        recorder.reset();
+        runAsync(milenage, r -> new Thread(r).start(), 100);
+        assertTrue(recorder.snapshot().getAllocatedBytes(Metric.CALCULATE_ALL).getPercentile(50) > 0);
+    }
+
+    private static void runAsync(Milenage<?> milenage, Executor executor, int count) throws Exception {
+        List<CompletableFuture<MilenageOutput>> futures = new ArrayList<>();
+
+        for(int i = 0; i < count; i++) {
+            futures.add(milenage.calculateAsync(RAND, SQN, AMF, executor));
+        }
+        for(CompletableFuture<MilenageOutput> future: futures) {
+            assertArrayEquals(F2, future.get(10, TimeUnit.SECONDS).getRes());
+        }
+    }
+
     @Test
     public void etsiTs135207CustomTest() {
         byte [] opc = Milenage.calculateOPc(OP, key, factory);
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>AutsVerifierTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class AutsVerifierTest {
+
+    private static final Milenage<?> MILENAGE =
+            new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+
+    @Test
+    public void verifyTest() {
+        byte [] auts = createAuts();
+
+        assertEquals(new BigInteger(1, SQN).longValue(), AutsVerifier.verify(MILENAGE, RAND, auts));
+
+        auts[AutsVerifier.AUTS_LENGTH - 1] ^= 1;
+        assertEquals(AutsVerifier.INVALID, AutsVerifier.verify(MILENAGE, RAND, auts));
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        int count = 20;
+        Milenage<?> [] milenages = new Milenage<?> [count];
+        byte [][] rands = new byte [count][];
+        byte [][] auts = new byte [count][];
+        Arrays.fill(milenages, MILENAGE);
+        Arrays.fill(rands, RAND);
+        for(int i = 0; i < count; i++) {
+            auts[i] = createAuts();
+            if(i % 3 == 0) {
+                auts[i][0] ^= 1;
+            }
+        }
+        long [] sqnMs = new long [count];
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AutsVerifier.verifyAll(milenages, rands, auts, sqnMs, executor, 4);
+        } finally {
+            executor.shutdown();
+        }
+        for(int i = 0; i < count; i++) {
+            assertEquals(i % 3 == 0 ? AutsVerifier.INVALID : new BigInteger(1, SQN).longValue(), sqnMs[i]);
+        }
+    }
+
+    private static byte [] createAuts() {
+        byte [] macS = MILENAGE.f1All(RAND, SQN, new byte [2]).get(MilenageResult.MAC_S);
+        byte [] auts = new byte [AutsVerifier.AUTS_LENGTH];
+
+        for(int i = 0; i < SQN.length; i++) {
+            auts[i] = (byte) (SQN[i] ^ F5_STAR[i]);
+        }
+        System.arraycopy(macS, 0, auts, SQN.length, macS.length);
+        return auts;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.SqnPolicies;
+import threegpp.milenage.cipher.BlockEngine;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>QuintetGeneratorTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class QuintetGeneratorTest {
+
+    private static final RandSource FIXED = new RandSource() {
+        @Override
+        public void nextRand(byte [] dst, int offset) {
+            System.arraycopy(RAND, 0, dst, offset, RAND.length);
+        }
+    };
+
+    @Test
+    public void quintetTest() {
+        CountingEngine engine = new CountingEngine(Ciphers.createRijndaelEngine(K));
+        Milenage<?> milenage = new Milenage<>(OPC, engine, PrimitiveBufferFactory.getInstance());
+        QuintetGenerator generator = new QuintetGenerator(milenage, FIXED);
+
+        Quintet quintet = generator.generate(SQN, AMF);
+
+        assertEquals(5, engine.blocks);
+        assertArrayEquals(RAND, quintet.getRand());
+        assertArrayEquals(F2, quintet.getXres());
+        assertArrayEquals(F3, quintet.getCk());
+        assertArrayEquals(F4, quintet.getIk());
+        assertArrayEquals(expectedAutn(SQN), quintet.getAutn());
+    }
+
+    @Test
+    public void seriesTest() {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        QuintetGenerator generator = new QuintetGenerator(milenage, FIXED);
+        byte [] dst = new byte [3 * Quintet.LENGTH + 1];
+        long sqn = new BigInteger(1, SQN).longValue();
+
+        long next = generator.generate(3, sqn, SqnPolicies.sequential(), AMF, dst, 1);
+
+        assertEquals(sqn + 3, next);
+        for(int i = 0; i < 3; i++) {
+            byte [] sqnBytes = Arrays.copyOfRange(BigInteger.valueOf(sqn + i).toByteArray(), 1, 7);
+            Quintet quintet = new Quintet(dst, 1 + i * Quintet.LENGTH);
+
+            assertArrayEquals(F3, quintet.getCk());
+            assertArrayEquals(Arrays.copyOf(expectedAutn(sqnBytes), 8),
+                    Arrays.copyOf(quintet.getAutn(), 8));
+        }
+    }
+
+    private static byte [] expectedAutn(byte [] sqn) {
+        byte [] autn = new byte [Quintet.AUTN_LENGTH];
+
+        for(int i = 0; i < sqn.length; i++) {
+            autn[i] = (byte) (sqn[i] ^ F5[i]);
+        }
+        System.arraycopy(AMF, 0, autn, 6, 2);
+        System.arraycopy(F1, 0, autn, 8, 8);
+        return autn;
+    }
+
+    private static final class CountingEngine implements BlockEngine {
+        private final BlockEngine engine;
+        int blocks;
+
+        CountingEngine(BlockEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public void encryptBlock(byte [] in, int inOffset, byte [] out, int outOffset) {
+            blocks++;
+            engine.encryptBlock(in, inOffset, out, outOffset);
+        }
+
+        @Override
+        public void encryptBlock(long hi, long lo, long [] out) {
+            blocks++;
+            engine.encryptBlock(hi, lo, out);
+        }
+
+        @Override
+        public void encryptBlocks(byte [] in, int inOffset, byte [] out, int outOffset, int count) {
+            blocks += count;
+            engine.encryptBlocks(in, inOffset, out, outOffset, count);
+        }
+    }
+}
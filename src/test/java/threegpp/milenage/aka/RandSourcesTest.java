@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * <h1>RandSourcesTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class RandSourcesTest {
+
+    @Test
+    public void fromRandomTest() {
+        RandSource source = RandSources.fromRandom(new Random(5));
+        Random expected = new Random(5);
+        byte [] dst = new byte [40];
+
+        source.nextRand(dst, 3);
+        source.nextRand(dst, 19);
+
+        ByteBuffer rands = ByteBuffer.allocate(dst.length);
+        rands.position(3);
+        for(int i = 0; i < 4; i++) {
+            rands.putLong(expected.nextLong());
+        }
+        assertArrayEquals(rands.array(), dst);
+
+        try {
+            source.nextRand(dst, 25);
+            fail("RAND is written past the end");
+
+        } catch (ArrayIndexOutOfBoundsException e) {
+            assertEquals(0, dst[39]);
+        }
+    }
+
+    @Test
+    public void secureRandomTest() {
+        RandSource source = RandSources.secureRandom();
+        byte [] first = new byte [18];
+        byte [] second = new byte [18];
+
+        source.nextRand(first, 1);
+        source.nextRand(second, 1);
+
+        assertEquals(0, first[0]);
+        assertEquals(0, first[17]);
+        assertFalse(Arrays.equals(first, second));
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>UsimAuthenticatorTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class UsimAuthenticatorTest {
+
+    private static final Milenage<?> MILENAGE =
+            new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+
+    @Test
+    public void authenticateTest() {
+        Quintet quintet = new QuintetGenerator(MILENAGE, new RandSource() {
+            @Override
+            public void nextRand(byte [] dst, int offset) {
+                System.arraycopy(RAND, 0, dst, offset, RAND.length);
+            }
+        }).generate(SQN, AMF);
+        SqnArrayStore store = new SqnArrayStore(2, SqnArrayStore.DEFAULT_IND_BITS);
+        MilenageOutput output = new MilenageOutput();
+
+        assertEquals(UsimAuthenticator.Result.SUCCESS, UsimAuthenticator.authenticate(
+                MILENAGE, store, 1, RAND, quintet.getAutn(), output.getData(), 0));
+        assertArrayEquals(quintet.getXres(), output.getRes());
+        assertArrayEquals(F3, output.getCk());
+        assertArrayEquals(F4, output.getIk());
+
+        assertEquals(UsimAuthenticator.Result.SYNC_FAILURE, UsimAuthenticator.authenticate(
+                MILENAGE, store, 1, RAND, quintet.getAutn(), output.getData(), 0));
+
+        byte [] auts = new byte [AutsVerifier.AUTS_LENGTH];
+        UsimAuthenticator.createAuts(MILENAGE, store, 1, RAND, auts, 0);
+        assertEquals(new BigInteger(1, SQN).longValue(), AutsVerifier.verify(MILENAGE, RAND, auts));
+
+        byte [] forged = quintet.getAutn();
+        forged[forged.length - 1] ^= 1;
+        assertEquals(UsimAuthenticator.Result.MAC_FAILURE, UsimAuthenticator.authenticate(
+                MILENAGE, store, 0, RAND, forged, output.getData(), 0));
+    }
+
+    @Test
+    public void sqnArrayTest() {
+        SqnArrayStore store = new SqnArrayStore(1, 5, 100);
+        long seq = 40;
+
+        assertTrue(store.accept(0, (seq << 5) | 3));
+        assertTrue(store.accept(0, ((seq - 1) << 5) | 4));
+        assertFalse(store.accept(0, ((seq - 1) << 5) | 3));
+        assertFalse(store.accept(0, ((seq + 101) << 5) | 5));
+        assertEquals((seq << 5) | 3, store.getSqnMs(0));
+
+        store.reset(0);
+        assertTrue(store.accept(0, ((seq - 1) << 5) | 3));
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.aka;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.SqnPolicies;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>VectorPoolTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class VectorPoolTest {
+
+    @Test
+    public void poolTest() throws Exception {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        final QuintetGenerator generator = new QuintetGenerator(milenage, RandSources.fromRandom(new Random(3)));
+        final AtomicLong sqn = new AtomicLong();
+        QuintetSupplier<String> supplier = VectorPool.supplier(
+                subscriber -> generator,
+                (subscriber, count) -> sqn.getAndAdd(count) + 1,
+                SqnPolicies.sequential(), AMF);
+
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(2);
+        try(VectorPool<String> pool = new VectorPool<>(supplier, executor, 2, 8, 1, TimeUnit.HOURS, 1)) {
+            Set<Long> sqns = new HashSet<>();
+
+            Quintet first = pool.take("001");
+            assertEquals(1, pool.getMisses());
+            sqns.add(sqnOf(first));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while(pool.available("001") < 8 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            for(int i = 0; i < 6; i++) {
+                sqns.add(sqnOf(pool.take("001")));
+            }
+            assertEquals(6, pool.getHits());
+            assertEquals(7, sqns.size());
+            assertTrue(pool.getHitRate() > 0.8);
+
+            pool.take("002");
+            assertEquals(1, pool.size());
+            assertEquals(1, pool.getEvictions());
+            assertEquals(0, pool.available("001"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sizeBoundTest() throws Exception {
+        QuintetSupplier<Integer> supplier = (subscriber, count, dst, offset) -> {};
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+
+        try(VectorPool<Integer> pool = new VectorPool<>(supplier, executor, 2, 8, 1, TimeUnit.HOURS, 64)) {
+            for(int i = 0; i < 1000; i++) {
+                pool.take(i);
+                assertTrue(pool.size() <= 64);
+            }
+            assertTrue(pool.getEvictions() >= 1000 - 64);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sqnOrderTest() throws Exception {
+        final AtomicLong sqn = new AtomicLong();
+        QuintetSupplier<String> supplier = (subscriber, count, dst, offset) -> {
+            if(count == 1) {
+                // let a concurrently scheduled refill reserve its range first if it can
+                Thread.sleep(20);
+            }
+            long first = sqn.getAndAdd(count);
+
+            for(int i = 0; i < count; i++) {
+                ByteBuffer.wrap(dst, offset + i * Quintet.LENGTH, Long.BYTES).putLong(first + i);
+            }
+        };
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(2);
+
+        try(VectorPool<String> pool = new VectorPool<>(supplier, executor, 2, 8, 1, TimeUnit.HOURS, 16)) {
+            long last = -1;
+
+            for(int i = 0; i < 200; i++) {
+                long value = ByteBuffer.wrap(pool.take("001").getData()).getLong();
+
+                assertTrue("SQN " + value + " served after " + last, value > last);
+                last = value;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void ringTest() {
+        VectorRing ring = new VectorRing(3);
+        byte [] quintet = new byte [Quintet.LENGTH];
+        byte [] out = new byte [Quintet.LENGTH];
+
+        assertEquals(4, ring.capacity());
+        for(int i = 0; i < 4; i++) {
+            quintet[0] = (byte) i;
+            assertTrue(ring.offer(quintet, 0));
+        }
+        assertFalse(ring.offer(quintet, 0));
+        for(int i = 0; i < 4; i++) {
+            assertTrue(ring.poll(out, 0));
+            assertEquals(i, out[0]);
+        }
+        assertFalse(ring.poll(out, 0));
+        assertEquals(0, ring.size());
+    }
+
+    /**
+     * Recovers SQN from AUTN knowing AK of the fixed test key.
+     */
+    private static long sqnOf(Quintet quintet) {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        byte [] ak = milenage.calculateOutput(quintet.getRand(), SQN, AMF).getAk();
+        byte [] autn = quintet.getAutn();
+        long value = 0;
+
+        for(int i = 0; i < 6; i++) {
+            value = (value << 8) | ((autn[i] ^ ak[i]) & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.bulk;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>BulkOpcCalculatorTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class BulkOpcCalculatorTest {
+
+    private static final int RECORDS = 1000;
+
+    @Test
+    public void commonOpTest() throws IOException, InterruptedException {
+        byte [] keys = new byte [RECORDS * Milenage.BLOCK_LEN_BYTES];
+        new Random(1).nextBytes(keys);
+        System.arraycopy(K, 0, keys, 0, K.length);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BulkOpcCalculator calculator = new BulkOpcCalculator(OP, executor, 4, 300);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final AtomicLong progress = new AtomicLong();
+
+            long count = calculator.calculate(new ByteArrayInputStream(keys), out, new ProgressListener() {
+                @Override
+                public void onProgress(long records, long elapsedNanos) {
+                    progress.set(records);
+                }
+            });
+            assertEquals(RECORDS, count);
+            assertEquals(RECORDS, progress.get());
+
+            byte [] opcs = out.toByteArray();
+            assertArrayEquals(OPC, Arrays.copyOf(opcs, Milenage.BLOCK_LEN_BYTES));
+            for(int i = 0; i < RECORDS; i++) {
+                int offset = i * Milenage.BLOCK_LEN_BYTES;
+                byte [] k = Arrays.copyOfRange(keys, offset, offset + Milenage.BLOCK_LEN_BYTES);
+
+                assertArrayEquals(
+                        Milenage.calculateOPc(OP, Ciphers.createRijndaelCipher(k), PrimitiveBufferFactory.getInstance()),
+                        Arrays.copyOfRange(opcs, offset, offset + Milenage.BLOCK_LEN_BYTES));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void keyAndOpTest() throws IOException, InterruptedException {
+        byte [] records = new byte [Milenage.BLOCK_LEN_BYTES * 4];
+        System.arraycopy(K, 0, records, 0, K.length);
+        System.arraycopy(OP, 0, records, K.length, OP.length);
+        System.arraycopy(records, 0, records, records.length / 2, records.length / 2);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new BulkOpcCalculator(executor, 2, 1).calculate(new ByteArrayInputStream(records), out, null);
+
+            byte [] opcs = out.toByteArray();
+            assertEquals(2 * Milenage.BLOCK_LEN_BYTES, opcs.length);
+            assertArrayEquals(OPC, Arrays.copyOf(opcs, Milenage.BLOCK_LEN_BYTES));
+            assertArrayEquals(OPC, Arrays.copyOfRange(opcs, Milenage.BLOCK_LEN_BYTES, opcs.length));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedInputTest() throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new BulkOpcCalculator(OP, executor, 1, 16).calculate(
+                    new ByteArrayInputStream(new byte [Milenage.BLOCK_LEN_BYTES + 1]),
+                    new ByteArrayOutputStream(), null);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.bulk;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.cipher.AesEngine;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>BulkVectorCalculatorTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class BulkVectorCalculatorTest {
+
+    private static final int RECORDS = 500;
+
+    @Test
+    public void forkJoinTest() {
+        SubscriberBatch batch = createBatch();
+        BulkVectorCalculator calculator = new BulkVectorCalculator(ForkJoinPool.commonPool(), 16);
+
+        byte [] out = calculator.calculate(batch);
+
+        assertArrayEquals(F3, new MilenageOutput(out, 0).getCk());
+        for(int i = 0; i < RECORDS; i++) {
+            assertArrayEquals(expected(batch, i), Arrays.copyOfRange(out,
+                    i * MilenageOutput.LENGTH, (i + 1) * MilenageOutput.LENGTH));
+        }
+    }
+
+    @Test
+    public void parallelStreamTest() {
+        SubscriberBatch batch = createBatch();
+        BulkVectorCalculator calculator = new BulkVectorCalculator(ForkJoinPool.commonPool(), 16);
+        byte [] out = new byte [RECORDS * MilenageOutput.LENGTH + 1];
+
+        LongAdder count = new LongAdder();
+        calculator.stream(batch, out, 1, true).forEach(output -> count.increment());
+
+        assertEquals(RECORDS, count.sum());
+        for(int i = 0; i < RECORDS; i++) {
+            int offset = 1 + i * MilenageOutput.LENGTH;
+            assertArrayEquals(expected(batch, i), Arrays.copyOfRange(out, offset, offset + MilenageOutput.LENGTH));
+        }
+    }
+
+    @Test
+    public void engineBatchTest() {
+        SubscriberBatch batch = createBatch();
+        SubscriberBatch engines = new SubscriberBatch(RECORDS);
+        AesEngine key = new AesEngine(K);
+
+        for(int i = 0; i < RECORDS; i++) {
+            int block = i * Milenage.BLOCK_LEN_BYTES;
+            engines.set(i, key,
+                    Arrays.copyOfRange(batch.getOPc(), block, block + Milenage.BLOCK_LEN_BYTES),
+                    Arrays.copyOfRange(batch.getRand(), block, block + Milenage.BLOCK_LEN_BYTES),
+                    Arrays.copyOfRange(batch.getSqn(), i * Milenage.SQN_LEN_BYTES, (i + 1) * Milenage.SQN_LEN_BYTES),
+                    Arrays.copyOfRange(batch.getAmf(), i * Milenage.AMF_LEN_BYTES, (i + 1) * Milenage.AMF_LEN_BYTES));
+            System.arraycopy(K, 0, batch.getK(), block, Milenage.BLOCK_LEN_BYTES);
+        }
+        byte [] out = new BulkVectorCalculator(ForkJoinPool.commonPool(), 16).calculate(engines);
+
+        assertArrayEquals(F3, new MilenageOutput(out, 0).getCk());
+        for(int i = 0; i < RECORDS; i++) {
+            assertArrayEquals(expected(batch, i), Arrays.copyOfRange(out,
+                    i * MilenageOutput.LENGTH, (i + 1) * MilenageOutput.LENGTH));
+        }
+    }
+
+    private static SubscriberBatch createBatch() {
+        Random random = new Random(7);
+        byte [] k = new byte [RECORDS * Milenage.BLOCK_LEN_BYTES];
+        byte [] opc = new byte [RECORDS * Milenage.BLOCK_LEN_BYTES];
+        byte [] rand = new byte [RECORDS * Milenage.BLOCK_LEN_BYTES];
+        byte [] sqn = new byte [RECORDS * Milenage.SQN_LEN_BYTES];
+        byte [] amf = new byte [RECORDS * Milenage.AMF_LEN_BYTES];
+
+        random.nextBytes(k);
+        random.nextBytes(opc);
+        random.nextBytes(rand);
+        random.nextBytes(sqn);
+        random.nextBytes(amf);
+
+        SubscriberBatch batch = new SubscriberBatch(k, opc, rand, sqn, amf);
+        batch.set(0, K, OPC, RAND, SQN, AMF);
+        return batch;
+    }
+
+    private static byte [] expected(SubscriberBatch batch, int i) {
+        int block = i * Milenage.BLOCK_LEN_BYTES;
+        byte [] k = Arrays.copyOfRange(batch.getK(), block, block + Milenage.BLOCK_LEN_BYTES);
+        byte [] opc = Arrays.copyOfRange(batch.getOPc(), block, block + Milenage.BLOCK_LEN_BYTES);
+        byte [] rand = Arrays.copyOfRange(batch.getRand(), block, block + Milenage.BLOCK_LEN_BYTES);
+        byte [] sqn = Arrays.copyOfRange(batch.getSqn(),
+                i * Milenage.SQN_LEN_BYTES, (i + 1) * Milenage.SQN_LEN_BYTES);
+        byte [] amf = Arrays.copyOfRange(batch.getAmf(),
+                i * Milenage.AMF_LEN_BYTES, (i + 1) * Milenage.AMF_LEN_BYTES);
+
+        return new Milenage<>(opc, Ciphers.createRijndaelEngine(k), PrimitiveBufferFactory.getInstance())
+                .calculateOutput(rand, sqn, amf)
+                .getData();
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.primitive.PrimitiveBuffer;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static javax.xml.bind.DatatypeConverter.parseHexBinary;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>AesEngineTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class AesEngineTest {
+
+    @Test
+    public void fips197Test() {
+        byte [] plain = parseHexBinary("00112233445566778899AABBCCDDEEFF");
+        byte [] out = new byte [BlockEngine.BLOCK_SIZE];
+
+        new AesEngine(parseHexBinary("000102030405060708090A0B0C0D0E0F")).encryptBlock(plain, 0, out, 0);
+        assertArrayEquals(parseHexBinary("69C4E0D86A7B0430D8CDB78070B4C55A"), out);
+
+        new AesEngine(parseHexBinary("000102030405060708090A0B0C0D0E0F1011121314151617"))
+                .encryptBlock(plain, 0, out, 0);
+        assertArrayEquals(parseHexBinary("DDA97CA4864CDFE06EAF70A0EC0D7191"), out);
+
+        new AesEngine(parseHexBinary("000102030405060708090A0B0C0D0E0F101112131415161718191A1B1C1D1E1F"))
+                .encryptBlock(plain, 0, out, 0);
+        assertArrayEquals(parseHexBinary("8EA2B7CA516745BFEAFC49904B496089"), out);
+    }
+
+    @Test
+    public void jcaCompatibilityTest() throws Exception {
+        Random random = new Random(35206);
+
+        for(int keyLength: new int [] {16, 24, 32}) {
+            for(int i = 0; i < 100; i++) {
+                byte [] key = new byte [keyLength];
+                byte [] block = new byte [BlockEngine.BLOCK_SIZE + 3];
+                random.nextBytes(key);
+                random.nextBytes(block);
+
+                byte [] expected = Ciphers.createCipher("AES/ECB/NoPadding", "AES", key)
+                        .doFinal(block, 3, BlockEngine.BLOCK_SIZE);
+                BlockEngine engine = Ciphers.createRijndaelEngine(key);
+
+                byte [] actual = new byte [BlockEngine.BLOCK_SIZE];
+                engine.encryptBlock(block, 3, actual, 0);
+                assertArrayEquals(expected, actual);
+
+                PrimitiveBuffer plain = new PrimitiveBuffer(Arrays.copyOfRange(block, 3, 19));
+                long [] halves = new long [2];
+                engine.encryptBlock(plain.getHi(), plain.getLo(), halves);
+                assertEquals(new PrimitiveBuffer(expected), new PrimitiveBuffer(halves[0], halves[1]));
+            }
+        }
+    }
+
+    @Test
+    public void multiBlockTest() throws Exception {
+        Random random = new Random(35207);
+        byte [] key = new byte [BlockEngine.BLOCK_SIZE];
+        byte [] blocks = new byte [BlockEngine.BLOCK_SIZE * 5];
+        random.nextBytes(key);
+        random.nextBytes(blocks);
+
+        byte [] expected = Ciphers.createRijndaelCipher(key).doFinal(blocks);
+        BlockEngine[] engines = new BlockEngine[] {
+                Ciphers.createRijndaelEngine(key),
+                Ciphers.createBlockEngine(Ciphers.createRijndaelCipherPool(key, 1))
+        };
+        for(BlockEngine engine: engines) {
+            byte [] out = new byte [blocks.length * 2];
+            engine.encryptBlocks(blocks, 0, out, blocks.length, 5);
+            assertArrayEquals(expected, Arrays.copyOfRange(out, blocks.length, out.length));
+
+            byte [] inPlace = Arrays.copyOf(blocks, blocks.length);
+            engine.encryptBlocks(inPlace, 0, inPlace, 0, 5);
+            assertArrayEquals(expected, inPlace);
+        }
+    }
+
+    @Test
+    public void milenageTest() {
+        PrimitiveBufferFactory factory = PrimitiveBufferFactory.getInstance();
+        BlockEngine[] engines = new BlockEngine[] {
+                Ciphers.createRijndaelEngine(K),
+                Ciphers.createBlockEngine(Ciphers.createRijndaelCipherProvider(K))
+        };
+        for(BlockEngine engine: engines) {
+            byte [] opc = Milenage.calculateOPc(OP, engine, factory);
+            assertArrayEquals(OPC, opc);
+
+            Milenage<PrimitiveBuffer> milenage = new Milenage<>(opc, engine, factory);
+            Map<MilenageResult, byte []> result = milenage.calculateAll(RAND, SQN, AMF);
+
+            assertArrayEquals(F1, result.get(MilenageResult.MAC_A));
+            assertArrayEquals(F1_STAR, result.get(MilenageResult.MAC_S));
+            assertArrayEquals(F2, result.get(MilenageResult.RES));
+            assertArrayEquals(F3, result.get(MilenageResult.CK));
+            assertArrayEquals(F4, result.get(MilenageResult.IK));
+            assertArrayEquals(F5, result.get(MilenageResult.AK));
+            assertArrayEquals(F5_STAR, result.get(MilenageResult.AK_R));
+            assertArrayEquals(F3, milenage.f3(RAND));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void destroyedTest() {
+        AesEngine engine = new AesEngine(K);
+
+        engine.destroy();
+        engine.encryptBlock(PLAIN, 0, new byte [BlockEngine.BLOCK_SIZE], 0);
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.cipher;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>CipherCacheTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class CipherCacheTest {
+
+    @Test
+    public void countersTest() {
+        CipherCache cache = new CipherCache(2);
+
+        for(int i = 0; i < 3; i++) {
+            try(CipherCache.Lease lease = cache.acquire(K)) {
+                assertArrayEquals(OPC, Milenage.calculateOPc(OP, lease, PrimitiveBufferFactory.getInstance()));
+            }
+        }
+        cache.acquire(OP).close();
+        cache.acquire(C2_C).close();
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void zeroizationTest() {
+        final List<AesEngine> created = new ArrayList<>();
+        CipherCache cache = new CipherCache(1, new CipherCache.Loader() {
+            @Override
+            public BlockEngine create(byte [] key) {
+                AesEngine engine = new AesEngine(key);
+                created.add(engine);
+                return engine;
+            }
+        });
+
+        CipherCache.Lease lease = cache.acquire(K);
+        cache.acquire(OP).close();
+
+        // evicted, but still leased
+        assertEquals(1, cache.getEvictionCount());
+        assertFalse(created.get(0).isDestroyed());
+        assertArrayEquals(OPC, Milenage.calculateOPc(OP, lease, PrimitiveBufferFactory.getInstance()));
+
+        lease.close();
+        lease.close();
+        assertTrue(created.get(0).isDestroyed());
+        assertFalse(created.get(1).isDestroyed());
+
+        cache.clear();
+        assertTrue(created.get(1).isDestroyed());
+        assertEquals(0, cache.size());
+
+        byte [] key = Arrays.copyOf(K, K.length);
+        cache.acquire(key).close();
+        cache.invalidate(key);
+        assertTrue(created.get(2).isDestroyed());
+    }
+
+    @Test
+    public void closedLeaseTest() {
+        CipherCache cache = new CipherCache(1);
+        CipherCache.Lease lease = cache.acquire(K);
+
+        lease.close();
+        cache.acquire(OP).close();
+
+        try {
+            Milenage.calculateOPc(OP, lease, PrimitiveBufferFactory.getInstance());
+            fail("Closed lease encrypted");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
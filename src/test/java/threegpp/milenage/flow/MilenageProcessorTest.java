@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.flow;
+
+import org.junit.Test;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>MilenageProcessorTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class MilenageProcessorTest {
+
+    private static final int REQUESTS = 500;
+
+    @Test
+    public void streamTest() throws Exception {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            MilenageProcessor<Integer> processor = new MilenageProcessor<>(executor, 8, 32, 4);
+            CollectingSubscriber subscriber = new CollectingSubscriber();
+            processor.subscribe(subscriber);
+
+            try(SubmissionPublisher<VectorRequest<Integer>> source = new SubmissionPublisher<>(executor, 16)) {
+                source.subscribe(processor);
+                for(int i = 0; i < REQUESTS; i++) {
+                    byte [] rand = RAND.clone();
+                    rand[15] = (byte) i;
+                    source.submit(new VectorRequest<>(milenage, rand, SQN, AMF, i));
+                }
+            }
+            List<VectorResult<Integer>> results = subscriber.completion.get(30, TimeUnit.SECONDS);
+
+            assertEquals(REQUESTS, results.size());
+            for(int i = 0; i < REQUESTS; i++) {
+                VectorResult<Integer> result = results.get(i);
+
+                assertEquals(Integer.valueOf(i), result.getAttachment());
+                MilenageOutput output = result.getOutput();
+
+                assertArrayEquals(milenage.calculateOutput(result.getRequest().getRand(), SQN, AMF).getData(),
+                        Arrays.copyOfRange(output.getData(), output.getOffset(), output.getOffset() + MilenageOutput.LENGTH));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        Milenage<?> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K), PrimitiveBufferFactory.getInstance());
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            MilenageProcessor<Integer> processor = new MilenageProcessor<>(executor, 4, 8, 4);
+            CollectingSubscriber subscriber = new CollectingSubscriber();
+            processor.subscribe(subscriber);
+
+            SubmissionPublisher<VectorRequest<Integer>> source = new SubmissionPublisher<>(executor, 16);
+            source.subscribe(processor);
+            source.submit(new VectorRequest<>(milenage, RAND, SQN, AMF, 0));
+            source.submit(new VectorRequest<Integer>(milenage, null, SQN, AMF, 1));
+            try {
+                subscriber.completion.get(30, TimeUnit.SECONDS);
+                fail("Failure is not propagated");
+
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof NullPointerException);
+            }
+            source.close();
+
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<VectorResult<Integer>> {
+        final CompletableFuture<List<VectorResult<Integer>>> completion = new CompletableFuture<>();
+        final List<VectorResult<Integer>> results = new ArrayList<>();
+        Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(VectorResult<Integer> item) {
+            results.add(item);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(results);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.metrics;
+
+import org.junit.Test;
+import threegpp.milenage.CConstants;
+import threegpp.milenage.ExecutionPolicy;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.RConstants;
+import threegpp.milenage.biginteger.BigIntegerBuffer;
+import threegpp.milenage.biginteger.BigIntegerBufferFactory;
+import threegpp.milenage.cipher.Ciphers;
+import threegpp.milenage.primitive.PrimitiveBuffer;
+import threegpp.milenage.primitive.PrimitiveBufferFactory;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>MetricsRecorderTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class MetricsRecorderTest {
+
+    @Test
+    public void stagesTest() throws Exception {
+        BigIntegerBufferFactory factory = BigIntegerBufferFactory.getInstance();
+        Milenage<BigIntegerBuffer> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K),
+                new CConstants<>(factory), new RConstants(), factory);
+        MetricsRecorder recorder = new MetricsRecorder(1);
+
+        assertSame(MilenageMetrics.disabled(), milenage.getMetrics());
+        milenage.setMetrics(recorder);
+        milenage.setExecutionPolicy(new ExecutionPolicy(ExecutionPolicy.Mode.FAN_OUT, 4));
+
+        assertArrayEquals(F1, milenage.f1All(RAND, SQN, AMF).get(MilenageResult.MAC_A));
+        assertArrayEquals(F3, milenage.f3(RAND));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Map<MilenageResult, byte []> result = milenage.calculateAll(RAND, SQN, AMF, executor);
+            assertArrayEquals(F4, result.get(MilenageResult.IK));
+        } finally {
+            executor.shutdown();
+        }
+        MetricsSnapshot snapshot = recorder.snapshot();
+
+        assertEquals(1, snapshot.getCount(Metric.F1_ALL));
+        assertEquals(1, snapshot.getCount(Metric.F3));
+        assertEquals(1, snapshot.getCount(Metric.CALCULATE_ALL));
+        assertEquals(1, snapshot.getCount(Metric.EXECUTOR_WAIT));
+        assertEquals(3, snapshot.getCount(Metric.TEMP));
+        assertEquals(2, snapshot.getCount(Metric.OUT1));
+        assertEquals(2, snapshot.getCount(Metric.OUT3));
+        assertEquals(1, snapshot.getCount(Metric.OUT5));
+        assertEquals(0, snapshot.getCount(Metric.F4));
+        assertTrue(snapshot.getLatency(Metric.CALCULATE_ALL).getMax() > 0);
+        if(MetricsRecorder.isAllocationSamplingSupported()) {
+            assertEquals(1, snapshot.getAllocatedBytes(Metric.F1_ALL).getCount());
+            assertTrue(snapshot.getAllocatedBytes(Metric.F1_ALL).getMax() > 0);
+        }
+        recorder.reset();
+        assertEquals(0, recorder.snapshot().getCount(Metric.TEMP));
+    }
+
+    @Test
+    public void fusedPathAndJmxTest() throws Exception {
+        PrimitiveBufferFactory factory = PrimitiveBufferFactory.getInstance();
+        Milenage<PrimitiveBuffer> milenage = new Milenage<>(OPC, Ciphers.createRijndaelEngine(K),
+                new CConstants<>(factory), new RConstants(), factory);
+        MetricsRecorder recorder = new MetricsRecorder(0);
+
+        milenage.setMetrics(recorder);
+        for(int i = 0; i < 10; i++) {
+            assertArrayEquals(F5_STAR, milenage.calculateOutput(RAND, SQN, AMF).get(MilenageResult.AK_R));
+        }
+        List<ObjectName> names = recorder.register("fused-test");
+        try {
+            ObjectName name = new ObjectName(MetricsRecorder.JMX_DOMAIN
+                    + ":type=Milenage,name=\"fused-test\",metric=OUT_BLOCKS");
+
+            assertEquals(Metric.values().length, names.size());
+            assertEquals(10L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count"));
+            assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "AllocationSamples"));
+        } finally {
+            recorder.unregister("fused-test");
+        }
+        assertEquals(10, recorder.snapshot().getCount(Metric.TEMP));
+        assertEquals(0, recorder.snapshot().getCount(Metric.OUT1));
+    }
+
+    @Test
+    public void histogramTest() {
+        Histogram histogram = new Histogram();
+
+        for(long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_500.0, snapshot.getMean(), 0.001);
+        assertTrue(Math.abs(snapshot.getPercentile(50) - 500_000) <= 500_000 / 8);
+        assertTrue(Math.abs(snapshot.getPercentile(99) - 990_000) <= 990_000 / 8);
+        assertEquals(1_000_000, snapshot.getPercentile(100));
+
+        for(long value : new long [] {0, 7, 8, 15, 16, 1000, Long.MAX_VALUE}) {
+            int index = Histogram.index(value);
+
+            assertTrue(index < Histogram.BUCKETS);
+            assertTrue(Histogram.upperBound(index) >= value);
+            assertTrue(index == 0 || Histogram.upperBound(index - 1) < value);
+        }
+    }
+}
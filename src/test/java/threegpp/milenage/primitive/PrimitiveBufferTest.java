@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.primitive;
+
+import org.junit.Test;
+import threegpp.milenage.CConstants;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageBuffer;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.RConstants;
+import threegpp.milenage.biginteger.BigIntegerBuffer;
+import threegpp.milenage.cipher.Ciphers;
+
+import javax.crypto.Cipher;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>PrimitiveBufferTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class PrimitiveBufferTest {
+
+    private static PrimitiveBufferFactory factory = PrimitiveBufferFactory.getInstance();
+    private static Cipher key = Ciphers.createRijndaelCipher(K);
+
+    @Test
+    public void rotationTest() {
+        MilenageBuffer<long []> primitive = factory.create(C2_C);
+        MilenageBuffer<BigInteger> reference = new BigIntegerBuffer(C2_C);
+
+        for(int bits = 0; bits < Milenage.BLOCK_LEN_BITS; bits++) {
+            assertArrayEquals("rotation by " + bits,
+                    reference.leftCircularBitRotation((byte) bits).toBytes(),
+                    primitive.leftCircularBitRotation((byte) bits).toBytes());
+        }
+    }
+
+    @Test
+    public void conversionTest() {
+        PrimitiveBuffer fromBytes = factory.create(C5_C);
+        PrimitiveBuffer fromHex = factory.create(new BigIntegerBuffer(C5_C).toString());
+
+        assertEquals(fromBytes, fromHex);
+        assertArrayEquals(C5_C, fromHex.toBytes());
+        assertArrayEquals(
+                BigIntegerBuffer.createIN1(SQN, AMF).toBytes(),
+                factory.create(SQN, AMF).toBytes());
+    }
+
+    @Test
+    public void cipherTest() {
+        assertArrayEquals(CIPHER, factory.create(PLAIN).encrypt(key).toBytes());
+    }
+
+    @Test
+    public void mutableOperationsTest() {
+        PrimitiveBuffer c2 = factory.create(C2_C);
+        PrimitiveBuffer c3 = factory.create(C3_C);
+        MutablePrimitiveBuffer scratch = factory.createScratch();
+
+        scratch.load(C2_C, 0).xorInPlace(c3).rotateInto(R4_C, scratch).encryptInto(key, scratch);
+
+        assertArrayEquals(
+                c2.xor(c3).leftCircularBitRotation(R4_C).encrypt(key).toBytes(),
+                scratch.toBytes());
+
+        byte [] fragment = new byte [Milenage.AK_LEN_BYTES + 1];
+        scratch.copyBytes(5, 11, fragment, 1);
+        assertArrayEquals(scratch.takeBytes(5, 11)[0], Arrays.copyOfRange(fragment, 1, fragment.length));
+    }
+
+    @Test
+    public void calculateAllInPlaceTest() {
+        byte [] opc = Milenage.calculateOPc(OP, key, factory);
+        RConstants rConstants = new RConstants(R1_C, R2_C, R3_C, R4_C, R5_C);
+
+        Milenage<PrimitiveBuffer> milenage = new Milenage<>(
+                opc, key, C1_C, C2_C, C3_C, C4_C, C5_C, rConstants, factory);
+
+        Map<MilenageResult, byte []> result = milenage.calculateAll(RAND, SQN, AMF);
+
+        assertArrayEquals(F1_C, result.get(MilenageResult.MAC_A));
+        assertArrayEquals(F1_STAR_C, result.get(MilenageResult.MAC_S));
+        assertArrayEquals(F2_C, result.get(MilenageResult.RES));
+        assertArrayEquals(F3_C, result.get(MilenageResult.CK));
+        assertArrayEquals(F4_C, result.get(MilenageResult.IK));
+        assertArrayEquals(F5_C, result.get(MilenageResult.AK));
+        assertArrayEquals(F5_STAR_C, result.get(MilenageResult.AK_R));
+    }
+
+    @Test
+    public void etsiTs135207Test() throws InterruptedException, ExecutionException {
+        byte [] opc = Milenage.calculateOPc(OP, key, factory);
+        assertArrayEquals(OPC, opc);
+
+        Milenage<PrimitiveBuffer> milenage = new Milenage<>(
+                opc, key, new CConstants<>(factory), new RConstants(), factory);
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Map<MilenageResult, byte []> result = milenage.calculateAll(RAND, SQN, AMF, executor);
+
+            assertArrayEquals(F1, result.get(MilenageResult.MAC_A));
+            assertArrayEquals(F1_STAR, result.get(MilenageResult.MAC_S));
+            assertArrayEquals(F2, result.get(MilenageResult.RES));
+            assertArrayEquals(F3, result.get(MilenageResult.CK));
+            assertArrayEquals(F4, result.get(MilenageResult.IK));
+            assertArrayEquals(F5, result.get(MilenageResult.AK));
+            assertArrayEquals(F5_STAR, result.get(MilenageResult.AK_R));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void etsiTs135207CustomTest() {
+        byte [] opc = Milenage.calculateOPc(OP, key, factory);
+        RConstants rConstants = new RConstants(R1_C, R2_C, R3_C, R4_C, R5_C);
+
+        Milenage<PrimitiveBuffer> milenage = new Milenage<>(
+                opc, key, C1_C, C2_C, C3_C, C4_C, C5_C, rConstants, factory);
+
+        Map<MilenageResult, byte []> f1All = milenage.f1All(RAND, SQN, AMF);
+        Map<MilenageResult, byte []> f2f5 = milenage.f2f5(RAND);
+
+        assertArrayEquals(F1_C, f1All.get(MilenageResult.MAC_A));
+        assertArrayEquals(F1_STAR_C, f1All.get(MilenageResult.MAC_S));
+        assertArrayEquals(F2_C, f2f5.get(MilenageResult.RES));
+        assertArrayEquals(F3_C, milenage.f3(RAND));
+        assertArrayEquals(F4_C, milenage.f4(RAND));
+        assertArrayEquals(F5_C, f2f5.get(MilenageResult.AK));
+        assertArrayEquals(F5_STAR_C, milenage.f5Star(RAND));
+    }
+}
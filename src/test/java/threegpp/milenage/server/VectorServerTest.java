@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.server;
+
+import org.junit.Test;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.bulk.BulkVectorCalculator;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>VectorServerTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class VectorServerTest {
+
+    private static final int REQUESTS = 500;
+
+    @Test
+    public void pipeliningTest() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BulkVectorCalculator calculator = new BulkVectorCalculator(pool, 16);
+
+        try(VectorServer server = new VectorServer(new InetSocketAddress("127.0.0.1", 0), calculator, 64).start();
+            SocketChannel first = SocketChannel.open(server.getAddress());
+            SocketChannel second = SocketChannel.open(server.getAddress())) {
+
+            send(first, 0);
+            send(second, REQUESTS);
+            receive(first, 0);
+            receive(second, REQUESTS);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void halfCloseTest() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BulkVectorCalculator calculator = new BulkVectorCalculator(pool, 16);
+
+        try(VectorServer server = new VectorServer(new InetSocketAddress("127.0.0.1", 0), calculator, 64).start();
+            SocketChannel channel = SocketChannel.open(server.getAddress())) {
+
+            send(channel, 0);
+            channel.shutdownOutput();
+            receive(channel, 0);
+            assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void send(SocketChannel channel, int firstId) throws Exception {
+        ByteBuffer requests = ByteBuffer.allocate(REQUESTS * VectorProtocol.REQUEST_LENGTH + 12);
+
+        for(int i = 0; i < REQUESTS; i++) {
+            VectorProtocol.putRequest(requests, firstId + i, K, OPC, RAND, SQN, AMF);
+        }
+        requests.putInt(8).putInt(-1).putInt(0);
+        requests.flip();
+        while(requests.hasRemaining()) {
+            channel.write(requests);
+        }
+    }
+
+    private static void receive(SocketChannel channel, int firstId) throws Exception {
+        ByteBuffer responses = ByteBuffer.allocate(REQUESTS * VectorProtocol.RESPONSE_LENGTH
+                + VectorProtocol.ERROR_RESPONSE_LENGTH);
+
+        while(responses.hasRemaining()) {
+            assertTrue(channel.read(responses) >= 0);
+        }
+        responses.flip();
+
+        Set<Integer> ids = new HashSet<>();
+        byte [] vector = new byte [MilenageOutput.LENGTH];
+
+        while(responses.hasRemaining()) {
+            int length = responses.getInt();
+            int id = responses.getInt();
+            byte status = responses.get();
+
+            if(id == -1) {
+                assertEquals(VectorProtocol.STATUS_MALFORMED, status);
+                assertEquals(VectorProtocol.ERROR_RESPONSE_LENGTH - 4, length);
+                continue;
+            }
+            assertEquals(VectorProtocol.STATUS_OK, status);
+            assertEquals(VectorProtocol.RESPONSE_LENGTH - 4, length);
+            assertTrue(ids.add(id - firstId));
+
+            responses.get(vector);
+            MilenageOutput output = new MilenageOutput(vector, 0);
+
+            assertArrayEquals(F1, output.get(MilenageResult.MAC_A));
+            assertArrayEquals(F2, output.get(MilenageResult.RES));
+            assertArrayEquals(F3, output.get(MilenageResult.CK));
+            assertArrayEquals(F4, output.get(MilenageResult.IK));
+            assertArrayEquals(F5, output.get(MilenageResult.AK));
+        }
+        assertEquals(REQUESTS, ids.size());
+        assertTrue(ids.stream().allMatch(i -> i >= 0 && i < REQUESTS));
+    }
+}
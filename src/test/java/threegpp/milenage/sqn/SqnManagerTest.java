@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.sqn;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import threegpp.milenage.SqnPolicies;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <h1>SqnManagerTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class SqnManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reserveAndReopenTest() throws Exception {
+        Path dir = folder.getRoot().toPath();
+
+        try(SqnManager manager = new SqnManager(dir, 10, 16, SqnPolicies.sequential())) {
+            assertEquals(1, manager.next(3));
+            assertEquals(2, manager.reserve(3, 5));
+            assertEquals(6, manager.current(3));
+            assertEquals(0, manager.current(4));
+        }
+        try(SqnManager manager = new SqnManager(dir, 10, 16, SqnPolicies.sequential())) {
+            assertEquals(6, manager.current(3));
+            assertEquals(7, manager.next(3));
+        }
+    }
+
+    @Test
+    public void concurrentReplayTest() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        final SqnManager manager = new SqnManager(dir, 4, 8, SqnPolicies.sequential());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        try {
+            for(int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() throws Exception {
+                        List<Long> issued = new ArrayList<>();
+                        for(int i = 0; i < 100; i++) {
+                            issued.add(manager.next(1));
+                        }
+                        return issued;
+                    }
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for(Future<List<Long>> future: futures) {
+                all.addAll(future.get());
+            }
+            assertEquals(800, all.size());
+            assertEquals(800, manager.current(1));
+
+        } finally {
+            executor.shutdown();
+        }
+        // reopen without close() as after a crash: journal records on top of the last snapshot
+        manager.next(2);
+        manager.next(2);
+
+        try(SqnManager reopened = new SqnManager(dir, 4, 8, SqnPolicies.sequential())) {
+            assertEquals(800, reopened.current(1));
+            assertEquals(2, reopened.current(2));
+            assertTrue(reopened.next(1) > 800);
+        }
+    }
+
+    @Test
+    public void smallerJournalReplayTest() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        SqnManager manager = new SqnManager(dir, 4, 16, SqnPolicies.sequential());
+
+        for(int i = 0; i < 10; i++) {
+            manager.next(1);
+        }
+        // reopen after a crash with a journal smaller than the number of records in it
+        try(SqnManager reopened = new SqnManager(dir, 4, 4, SqnPolicies.sequential())) {
+            assertEquals(10, reopened.current(1));
+            assertEquals(11, reopened.next(1));
+        }
+    }
+
+    @Test
+    public void failedForceTest() throws Exception {
+        final AtomicBoolean broken = new AtomicBoolean(true);
+        final SqnJournal journal = new SqnJournal(folder.getRoot().toPath().resolve(SqnManager.JOURNAL_FILE), 64,
+                map -> {
+                    if(broken.get()) {
+                        throw new UncheckedIOException(new IOException("injected"));
+                    }
+                    map.force();
+                });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for(int t = 0; t < 4; t++) {
+                final int index = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        journal.sync(journal.append(index, 1));
+                        return null;
+                    }
+                }));
+            }
+            for(Future<?> future: futures) {
+                try {
+                    future.get();
+                    fail("Sync succeeded although the journal was not forced");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IOException);
+                }
+            }
+            try {
+                journal.sync(journal.append(0, 2));
+                fail("Sync succeeded after a failed force");
+            } catch (IOException e) {
+                // expected
+            }
+            broken.set(false);
+            journal.reset();
+            journal.sync(journal.append(0, 3));
+
+        } finally {
+            executor.shutdown();
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.store;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import threegpp.milenage.Milenage;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.primitive.PrimitiveBuffer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>CredentialStoreTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class CredentialStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lookupTest() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("credentials.db");
+        byte [] other = new byte [Milenage.BLOCK_LEN_BYTES];
+        CredentialStoreWriter writer = new CredentialStoreWriter();
+
+        for(long imsi = 250_010_000_000_100L; imsi > 250_010_000_000_000L; imsi -= 2) {
+            writer.add(CredentialStore.imsiKey(imsi, 15), other, other, new byte [] {0, 0});
+        }
+        writer.add("250010000000051", K, OPC, AMF);
+        writer.write(file);
+
+        try(CredentialStore store = CredentialStore.open(file)) {
+            assertEquals(51, store.size());
+
+            long record = store.find("250010000000051");
+            assertEquals("250010000000051", store.getImsi(record));
+            assertEquals(0xB9B9, store.getAmf(record));
+            assertEquals(-1, store.find("250010000000001"));
+            assertNull(store.lookup("250010000000101"));
+
+            Milenage<PrimitiveBuffer> milenage = store.lookup(CredentialStore.imsiKey(250_010_000_000_051L, 15));
+            Map<MilenageResult, byte []> result = milenage.calculateAll(RAND, SQN, AMF);
+
+            assertArrayEquals(F1, result.get(MilenageResult.MAC_A));
+            assertArrayEquals(F1_STAR, result.get(MilenageResult.MAC_S));
+            assertArrayEquals(F2, result.get(MilenageResult.RES));
+            assertArrayEquals(F3, result.get(MilenageResult.CK));
+            assertArrayEquals(F4, result.get(MilenageResult.IK));
+            assertArrayEquals(F5, result.get(MilenageResult.AK));
+            assertArrayEquals(F5_STAR, result.get(MilenageResult.AK_R));
+        }
+    }
+
+    @Test
+    public void segmentedTest() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("segmented.db");
+        CredentialStoreWriter writer = new CredentialStoreWriter();
+
+        for(int i = 0; i < 100; i++) {
+            byte [] block = new byte [Milenage.BLOCK_LEN_BYTES];
+            block[0] = (byte) i;
+            writer.add(CredentialStore.imsiKey(250_010_000_000_000L + i, 15), block, block, new byte [] {0, (byte) i});
+        }
+        writer.write(file);
+
+        try(CredentialStore store = CredentialStore.open(file, 7)) {
+            assertEquals(100, store.size());
+
+            for(int i = 0; i < 100; i++) {
+                long record = store.find(CredentialStore.imsiKey(250_010_000_000_000L + i, 15));
+
+                assertEquals(i, record);
+                assertEquals(i, store.getAmf(record));
+                assertEquals(i, store.getOPc(record).toBytes()[0]);
+            }
+        }
+    }
+
+    @Test
+    public void largeStoreTest() throws Exception {
+        Random random = new Random(11);
+        Set<String> narrow = new LinkedHashSet<>();
+        Set<String> mixed = new LinkedHashSet<>();
+
+        while(narrow.size() < 3000) {
+            narrow.add(String.format("25001%010d", (long) (random.nextDouble() * 1e10)));
+        }
+        while(mixed.size() < 3000) {
+            String imsi = String.format("%015d", (long) (random.nextDouble() * 1e15));
+            mixed.add(imsi.substring(random.nextInt(10)));
+        }
+        // the narrow range is sorted as packed longs, mixed digit counts go through the radix sort
+        checkSorted(narrow, "narrow.db");
+        checkSorted(mixed, "mixed.db");
+    }
+
+    @Test
+    public void leadingZerosTest() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("zeros.db");
+        byte [] other = new byte [Milenage.BLOCK_LEN_BYTES];
+
+        new CredentialStoreWriter()
+                .add("001010000000001", K, OPC, AMF)
+                .add("1010000000001", other, other, new byte [] {0, 0})
+                .add("01010000000001", other, other, new byte [] {0, 0})
+                .write(file);
+
+        try(CredentialStore store = CredentialStore.open(file)) {
+            assertEquals(3, store.size());
+
+            long record = store.find("001010000000001");
+            assertEquals("001010000000001", store.getImsi(record));
+            assertEquals(0xB9B9, store.getAmf(record));
+            assertEquals("1010000000001", store.getImsi(store.find("1010000000001")));
+            assertEquals("01010000000001", store.getImsi(store.find("01010000000001")));
+            assertArrayEquals(F3, store.lookup("001010000000001").calculateAll(RAND, SQN, AMF).get(MilenageResult.CK));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void plainImsiNumberTest() {
+        byte [] block = new byte [Milenage.BLOCK_LEN_BYTES];
+
+        new CredentialStoreWriter().add(250_010_000_000_051L, block, block, AMF);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void duplicateImsiTest() throws Exception {
+        byte [] block = new byte [Milenage.BLOCK_LEN_BYTES];
+
+        new CredentialStoreWriter()
+                .add("001", block, block, AMF)
+                .add(CredentialStore.imsiKey(1, 3), block, block, AMF)
+                .write(folder.getRoot().toPath().resolve("duplicate.db"));
+    }
+
+    private void checkSorted(Set<String> imsis, String name) throws Exception {
+        Path file = folder.getRoot().toPath().resolve(name);
+        CredentialStoreWriter writer = new CredentialStoreWriter();
+        List<String> added = new ArrayList<>(imsis);
+
+        for(int i = 0; i < added.size(); i++) {
+            byte [] block = new byte [Milenage.BLOCK_LEN_BYTES];
+            writer.add(added.get(i), block, block, new byte [] {(byte) (i >>> 8), (byte) i});
+        }
+        writer.write(file);
+
+        try(CredentialStore store = CredentialStore.open(file)) {
+            assertEquals(added.size(), store.size());
+
+            for(long record = 1; record < store.size(); record++) {
+                assertTrue(store.getImsiKey(record - 1) < store.getImsiKey(record));
+            }
+            for(int i = 0; i < added.size(); i++) {
+                long record = store.find(added.get(i));
+
+                assertEquals(added.get(i), store.getImsi(record));
+                assertEquals(i & 0xFFFF, store.getAmf(record));
+            }
+        }
+    }
+}
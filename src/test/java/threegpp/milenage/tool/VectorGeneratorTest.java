@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2016 Constantin Roganov
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package threegpp.milenage.tool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import threegpp.milenage.MilenageOutput;
+import threegpp.milenage.MilenageResult;
+import threegpp.milenage.store.CredentialStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static javax.xml.bind.DatatypeConverter.printHexBinary;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static threegpp.milenage.MilenageTestData.*;
+
+/**
+ * <h1>VectorGeneratorTest</h1>
+ * <p/>
+ *
+ * @author Constantin Roganov {@literal <rccbox @ gmail . com>}
+ * @version 1.0.0
+ * @since 16.10.26
+ */
+public class VectorGeneratorTest {
+
+    private static final int RECORDS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void binaryInputOrderTest() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("input.bin");
+        ByteBuffer records = ByteBuffer.allocate(RECORDS * InputFormat.RECORD_LENGTH);
+
+        for(int i = 0; i < RECORDS; i++) {
+            records.putLong(CredentialStore.imsiKey(250_010_000_000_000L + i, 15)).put(K).put(OPC).put(RAND).put(SQN).put(AMF);
+        }
+        Files.write(input, records.array());
+
+        Path output = run(input, InputFormat.BINARY, VectorGenerator.Order.INPUT);
+        ByteBuffer result = ByteBuffer.wrap(Files.readAllBytes(output));
+
+        assertEquals(RECORDS * VectorGenerator.OUTPUT_RECORD_LENGTH, result.capacity());
+        for(int i = 0; i < RECORDS; i++) {
+            assertEquals(CredentialStore.imsiKey(250_010_000_000_000L + i, 15), result.getLong());
+            checkVector(result);
+        }
+    }
+
+    @Test
+    public void csvFastestOrderTest() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("input.csv");
+        StringBuilder csv = new StringBuilder("# imsi,k,opc,rand,sqn,amf\r\n");
+
+        for(int i = 0; i < RECORDS; i++) {
+            csv.append(250_010_000_000_000L + i).append(',').append(printHexBinary(K)).append(',')
+                    .append(printHexBinary(OPC)).append(',').append(printHexBinary(RAND)).append(',')
+                    .append(printHexBinary(SQN)).append(',').append(printHexBinary(AMF).toLowerCase())
+                    .append(i == RECORDS - 1 ? "" : "\r\n");
+        }
+        Files.write(input, csv.toString().getBytes(StandardCharsets.US_ASCII));
+
+        Path output = run(input, InputFormat.forFileName(input.toString()), VectorGenerator.Order.FASTEST);
+        ByteBuffer result = ByteBuffer.wrap(Files.readAllBytes(output));
+        Set<Long> imsis = new TreeSet<>();
+
+        assertEquals(RECORDS * VectorGenerator.OUTPUT_RECORD_LENGTH, result.capacity());
+        for(int i = 0; i < RECORDS; i++) {
+            imsis.add(result.getLong() - CredentialStore.imsiKey(250_010_000_000_000L, 15));
+            checkVector(result);
+        }
+        assertEquals(Set.of(0L, 1L, 2L, 3L, 4L), imsis);
+    }
+
+    @Test
+    public void csvLeadingZerosTest() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("zeros.csv");
+        String fields = "," + printHexBinary(K) + "," + printHexBinary(OPC) + "," + printHexBinary(RAND)
+                + "," + printHexBinary(SQN) + "," + printHexBinary(AMF) + "\n";
+        String [] imsis = {"001010000000001", "1010000000001", "01010000000001", "001010000000002", "0010100000001"};
+        StringBuilder csv = new StringBuilder();
+
+        for(String imsi : imsis) {
+            csv.append(imsi).append(fields);
+        }
+        Files.write(input, csv.toString().getBytes(StandardCharsets.US_ASCII));
+
+        ByteBuffer result = ByteBuffer.wrap(Files.readAllBytes(run(input, InputFormat.CSV, VectorGenerator.Order.INPUT)));
+
+        for(String imsi : imsis) {
+            assertEquals(imsi, CredentialStore.formatImsi(result.getLong()));
+            checkVector(result);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void binaryPlainImsiTest() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("plain.bin");
+        ByteBuffer records = ByteBuffer.allocate(RECORDS * InputFormat.RECORD_LENGTH);
+
+        for(int i = 0; i < RECORDS; i++) {
+            records.putLong(250_010_000_000_000L + i).put(K).put(OPC).put(RAND).put(SQN).put(AMF);
+        }
+        Files.write(input, records.array());
+        run(input, InputFormat.BINARY, VectorGenerator.Order.INPUT);
+    }
+
+    private Path run(Path input, InputFormat format, VectorGenerator.Order order) throws Exception {
+        Path output = folder.getRoot().toPath().resolve("output.bin");
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            VectorGenerator.Statistics statistics = new VectorGenerator(pool, format, order, 2, 2).run(input, output);
+
+            assertEquals(RECORDS, statistics.getRecords());
+            return output;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void checkVector(ByteBuffer result) {
+        byte [] vector = new byte [MilenageOutput.LENGTH];
+        result.get(vector);
+
+        MilenageOutput output = new MilenageOutput(vector, 0);
+
+        assertArrayEquals(F1, output.get(MilenageResult.MAC_A));
+        assertArrayEquals(F2, output.get(MilenageResult.RES));
+        assertArrayEquals(F3, output.get(MilenageResult.CK));
+        assertArrayEquals(F4, output.get(MilenageResult.IK));
+        assertArrayEquals(F5_STAR, output.get(MilenageResult.AK_R));
+    }
+}